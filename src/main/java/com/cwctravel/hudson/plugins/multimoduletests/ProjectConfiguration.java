@@ -6,12 +6,16 @@ public class ProjectConfiguration {
 	private boolean keepLongStdio;
 	private String testResultFileMask;
 	private final String moduleNames;
+	private int parserThreads;
+	private String parserEngine;
 
 	@DataBoundConstructor
-	public ProjectConfiguration(boolean keepLongStdio, String testResultFileMask, String moduleNames) {
+	public ProjectConfiguration(boolean keepLongStdio, String testResultFileMask, String moduleNames, int parserThreads, String parserEngine) {
 		this.keepLongStdio = keepLongStdio;
 		this.testResultFileMask = testResultFileMask;
 		this.moduleNames = moduleNames;
+		this.parserThreads = parserThreads;
+		this.parserEngine = parserEngine;
 	}
 
 	public String getTestResultFileMask() {
@@ -33,4 +37,27 @@ public class ProjectConfiguration {
 	public String getModuleNames() {
 		return moduleNames;
 	}
+
+	/**
+	 * The number of threads parsing reports at once. Reports are parsed one after another unless more than one thread is configured.
+	 */
+	public int getParserThreads() {
+		return parserThreads;
+	}
+
+	public void setParserThreads(int parserThreads) {
+		this.parserThreads = parserThreads;
+	}
+
+	/**
+	 * The name of the {@link com.cwctravel.hudson.plugins.multimoduletests.junit.JUnitParserEngine} reading reports. Reports are read with SAX unless
+	 * StAX is configured.
+	 */
+	public String getParserEngine() {
+		return parserEngine;
+	}
+
+	public void setParserEngine(String parserEngine) {
+		this.parserEngine = parserEngine;
+	}
 }
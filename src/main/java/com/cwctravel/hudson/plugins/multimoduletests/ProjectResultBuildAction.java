@@ -19,6 +19,7 @@ import org.kohsuke.stapler.StaplerProxy;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.ModuleResult;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.ProjectResult;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDB;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDBUpgradingException;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryInfo;
 
 public class ProjectResultBuildAction extends AbstractTestResultAction<ProjectResultBuildAction> implements StaplerProxy {
@@ -109,9 +110,12 @@ public class ProjectResultBuildAction extends AbstractTestResultAction<ProjectRe
 		if(summary == null) {
 			JUnitDB junitDB;
 			try {
-				junitDB = new JUnitDB(owner.getProject().getRootDir().getAbsolutePath());
+				junitDB = JUnitDB.getInstance(owner.getProject().getRootDir().getAbsolutePath());
 				summary = junitDB.fetchTestProjectSummaryForBuild(owner.getNumber(), owner.getProject().getName());
 			}
+			catch(JUnitDBUpgradingException jDUE) {
+				LOGGER.info(jDUE.getMessage());
+			}
 			catch(SQLException e) {
 				LOGGER.log(Level.SEVERE, e.getMessage(), e);
 			}
@@ -0,0 +1,26 @@
+package com.cwctravel.hudson.plugins.multimoduletests;
+
+import java.io.File;
+
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDB;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.listeners.ItemListener;
+
+/**
+ * Closes the test database of a project once the project has been deleted or renamed, so that its connections are not kept open and the database is
+ * not kept booted for the life of the JVM. The database of a renamed project is opened again from its new directory on first use.
+ */
+@Extension
+public class ProjectResultItemListener extends ItemListener {
+	@Override
+	public void onDeleted(Item item) {
+		JUnitDB.closeInstance(item.getRootDir().getAbsolutePath());
+	}
+
+	@Override
+	public void onRenamed(Item item, String oldName, String newName) {
+		JUnitDB.closeInstance(new File(item.getRootDir().getParentFile(), oldName).getAbsolutePath());
+	}
+}
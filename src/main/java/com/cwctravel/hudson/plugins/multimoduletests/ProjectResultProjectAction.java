@@ -97,7 +97,7 @@ public class ProjectResultProjectAction extends TestResultProjectAction implemen
 					AbstractProject<?, ?> project = projectResult.getOwner().getParent();
 					JUnitDB junitDB;
 					try {
-						junitDB = new JUnitDB(project.getRootDir().getAbsolutePath());
+						junitDB = JUnitDB.getInstance(project.getRootDir().getAbsolutePath());
 						List<JUnitSummaryInfo> historyList = junitDB.fetchTestModuleSummaryHistory(project.getName(), moduleName, MAX_HISTORY);
 						return new TrendGraph("/testReport/", "/" + moduleName + "/", "count", historyList);
 					}
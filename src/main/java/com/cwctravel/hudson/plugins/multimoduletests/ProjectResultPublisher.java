@@ -5,7 +5,9 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -18,9 +20,13 @@ import org.kohsuke.stapler.StaplerRequest;
 import org.xml.sax.SAXException;
 
 import com.cwctravel.hudson.plugins.multimoduletests.ProjectResultBuildAction.Data;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.JUnitParallelParser;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.JUnitParser;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.JUnitTestWriter;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.ProjectResult;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDB;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDBUpgradingException;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryCollector;
 
 import hudson.DescriptorExtensionList;
 import hudson.Extension;
@@ -111,26 +117,59 @@ public class ProjectResultPublisher extends Recorder implements Serializable {
 		}
 
 		String moduleNames = Util.replaceMacro(config.getModuleNames(), build.getBuildVariableResolver());
-		List<FilePath> filePaths = build.getWorkspace().act(new ParseResultCallable(testResultFileMask));
+		// only count files that were actually updated during this build
+		Map<FilePath, Long> reportFileSizes = build.getWorkspace().act(new ParseResultCallable(testResultFileMask, buildTime - 3000/*error margin*/));
+		List<FilePath> reportFiles = new ArrayList<FilePath>(reportFileSizes.keySet());
+
+		long reportSize = 0;
+		for(long reportFileSize: reportFileSizes.values()) {
+			reportSize += reportFileSize;
+		}
+		listener.getLogger().println("Found " + reportFiles.size() + " test result files (" + reportSize + " bytes)");
 
 		try {
 			String projectName = build.getProject().getName();
 			String buildId = build.getId();
 			int buildNumber = build.getNumber();
 
-			JUnitDB junitDB = new JUnitDB(junitDBDir.getAbsolutePath());
+			JUnitDB junitDB;
+			try {
+				junitDB = JUnitDB.getInstance(junitDBDir.getAbsolutePath());
+			}
+			catch(JUnitDBUpgradingException jDUE) {
+				listener.getLogger().println(jDUE.getMessage() + ", waiting for the upgrade to finish");
+				junitDB = JUnitDB.awaitInstance(junitDBDir.getAbsolutePath());
+			}
 			junitDB.compactDB(projectName, activeBuildIds);
 
-			JUnitParser junitParser = new JUnitParser(junitDB);
-			for(FilePath reportFile: filePaths) {
-				// only count files that were actually updated during this build
-				if((buildTime - 3000/*error margin*/ <= reportFile.lastModified())) {
-					if(reportFile.length() != 0) {
+			JUnitSummaryCollector summaryCollector = null;
+			JUnitTestWriter junitTestWriter = new JUnitTestWriter(junitDB);
+			boolean isParsed = false;
+			try {
+				int parserThreads = config.getParserThreads();
+				if(parserThreads > 1) {
+					JUnitParallelParser junitParallelParser = new JUnitParallelParser(junitDB, junitTestWriter, config.getParserEngine(),
+							parserThreads);
+					junitParallelParser.parse(buildNumber, buildId, projectName, reportFiles);
+					summaryCollector = junitParallelParser.getSummaryCollector();
+				}
+				else {
+					JUnitParser junitParser = new JUnitParser(junitDB, junitTestWriter, config.getParserEngine());
+					for(FilePath reportFile: reportFiles) {
 						junitParser.parse(buildNumber, buildId, projectName, reportFile);
 					}
+					junitParser.flush();
+					summaryCollector = junitParser.getSummaryCollector();
 				}
+				junitTestWriter.close();
+				isParsed = true;
 			}
-			junitDB.summarizeTestProjectForBuild(buildNumber, projectName);
+			finally {
+				if(!isParsed) {
+					junitTestWriter.abort();
+				}
+			}
+			listener.getLogger().println(junitTestWriter);
 
 			List<String> moduleNamesList = new ArrayList<String>();
 			if(moduleNames != null) {
@@ -143,11 +182,7 @@ public class ProjectResultPublisher extends Recorder implements Serializable {
 				}
 			}
 
-			for(String moduleName: moduleNamesList) {
-				junitDB.summarizeTestModuleForBuild(buildNumber, projectName, moduleName);
-				junitDB.summarizeTestPackagesForBuild(buildNumber, projectName, moduleName);
-
-			}
+			junitDB.insertSummaries(summaryCollector, moduleNamesList);
 		}
 		catch(SAXException sAE) {
 			throw new IOException(sAE);
@@ -209,24 +244,35 @@ public class ProjectResultPublisher extends Recorder implements Serializable {
 		return new ProjectResultProjectAction(project);
 	}
 
-	private static final class ParseResultCallable implements FilePath.FileCallable<List<FilePath>> {
+	/**
+	 * Finds the non-empty result files modified since the given time, returning each with its size. Files are checked where they are, so that a
+	 * remote workspace costs one call rather than a call per file.
+	 */
+	private static final class ParseResultCallable implements FilePath.FileCallable<Map<FilePath, Long>> {
 		private static final long serialVersionUID = -2412534164383439939L;
 
 		private final String testResults;
+		private final long modifiedSince;
 
-		private ParseResultCallable(String testResults) {
+		private ParseResultCallable(String testResults, long modifiedSince) {
 			this.testResults = testResults;
+			this.modifiedSince = modifiedSince;
 		}
 
-		public List<FilePath> invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
-			List<FilePath> result = new ArrayList<FilePath>();
+		public Map<FilePath, Long> invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+			Map<FilePath, Long> result = new LinkedHashMap<FilePath, Long>();
 			FileSet fs = Util.createFileSet(ws, testResults);
 			DirectoryScanner ds = fs.getDirectoryScanner();
 			String[] includedFiles = ds.getIncludedFiles();
 			File baseDir = ds.getBasedir();
 			for(String value: includedFiles) {
-				FilePath filepath = new FilePath(new File(baseDir, value));
-				result.add(filepath);
+				File file = new File(baseDir, value);
+				if(modifiedSince <= file.lastModified()) {
+					long length = file.length();
+					if(length != 0) {
+						result.put(new FilePath(file), length);
+					}
+				}
 			}
 			return result;
 		}
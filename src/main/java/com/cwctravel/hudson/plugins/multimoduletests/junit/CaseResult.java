@@ -32,6 +32,7 @@ import hudson.tasks.test.TestResult;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.ref.WeakReference;
 import java.sql.SQLException;
 import java.util.Collection;
@@ -42,16 +43,16 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jvnet.localizer.Localizable;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.export.Exported;
 
 import com.cwctravel.hudson.plugins.multimoduletests.ProjectResultBuildAction;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDB;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitMetricsInfo;
-import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryInfo;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryTree;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestDetailInfo;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestInfo;
-import com.cwctravel.hudson.plugins.multimoduletests.junit.io.IOUtil;
-import com.cwctravel.hudson.plugins.multimoduletests.junit.io.StringReaderWriter;
 
 /**
  * One test result.
@@ -61,8 +62,6 @@ import com.cwctravel.hudson.plugins.multimoduletests.junit.io.StringReaderWriter
 public final class CaseResult extends TestResult implements Comparable<CaseResult> {
 	private static final Logger LOGGER = Logger.getLogger(CaseResult.class.getName());
 
-	private int failedSince;
-
 	private final JUnitDB junitDB;
 	private final TestObject parent;
 
@@ -77,7 +76,7 @@ public final class CaseResult extends TestResult implements Comparable<CaseResul
 		this.parent = parent;
 		this.testInfo = testInfo;
 		try {
-			this.junitDB = new JUnitDB(getOwner().getProject().getRootDir().getAbsolutePath());
+			this.junitDB = JUnitDB.getInstance(getOwner().getProject().getRootDir().getAbsolutePath());
 		}
 		catch(SQLException sE) {
 			throw new JUnitException(sE);
@@ -199,27 +198,7 @@ public final class CaseResult extends TestResult implements Comparable<CaseResul
 	@Override
 	@Exported(visibility = 9)
 	public int getFailedSince() {
-		// If we haven't calculated failedSince yet, and we should,
-		// do it now.
-		if(failedSince == 0 && getFailCount() > 0) {
-			try {
-				List<JUnitSummaryInfo> history = junitDB.summarizeTestCaseHistory(testInfo.getProjectName(), testInfo.getModuleName(), testInfo.getPackageName(), testInfo.getClassName(), testInfo.getCaseName(), 5000);
-				for(JUnitSummaryInfo junitSummaryInfo: history) {
-					int failedBuildNumber = junitSummaryInfo.getBuildNumber();
-					if(failedBuildNumber < testInfo.getBuildNumber() && (junitSummaryInfo.getFailCount() > 0 || junitSummaryInfo.getErrorCount() > 0)) {
-						failedSince = failedBuildNumber;
-						break;
-					}
-				}
-				if(failedSince == 0) {
-					failedSince = testInfo.getBuildNumber();
-				}
-			}
-			catch(SQLException sE) {
-				LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
-			}
-		}
-		return failedSince;
+		return testInfo.getFailedSince();
 	}
 
 	@Override
@@ -254,36 +233,9 @@ public final class CaseResult extends TestResult implements Comparable<CaseResul
 	@Override
 	@Exported
 	public String getStdout() {
-		StringReaderWriter stdoutReaderWriter = new StringReaderWriter();
-		String result = "";
-		try {
-			JUnitTestDetailInfo junitTestDetailInfo = junitDB.readTestDetail(testInfo.getBuildNumber(), testInfo.getProjectName(), testInfo.getModuleName(), testInfo.getPackageName(), testInfo.getClassName(), testInfo.getCaseName(), stdoutReaderWriter, null);
-			StringWriter sW = new StringWriter();
-			IOUtil.write(junitTestDetailInfo.getStdout(), sW);
-			result = sW.toString();
-			if(result == null || result.isEmpty()) {
-				junitTestDetailInfo = junitDB.readTestDetail(testInfo.getBuildNumber(), testInfo.getProjectName(), testInfo.getModuleName(), "<init>", "<init>", "<init>", stdoutReaderWriter, null);
-				sW = new StringWriter();
-				IOUtil.write(junitTestDetailInfo.getStdout(), sW);
-				result = sW.toString();
-			}
-		}
-		catch(SQLException sE) {
-			LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
-		}
-		catch(IOException iE) {
-			LOGGER.log(Level.SEVERE, iE.getMessage(), iE);
-		}
-		finally {
-			try {
-				stdoutReaderWriter.release();
-			}
-			catch(IOException iE) {
-				LOGGER.log(Level.SEVERE, iE.getMessage(), iE);
-			}
-		}
-
-		return result;
+		StringWriter result = new StringWriter();
+		writeStdio(result, null);
+		return result.toString();
 	}
 
 	/**
@@ -295,19 +247,32 @@ public final class CaseResult extends TestResult implements Comparable<CaseResul
 	@Override
 	@Exported
 	public String getStderr() {
-		StringReaderWriter stderrReaderWriter = new StringReaderWriter();
-		String result = "";
+		StringWriter result = new StringWriter();
+		writeStdio(null, result);
+		return result.toString();
+	}
+
+	/**
+	 * Streams the stdout of this test to the browser as plain text, for output too large to be shown on the test's page.
+	 */
+	public void doRawStdout(StaplerRequest req, StaplerResponse rsp) throws IOException {
+		rsp.setContentType("text/plain;charset=UTF-8");
+		writeStdio(rsp.getWriter(), null);
+	}
+
+	/**
+	 * Streams the stderr of this test to the browser as plain text.
+	 * 
+	 * @see #doRawStdout(StaplerRequest, StaplerResponse)
+	 */
+	public void doRawStderr(StaplerRequest req, StaplerResponse rsp) throws IOException {
+		rsp.setContentType("text/plain;charset=UTF-8");
+		writeStdio(null, rsp.getWriter());
+	}
+
+	private void writeStdio(Writer stdoutWriter, Writer stderrWriter) {
 		try {
-			JUnitTestDetailInfo junitTestDetailInfo = junitDB.readTestDetail(testInfo.getBuildNumber(), testInfo.getProjectName(), testInfo.getModuleName(), testInfo.getPackageName(), testInfo.getClassName(), testInfo.getCaseName(), null, stderrReaderWriter);
-			StringWriter sW = new StringWriter();
-			IOUtil.write(junitTestDetailInfo.getStderr(), sW);
-			result = sW.toString();
-			if(result == null || result.isEmpty()) {
-				junitTestDetailInfo = junitDB.readTestDetail(testInfo.getBuildNumber(), testInfo.getProjectName(), testInfo.getModuleName(), "<init>", "<init>", "<init>", null, stderrReaderWriter);
-				sW = new StringWriter();
-				IOUtil.write(junitTestDetailInfo.getStderr(), sW);
-				result = sW.toString();
-			}
+			junitDB.readTestStdio(testInfo.getBuildNumber(), testInfo.getProjectName(), testInfo.getModuleName(), testInfo.getPackageName(), testInfo.getClassName(), testInfo.getCaseName(), stdoutWriter, stderrWriter);
 		}
 		catch(SQLException sE) {
 			LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
@@ -315,16 +280,6 @@ public final class CaseResult extends TestResult implements Comparable<CaseResul
 		catch(IOException iE) {
 			LOGGER.log(Level.SEVERE, iE.getMessage(), iE);
 		}
-		finally {
-			try {
-				stderrReaderWriter.release();
-			}
-			catch(IOException iE) {
-				LOGGER.log(Level.SEVERE, iE.getMessage(), iE);
-			}
-		}
-
-		return result;
 	}
 
 	@Override
@@ -468,6 +423,18 @@ public final class CaseResult extends TestResult implements Comparable<CaseResul
 		if(isSkipped()) {
 			return Status.SKIPPED;
 		}
+
+		JUnitSummaryTree junitSummaryTree = getSummaryTree();
+		if(junitSummaryTree != null && junitSummaryTree.isComplete()) {
+			boolean isChanged = junitSummaryTree.isTestChanged(testInfo.getModuleName(), testInfo.getPackageName(), testInfo.getClassName(), testInfo.getCaseName());
+			if(isPassed()) {
+				return isChanged ? Status.FIXED : Status.PASSED;
+			}
+			else {
+				return isChanged ? Status.REGRESSION : Status.FAILED;
+			}
+		}
+
 		JUnitTestInfo junitTestInfo = getPreviousTestInfo();
 		if(junitTestInfo == null) {
 			return isPassed() ? Status.PASSED : Status.FAILED;
@@ -481,6 +448,20 @@ public final class CaseResult extends TestResult implements Comparable<CaseResul
 		}
 	}
 
+	/**
+	 * Returns the summary tree of the build, which records the tests that regressed or were fixed in it, or null if it could not be read.
+	 */
+	private JUnitSummaryTree getSummaryTree() {
+		JUnitSummaryTree result = null;
+		try {
+			result = junitDB.fetchSummaryTreeForBuild(testInfo.getBuildNumber(), testInfo.getProjectName());
+		}
+		catch(SQLException sE) {
+			LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
+		}
+		return result;
+	}
+
 	private JUnitTestInfo getPreviousTestInfo() {
 		if(previousTestInfo == null) {
 			try {
@@ -553,7 +534,7 @@ public final class CaseResult extends TestResult implements Comparable<CaseResul
 	public hudson.tasks.junit.History getHistory() {
 		History history = null;
 		if(historyReference == null || (history = historyReference.get()) == null) {
-			history = new History(this, 5000);
+			history = new History(this);
 			historyReference = new WeakReference<History>(history);
 			return history;
 		}
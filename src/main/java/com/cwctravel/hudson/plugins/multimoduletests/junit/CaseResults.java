@@ -0,0 +1,53 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitCursor;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitIdentity;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestInfo;
+
+/**
+ * Builds the failed, skipped or passed test lists of the project, module and package results.
+ */
+final class CaseResults {
+	/**
+	 * A result owning test cases, which finds the result of the class a test case belongs to.
+	 */
+	interface ClassResultFinder {
+		/**
+		 * Returns the result of the class the given test belongs to, falling back to one whose summary is read on demand if the build's summary
+		 * tree does not have the class.
+		 */
+		ClassResult findClassResult(JUnitTestInfo junitTestInfo);
+	}
+
+	private CaseResults() {}
+
+	/**
+	 * Reads the tests of the given cursor into case results. All the tests are read, and the cursor closed, before any class result is found, since
+	 * finding one may read the build's summary tree and so borrow a connection of its own. A class result is found only for the first test of each
+	 * class, and is shared by the other tests of the class. The classes are those of the build's summary tree, so the summaries of all of them are
+	 * read by a single query.
+	 */
+	static List<CaseResult> readCaseResults(ClassResultFinder classResultFinder, JUnitCursor<JUnitTestInfo> junitTests) throws SQLException {
+		List<JUnitTestInfo> junitTestInfos = junitTests.toList(-1);
+
+		List<CaseResult> result = new ArrayList<CaseResult>(junitTestInfos.size());
+		Map<Long, ClassResult> classResults = new HashMap<Long, ClassResult>();
+		for(JUnitTestInfo junitTestInfo: junitTestInfos) {
+			long classId = JUnitIdentity.classId(junitTestInfo.getProjectName(), junitTestInfo.getModuleName(), junitTestInfo.getPackageName(),
+					junitTestInfo.getClassName());
+			ClassResult classResult = classResults.get(classId);
+			if(classResult == null) {
+				classResult = classResultFinder.findClassResult(junitTestInfo);
+				classResults.put(classId, classResult);
+			}
+			result.add(new CaseResult(classResult, junitTestInfo));
+		}
+		return result;
+	}
+}
@@ -42,6 +42,8 @@ import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.export.Exported;
 
 import com.cwctravel.hudson.plugins.multimoduletests.ProjectResultBuildAction;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitChildSummaryInfo;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitCursor;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDB;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitMetricsInfo;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryInfo;
@@ -55,8 +57,6 @@ import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestInfo;
 public final class ClassResult extends TabulatedResult implements Comparable<ClassResult> {
 	private static final Logger LOGGER = Logger.getLogger(ClassResult.class.getName());
 
-	private int failedSince;
-
 	private JUnitDB junitDB;
 	private final TestObject parent;
 
@@ -65,6 +65,7 @@ public final class ClassResult extends TabulatedResult implements Comparable<Cla
 
 	private final JUnitSummaryInfo summary;
 	private JUnitSummaryInfo previousSummary;
+	private boolean previousSummaryFetched;
 
 	private JUnitMetricsInfo metrics;
 
@@ -72,13 +73,23 @@ public final class ClassResult extends TabulatedResult implements Comparable<Cla
 		this.parent = parent;
 		this.summary = summary;
 		try {
-			junitDB = new JUnitDB(getOwner().getProject().getRootDir().getAbsolutePath());
+			junitDB = JUnitDB.getInstance(getOwner().getProject().getRootDir().getAbsolutePath());
 		}
 		catch(SQLException sE) {
 			throw new JUnitException(sE);
 		}
 	}
 
+	/**
+	 * Creates the result of a child read by one of the children queries, which already carry the previous summary and the metrics.
+	 */
+	ClassResult(TestObject parent, JUnitChildSummaryInfo junitChildSummaryInfo) {
+		this(parent, junitChildSummaryInfo.getSummary());
+		this.previousSummary = junitChildSummaryInfo.getPreviousSummary();
+		this.previousSummaryFetched = true;
+		this.metrics = junitChildSummaryInfo.getMetrics();
+	}
+
 	@Override
 	public AbstractBuild<?, ?> getOwner() {
 		return(parent == null ? null : parent.getOwner());
@@ -101,7 +112,11 @@ public final class ClassResult extends TabulatedResult implements Comparable<Cla
 
 	@Override
 	public ClassResult getPreviousResult() {
-		return new ClassResult(getParent(), getPreviousSummary());
+		JUnitSummaryInfo junitSummaryInfo = getPreviousSummary();
+		if(junitSummaryInfo != null) {
+			return new ClassResult(getParent(), junitSummaryInfo);
+		}
+		return null;
 	}
 
 	@Override
@@ -180,13 +195,16 @@ public final class ClassResult extends TabulatedResult implements Comparable<Cla
 	public List<CaseResult> getFailedTests() {
 		try {
 			List<CaseResult> result = new ArrayList<CaseResult>();
-			List<JUnitTestInfo> junitTestInfoList = junitDB.queryTestsByClass(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName(), summary.getPackageName(), summary.getClassName());
-			for(JUnitTestInfo junitTestInfo: junitTestInfoList) {
-				if(junitTestInfo.getStatus() == JUnitTestInfo.STATUS_FAIL || junitTestInfo.getStatus() == JUnitTestInfo.STATUS_ERROR) {
+			JUnitCursor<JUnitTestInfo> junitTests = junitDB.openTestsByClass(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName(), summary.getPackageName(), summary.getClassName(), JUnitTestInfo.STATUS_FAIL, JUnitTestInfo.STATUS_ERROR);
+			try {
+				for(JUnitTestInfo junitTestInfo: junitTests) {
 					CaseResult caseResult = new CaseResult(this, junitTestInfo);
 					result.add(caseResult);
 				}
 			}
+			finally {
+				junitTests.close();
+			}
 			return result;
 		}
 		catch(SQLException sE) {
@@ -198,13 +216,16 @@ public final class ClassResult extends TabulatedResult implements Comparable<Cla
 	public List<CaseResult> getSkippedTests() {
 		try {
 			List<CaseResult> result = new ArrayList<CaseResult>();
-			List<JUnitTestInfo> junitTestInfoList = junitDB.queryTestsByClass(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName(), summary.getPackageName(), summary.getClassName());
-			for(JUnitTestInfo junitTestInfo: junitTestInfoList) {
-				if(junitTestInfo.getStatus() == JUnitTestInfo.STATUS_SKIP) {
+			JUnitCursor<JUnitTestInfo> junitTests = junitDB.openTestsByClass(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName(), summary.getPackageName(), summary.getClassName(), JUnitTestInfo.STATUS_SKIP, JUnitTestInfo.STATUS_SKIP);
+			try {
+				for(JUnitTestInfo junitTestInfo: junitTests) {
 					CaseResult caseResult = new CaseResult(this, junitTestInfo);
 					result.add(caseResult);
 				}
 			}
+			finally {
+				junitTests.close();
+			}
 			return result;
 		}
 		catch(SQLException sE) {
@@ -216,13 +237,16 @@ public final class ClassResult extends TabulatedResult implements Comparable<Cla
 	public List<CaseResult> getPassedTests() {
 		try {
 			List<CaseResult> result = new ArrayList<CaseResult>();
-			List<JUnitTestInfo> junitTestInfoList = junitDB.queryTestsByClass(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName(), summary.getPackageName(), summary.getClassName());
-			for(JUnitTestInfo junitTestInfo: junitTestInfoList) {
-				if(junitTestInfo.getStatus() == JUnitTestInfo.STATUS_SUCCESS) {
+			JUnitCursor<JUnitTestInfo> junitTests = junitDB.openTestsByClass(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName(), summary.getPackageName(), summary.getClassName(), JUnitTestInfo.STATUS_SUCCESS, JUnitTestInfo.STATUS_SUCCESS);
+			try {
+				for(JUnitTestInfo junitTestInfo: junitTests) {
 					CaseResult caseResult = new CaseResult(this, junitTestInfo);
 					result.add(caseResult);
 				}
 			}
+			finally {
+				junitTests.close();
+			}
 			return result;
 		}
 		catch(SQLException sE) {
@@ -348,22 +372,7 @@ public final class ClassResult extends TabulatedResult implements Comparable<Cla
 
 	@Override
 	public int getFailedSince() {
-		if(failedSince == 0 && getFailCount() > 0) {
-			try {
-				List<JUnitSummaryInfo> history = junitDB.summarizeTestClassHistory(summary.getProjectName(), summary.getModuleName(), summary.getPackageName(), summary.getClassName(), 5000);
-				for(JUnitSummaryInfo junitSummaryInfo: history) {
-					int failedBuildNumber = junitSummaryInfo.getBuildNumber();
-					if(failedBuildNumber < getOwner().getNumber() && junitSummaryInfo.getFailCount() > 0) {
-						failedSince = failedBuildNumber;
-						break;
-					}
-				}
-			}
-			catch(SQLException sE) {
-				LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
-			}
-		}
-		return failedSince;
+		return summary.getFailedSince();
 	}
 
 	@Override
@@ -372,9 +381,10 @@ public final class ClassResult extends TabulatedResult implements Comparable<Cla
 	}
 
 	private JUnitSummaryInfo getPreviousSummary() {
-		if(previousSummary == null) {
+		if(!previousSummaryFetched) {
 			try {
 				previousSummary = junitDB.summarizeTestClassForBuildPriorTo(summary.getBuildNumber(), summary.getProjectName(), summary.getModuleName(), summary.getPackageName(), summary.getClassName());
+				previousSummaryFetched = true;
 			}
 			catch(SQLException sE) {
 				LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
@@ -424,7 +434,7 @@ public final class ClassResult extends TabulatedResult implements Comparable<Cla
 	public hudson.tasks.junit.History getHistory() {
 		History history = null;
 		if(historyReference == null || (history = historyReference.get()) == null) {
-			history = new History(this, 5000);
+			history = new History(this);
 			historyReference = new WeakReference<History>(history);
 			return history;
 		}
@@ -38,6 +38,7 @@ import hudson.util.StackedAreaRenderer2;
 import java.awt.Color;
 import java.awt.Paint;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -65,45 +66,22 @@ import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryInfo;
 public class History extends hudson.tasks.junit.History {
 	private static final Logger LOGGER = Logger.getLogger(History.class.getName());
 
+	/**
+	 * The number of builds shown on one page of history.
+	 */
+	public static final int PAGE_SIZE = 25;
+
 	private final TestObject testObject;
-	private List<JUnitSummaryInfo> historyItems;
+	private JUnitDB junitDB;
+	private String projectName;
 
-	public History(TestObject testObject, int limit) {
+	public History(TestObject testObject) {
 		super(null);
 		this.testObject = testObject;
 		try {
 			AbstractProject<?, ?> project = testObject.getOwner().getParent();
-			String projectName = project.getName();
-			JUnitDB junitDB = new JUnitDB(project.getRootDir().getAbsolutePath());
-			if(testObject instanceof ProjectResult) {
-				historyItems = junitDB.summarizeTestProjectHistory(projectName, limit);
-			}
-			else if(testObject instanceof ModuleResult) {
-				ModuleResult testResult = (ModuleResult)testObject;
-				String suiteName = testResult.getName();
-				historyItems = junitDB.fetchTestModuleSummaryHistory(projectName, suiteName, limit);
-			}
-			else if(testObject instanceof PackageResult) {
-				PackageResult packageResult = (PackageResult)testObject;
-				String suiteName = packageResult.getParent().getName();
-				String packageName = packageResult.getName();
-				historyItems = junitDB.summarizeTestPackageHistory(projectName, suiteName, packageName, limit);
-			}
-			else if(testObject instanceof ClassResult) {
-				ClassResult classResult = (ClassResult)testObject;
-				String className = classResult.getName();
-				String packageName = classResult.getParent().getName();
-				String suiteName = classResult.getParent().getParent().getName();
-				historyItems = junitDB.summarizeTestClassHistory(projectName, suiteName, packageName, className, limit);
-			}
-			else if(testObject instanceof CaseResult) {
-				CaseResult caseResult = (CaseResult)testObject;
-				String caseName = caseResult.getName();
-				String className = caseResult.getParent().getName();
-				String packageName = caseResult.getParent().getParent().getName();
-				String suiteName = caseResult.getParent().getParent().getParent().getName();
-				historyItems = junitDB.summarizeTestCaseHistory(projectName, suiteName, packageName, className, caseName, limit);
-			}
+			projectName = project.getName();
+			junitDB = JUnitDB.getInstance(project.getRootDir().getAbsolutePath());
 		}
 		catch(SQLException sE) {
 			LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
@@ -118,21 +96,166 @@ public class History extends hudson.tasks.junit.History {
 
 	@Override
 	public boolean historyAvailable() {
-		return historyItems != null && historyItems.size() > 1;
+		return getCount() > 1;
 	}
 
 	public int getCount() {
-		return historyItems.size();
+		int result = 0;
+		if(junitDB != null) {
+			try {
+				if(testObject instanceof ProjectResult) {
+					result = junitDB.countTestProjectHistory(projectName);
+				}
+				else if(testObject instanceof ModuleResult) {
+					ModuleResult testResult = (ModuleResult)testObject;
+					result = junitDB.countTestModuleHistory(projectName, testResult.getName());
+				}
+				else if(testObject instanceof PackageResult) {
+					PackageResult packageResult = (PackageResult)testObject;
+					result = junitDB.countTestPackageHistory(projectName, packageResult.getParent().getName(), packageResult.getName());
+				}
+				else if(testObject instanceof ClassResult) {
+					ClassResult classResult = (ClassResult)testObject;
+					result = junitDB.countTestClassHistory(projectName, classResult.getParent().getParent().getName(), classResult.getParent().getName(),
+							classResult.getName());
+				}
+				else if(testObject instanceof CaseResult) {
+					CaseResult caseResult = (CaseResult)testObject;
+					result = junitDB.countTestCaseHistory(projectName, caseResult.getParent().getParent().getParent().getName(), caseResult.getParent()
+							.getParent().getName(), caseResult.getParent().getName(), caseResult.getName());
+				}
+			}
+			catch(SQLException sE) {
+				LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the page of history made of the builds numbered below beforeBuildNumber, newest first. A value of zero or less selects the newest
+	 * page.
+	 */
+	public List<JUnitSummaryInfo> getItems(int beforeBuildNumber) {
+		return fetchItems(beforeBuildNumber, PAGE_SIZE);
+	}
+
+	/**
+	 * Returns the beforeBuildNumber of the page following the given one, or zero if the given page is the oldest.
+	 */
+	public int getOlderPageStart(int beforeBuildNumber) {
+		List<JUnitSummaryInfo> items = fetchItems(beforeBuildNumber, PAGE_SIZE + 1);
+		return items.size() > PAGE_SIZE ? items.get(PAGE_SIZE - 1).getBuildNumber() : 0;
 	}
 
-	public List<JUnitSummaryInfo> getItems(int startIndex, int endIndex) {
-		List<JUnitSummaryInfo> result = null;
-		if(historyItems != null) {
-			result = historyItems.subList(startIndex, historyItems.size() > endIndex ? endIndex : historyItems.size());
+	/**
+	 * Returns the beforeBuildNumber of the page preceding the given one, or zero if the given page is the newest.
+	 */
+	public int getNewerPageStart(int beforeBuildNumber) {
+		int result = 0;
+		if(beforeBuildNumber > 0 && beforeBuildNumber < Integer.MAX_VALUE) {
+			List<Integer> buildNumbers = fetchBuildNumbers(beforeBuildNumber, PAGE_SIZE);
+			if(!buildNumbers.isEmpty()) {
+				result = buildNumbers.get(buildNumbers.size() - 1) + 1;
+			}
+		}
+		return result;
+	}
+
+	private List<JUnitSummaryInfo> fetchItems(int beforeBuildNumber, int limit) {
+		List<JUnitSummaryInfo> result = Collections.emptyList();
+		if(junitDB != null) {
+			if(beforeBuildNumber <= 0) {
+				beforeBuildNumber = Integer.MAX_VALUE;
+			}
+			try {
+				if(testObject instanceof ProjectResult) {
+					result = junitDB.summarizeTestProjectHistory(projectName, beforeBuildNumber, limit);
+				}
+				else if(testObject instanceof ModuleResult) {
+					ModuleResult testResult = (ModuleResult)testObject;
+					String suiteName = testResult.getName();
+					result = junitDB.fetchTestModuleSummaryHistory(projectName, suiteName, beforeBuildNumber, limit);
+				}
+				else if(testObject instanceof PackageResult) {
+					PackageResult packageResult = (PackageResult)testObject;
+					String suiteName = packageResult.getParent().getName();
+					String packageName = packageResult.getName();
+					result = junitDB.summarizeTestPackageHistory(projectName, suiteName, packageName, beforeBuildNumber, limit);
+				}
+				else if(testObject instanceof ClassResult) {
+					ClassResult classResult = (ClassResult)testObject;
+					String className = classResult.getName();
+					String packageName = classResult.getParent().getName();
+					String suiteName = classResult.getParent().getParent().getName();
+					result = junitDB.summarizeTestClassHistory(projectName, suiteName, packageName, className, beforeBuildNumber, limit);
+				}
+				else if(testObject instanceof CaseResult) {
+					CaseResult caseResult = (CaseResult)testObject;
+					String caseName = caseResult.getName();
+					String className = caseResult.getParent().getName();
+					String packageName = caseResult.getParent().getParent().getName();
+					String suiteName = caseResult.getParent().getParent().getParent().getName();
+					result = junitDB.summarizeTestCaseHistory(projectName, suiteName, packageName, className, caseName, beforeBuildNumber, limit);
+				}
+			}
+			catch(SQLException sE) {
+				LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
+			}
+		}
+		return result;
+	}
+
+	private List<Integer> fetchBuildNumbers(int fromBuildNumber, int limit) {
+		List<Integer> result = Collections.emptyList();
+		if(junitDB != null) {
+			try {
+				if(testObject instanceof ProjectResult) {
+					result = junitDB.fetchTestProjectBuildNumbers(projectName, fromBuildNumber, limit);
+				}
+				else if(testObject instanceof ModuleResult) {
+					ModuleResult testResult = (ModuleResult)testObject;
+					result = junitDB.fetchTestModuleBuildNumbers(projectName, testResult.getName(), fromBuildNumber, limit);
+				}
+				else if(testObject instanceof PackageResult) {
+					PackageResult packageResult = (PackageResult)testObject;
+					result = junitDB.fetchTestPackageBuildNumbers(projectName, packageResult.getParent().getName(), packageResult.getName(), fromBuildNumber, limit);
+				}
+				else if(testObject instanceof ClassResult) {
+					ClassResult classResult = (ClassResult)testObject;
+					result = junitDB.fetchTestClassBuildNumbers(projectName, classResult.getParent().getParent().getName(), classResult.getParent().getName(),
+							classResult.getName(), fromBuildNumber, limit);
+				}
+				else if(testObject instanceof CaseResult) {
+					CaseResult caseResult = (CaseResult)testObject;
+					result = junitDB.fetchTestCaseBuildNumbers(projectName, caseResult.getParent().getParent().getParent().getName(), caseResult.getParent()
+							.getParent().getName(), caseResult.getParent().getName(), caseResult.getName(), fromBuildNumber, limit);
+				}
+			}
+			catch(SQLException sE) {
+				LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
+			}
 		}
 		return result;
 	}
 
+	/**
+	 * Returns the page requested by the before parameter of the current request; the graphs are drawn for the page the history view shows.
+	 */
+	private List<JUnitSummaryInfo> getRequestedItems() {
+		int beforeBuildNumber = 0;
+		try {
+			String before = Stapler.getCurrentRequest().getParameter("before");
+			if(before != null) {
+				beforeBuildNumber = Integer.parseInt(before);
+			}
+		}
+		catch(NumberFormatException nFE) {
+			LOGGER.log(Level.FINE, nFE.getMessage(), nFE);
+		}
+		return getItems(beforeBuildNumber);
+	}
+
 	/**
 	 * Graph of duration of tests over time.
 	 */
@@ -144,15 +267,7 @@ public class History extends hudson.tasks.junit.History {
 			protected DataSetBuilder<String, ChartLabel> createDataSet() {
 				DataSetBuilder<String, ChartLabel> data = new DataSetBuilder<String, ChartLabel>();
 
-				List<JUnitSummaryInfo> list;
-				try {
-					int startIndex = Integer.parseInt(Stapler.getCurrentRequest().getParameter("start"));
-					int endIndex = Integer.parseInt(Stapler.getCurrentRequest().getParameter("end"));
-					list = endIndex > historyItems.size() ? historyItems : historyItems.subList(startIndex, endIndex);
-				}
-				catch(NumberFormatException e) {
-					list = historyItems;
-				}
+				List<JUnitSummaryInfo> list = getRequestedItems();
 
 				final AbstractProject<?, ?> project = testObject.getOwner().getParent();
 				for(JUnitSummaryInfo summaryInfo: list) {
@@ -184,15 +299,7 @@ public class History extends hudson.tasks.junit.History {
 			protected DataSetBuilder<String, ChartLabel> createDataSet() {
 				DataSetBuilder<String, ChartLabel> data = new DataSetBuilder<String, ChartLabel>();
 
-				List<JUnitSummaryInfo> list;
-				try {
-					int startIndex = Integer.parseInt(Stapler.getCurrentRequest().getParameter("start"));
-					int endIndex = Integer.parseInt(Stapler.getCurrentRequest().getParameter("end"));
-					list = endIndex > historyItems.size() ? historyItems : historyItems.subList(startIndex, endIndex);
-				}
-				catch(NumberFormatException e) {
-					list = historyItems;
-				}
+				List<JUnitSummaryInfo> list = getRequestedItems();
 
 				final AbstractProject<?, ?> project = testObject.getOwner().getParent();
 				for(JUnitSummaryInfo summaryInfo: list) {
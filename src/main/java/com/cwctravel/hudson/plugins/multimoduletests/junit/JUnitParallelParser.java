@@ -0,0 +1,208 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit;
+
+import hudson.FilePath;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDB;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryCollector;
+
+/**
+ * Parses reports on a bounded pool of threads, each with a {@link JUnitParser} of its own since a parser holds the state of the document it is
+ * parsing. The test cases of each report are handed to the {@link JUnitTestWriter} by the calling thread, one report at a time and in the order the
+ * reports were given. At most two reports per thread are parsed ahead of the report being handed over, which bounds the test cases held in memory;
+ * the writer's queue in turn holds the calling thread back when the database falls behind.
+ */
+public class JUnitParallelParser {
+	private static final Logger LOGGER = Logger.getLogger(JUnitParallelParser.class.getName());
+
+	private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		public Thread newThread(Runnable runnable) {
+			Thread result = new Thread(runnable, "JUnitParser-" + threadCount.incrementAndGet());
+			result.setDaemon(true);
+			return result;
+		}
+	};
+
+	private final JUnitDB junitDB;
+	private final JUnitTestWriter junitTestWriter;
+	private final String parserEngineName;
+	private final int parallelism;
+
+	private final JUnitSummaryCollector summaryCollector;
+
+	public JUnitParallelParser(JUnitDB junitDB, JUnitTestWriter junitTestWriter, String parserEngineName, int parallelism) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		}
+		this.junitDB = junitDB;
+		this.junitTestWriter = junitTestWriter;
+		this.parserEngineName = parserEngineName;
+		this.parallelism = parallelism;
+		this.summaryCollector = new JUnitSummaryCollector();
+	}
+
+	public void parse(final int buildNumber, final String buildId, final String projectName, List<FilePath> xmlReports) throws SAXException,
+			ParserConfigurationException, IOException, SQLException, InterruptedException {
+		final List<JUnitParser> junitParsers = new ArrayList<JUnitParser>();
+		final ThreadLocal<JUnitParser> threadJUnitParser = new ThreadLocal<JUnitParser>() {
+			@Override
+			protected JUnitParser initialValue() {
+				JUnitParser result = new JUnitParser(junitDB, null, parserEngineName, false);
+				synchronized(junitParsers) {
+					junitParsers.add(result);
+				}
+				return result;
+			}
+		};
+
+		Deque<Future<JUnitTestBatch>> pendingBatches = new ArrayDeque<Future<JUnitTestBatch>>();
+		ExecutorService executorService = Executors.newFixedThreadPool(parallelism, THREAD_FACTORY);
+		try {
+			for(final FilePath xmlReport: xmlReports) {
+				pendingBatches.add(executorService.submit(new Callable<JUnitTestBatch>() {
+					public JUnitTestBatch call() throws Exception {
+						JUnitParser junitParser = threadJUnitParser.get();
+						try {
+							junitParser.parse(buildNumber, buildId, projectName, xmlReport);
+						}
+						catch(Exception e) {
+							// the test cases of a report that failed halfway are never written
+							junitParser.takeTestCases().release();
+							throw e;
+						}
+						return junitParser.takeTestCases();
+					}
+				}));
+
+				if(pendingBatches.size() > 2 * parallelism) {
+					junitTestWriter.write(getBatch(pendingBatches.poll()));
+				}
+			}
+
+			while(!pendingBatches.isEmpty()) {
+				junitTestWriter.write(getBatch(pendingBatches.poll()));
+			}
+		}
+		finally {
+			executorService.shutdownNow();
+			awaitTermination(executorService);
+			releaseBatches(pendingBatches);
+		}
+
+		synchronized(junitParsers) {
+			for(JUnitParser junitParser: junitParsers) {
+				summaryCollector.merge(junitParser.getSummaryCollector());
+			}
+		}
+	}
+
+	/**
+	 * Returns the project, module, package and class summaries of every test case parsed so far, by all threads.
+	 */
+	public JUnitSummaryCollector getSummaryCollector() {
+		return summaryCollector;
+	}
+
+	private JUnitTestBatch getBatch(Future<JUnitTestBatch> future) throws SAXException, ParserConfigurationException, IOException, SQLException,
+			InterruptedException {
+		try {
+			return future.get();
+		}
+		catch(ExecutionException eE) {
+			Throwable cause = eE.getCause();
+			if(cause instanceof SAXException) {
+				throw (SAXException)cause;
+			}
+			if(cause instanceof ParserConfigurationException) {
+				throw (ParserConfigurationException)cause;
+			}
+			if(cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+			if(cause instanceof SQLException) {
+				throw (SQLException)cause;
+			}
+			if(cause instanceof InterruptedException) {
+				throw (InterruptedException)cause;
+			}
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if(cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Waits for the threads of the pool to finish the reports they are parsing, so that no report is still being parsed when the caller stops the
+	 * writer. An interrupt does not cut the wait short; it is restored once the pool has terminated.
+	 */
+	private static void awaitTermination(ExecutorService executorService) {
+		boolean isInterrupted = false;
+		while(!executorService.isTerminated()) {
+			try {
+				if(!executorService.awaitTermination(1, TimeUnit.SECONDS)) {
+					LOGGER.fine("Waiting for the report parsers to stop");
+				}
+			}
+			catch(InterruptedException iE) {
+				isInterrupted = true;
+			}
+		}
+		if(isInterrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Cancels the reports still waiting to be parsed after a failure and releases the output of those already parsed. Must only be called once the
+	 * pool has terminated.
+	 */
+	private void releaseBatches(Deque<Future<JUnitTestBatch>> pendingBatches) {
+		for(Future<JUnitTestBatch> future: pendingBatches) {
+			if(!future.cancel(true)) {
+				try {
+					future.get().release();
+				}
+				catch(CancellationException cE) {
+					// the report was never parsed
+				}
+				catch(ExecutionException eE) {
+					// only the first failure is reported
+				}
+				catch(InterruptedException iE) {
+					Thread.currentThread().interrupt();
+				}
+				catch(IOException iE) {
+					LOGGER.log(Level.SEVERE, iE.getMessage(), iE);
+				}
+			}
+		}
+		pendingBatches.clear();
+	}
+}
@@ -9,26 +9,24 @@ import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 
 import org.apache.commons.lang.StringUtils;
 import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
-import org.xml.sax.InputSource;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDB;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryCollector;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestDetailInfo;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestInfo;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.io.IOUtil;
@@ -53,11 +51,43 @@ public class JUnitParser implements ContentHandler {
 	private static final int STATE_TEST_SUITE_TEST_CASE_ERROR_START = 13;
 	private static final int STATE_IGNORED = 14;
 
-	private static final SimpleDateFormat JUNIT_DATE_FORMAT = new SimpleDateFormat("yyyy-mm-dd'T'hh:MM:ss");
+	private static final int ELEMENT_OTHER = 0;
+	private static final int ELEMENT_TEST_SUITES = 1;
+	private static final int ELEMENT_TEST_SUITE = 2;
+	private static final int ELEMENT_TEST_CASE = 3;
+	private static final int ELEMENT_ERROR = 4;
+	private static final int ELEMENT_FAILURE = 5;
+	private static final int ELEMENT_SKIPPED = 6;
+	private static final int ELEMENT_SYSTEM_OUT = 7;
+	private static final int ELEMENT_SYSTEM_ERR = 8;
+
+	private static final Map<String, Integer> ELEMENTS = new HashMap<String, Integer>();
+
+	static {
+		ELEMENTS.put("testsuites", ELEMENT_TEST_SUITES);
+		ELEMENTS.put("testsuite", ELEMENT_TEST_SUITE);
+		ELEMENTS.put("testcase", ELEMENT_TEST_CASE);
+		ELEMENTS.put("error", ELEMENT_ERROR);
+		ELEMENTS.put("failure", ELEMENT_FAILURE);
+		ELEMENTS.put("skipped", ELEMENT_SKIPPED);
+		ELEMENTS.put("system-out", ELEMENT_SYSTEM_OUT);
+		ELEMENTS.put("system-err", ELEMENT_SYSTEM_ERR);
+	}
 
 	private final JUnitDB junitDB;
 
-	private Deque<Integer> stateStack;
+	private final JUnitTestWriter junitTestWriter;
+
+	private final int flushSize;
+
+	private final boolean isFlushing;
+
+	private final SimpleDateFormat junitDateFormat = new SimpleDateFormat("yyyy-mm-dd'T'hh:MM:ss");
+
+	private final JUnitParserEngine parserEngine;
+
+	private int[] stateStack = new int[16];
+	private int stateStackSize;
 
 	private int buildNumber;
 	private String buildId;
@@ -73,7 +103,8 @@ public class JUnitParser implements ContentHandler {
 
 	private String currentSuiteName;
 	private String currentSuiteErrorMessage;
-	private String currentSuiteErrorStackTrace;
+
+	private final StringBuilder currentSuiteErrorStackTrace = new StringBuilder();
 
 	private ReaderWriter currentSuiteStdout;
 	private ReaderWriter currentSuiteStderr;
@@ -82,65 +113,159 @@ public class JUnitParser implements ContentHandler {
 
 	private long currentTestCaseDuration;
 
+	private String currentTestQualifiedClassName;
 	private String currentTestPackageName;
 	private String currentTestClassName;
 	private String currentTestCaseName;
 	private String currentTestCaseErrorMessage;
-	private String currentTestCaseErrorStackTrace;
+
+	private final StringBuilder currentTestCaseErrorStackTrace = new StringBuilder();
 
 	private ReaderWriter currentTestCaseStdout;
 	private ReaderWriter currentTestCaseStderr;
 
-	private List<JUnitTestInfo> junitTestCases;
-	private List<ReaderWriter> readerWriters;
+	private final List<JUnitTestInfo> junitTestCases;
+	private final List<ReaderWriter> readerWriters;
+
+	private final JUnitSummaryCollector summaryCollector;
+
+	private long junitTestCasesLength;
 
 	public JUnitParser(JUnitDB junitDB) {
+		this(junitDB, null);
+	}
+
+	/**
+	 * Creates a parser that hands the test cases it parses to the given writer, in batches of the database's insert batch size, instead of writing
+	 * them to the database itself. The writer may be null.
+	 */
+	public JUnitParser(JUnitDB junitDB, JUnitTestWriter junitTestWriter) {
+		this(junitDB, junitTestWriter, null);
+	}
+
+	/**
+	 * Creates a parser that reads reports with the named {@link JUnitParserEngine}, or with the SAX engine if the name is null or unknown.
+	 */
+	public JUnitParser(JUnitDB junitDB, JUnitTestWriter junitTestWriter, String parserEngineName) {
+		this(junitDB, junitTestWriter, parserEngineName, true);
+	}
+
+	/**
+	 * Creates a parser that, unless it is flushing, keeps every test case it parses until they are taken with {@link #takeTestCases()}.
+	 */
+	JUnitParser(JUnitDB junitDB, JUnitTestWriter junitTestWriter, String parserEngineName, boolean isFlushing) {
 		this.junitDB = junitDB;
+		this.junitTestWriter = junitTestWriter;
+		this.parserEngine = JUnitParserEngine.STAX.equals(parserEngineName) ? new JUnitStaxParserEngine() : new JUnitSaxParserEngine();
+		this.flushSize = junitTestWriter != null ? junitDB.getInsertBatchSize() : junitDB.getInsertCommitSize();
+		this.isFlushing = isFlushing;
+		this.junitTestCases = new ArrayList<JUnitTestInfo>();
+		this.readerWriters = new ArrayList<ReaderWriter>();
+		this.summaryCollector = new JUnitSummaryCollector();
 	}
 
-	public void parse(int buildNumber, String buildId, String projectName, FilePath xmlReport) throws SAXException, ParserConfigurationException, IOException, SQLException {
+	/**
+	 * Parses a report. If the test cases parsed can not be written, parsing stops and the failure is thrown as it was raised by the database or the
+	 * writer.
+	 */
+	public void parse(int buildNumber, String buildId, String projectName, FilePath xmlReport) throws SAXException, ParserConfigurationException, IOException, SQLException,
+			InterruptedException {
 		this.buildNumber = buildNumber;
 		this.buildId = buildId;
 		this.projectName = projectName;
 
-		this.junitTestCases = new ArrayList<JUnitTestInfo>();
-		this.stateStack = new ArrayDeque<Integer>();
-		this.readerWriters = new ArrayList<ReaderWriter>();
+		this.stateStackSize = 0;
+		clearDocumentState();
 
 		this.reportFileName = xmlReport.getRemote();
 
-		SAXParserFactory spf = SAXParserFactory.newInstance();
-		spf.setNamespaceAware(false);
-		SAXParser saxParser = spf.newSAXParser();
-		XMLReader xmlReader = saxParser.getXMLReader();
-		xmlReader.setContentHandler(this);
+		InputStream iS = xmlReport.read();
 		try {
-			InputStream iS = xmlReport.read();
-			try {
-				xmlReader.parse(new InputSource(iS));
-				persistTestCases();
+			parserEngine.parse(iS, this);
+		}
+		catch(SAXException sAE) {
+			Exception cause = sAE.getException();
+			if(cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+			if(cause instanceof SQLException) {
+				throw (SQLException)cause;
 			}
-			finally {
-				iS.close();
+			if(cause instanceof InterruptedException) {
+				throw (InterruptedException)cause;
 			}
+			throw sAE;
 		}
-		catch(InterruptedException iE) {
-			LOGGER.log(Level.SEVERE, iE.getMessage(), iE);
+		finally {
+			iS.close();
 		}
 	}
 
+	/**
+	 * Writes the test cases still buffered by this parser to the database, or hands them to its writer. Test cases are buffered across reports so
+	 * that they reach the database in large batches; callers must flush once the last report has been parsed.
+	 */
+	public void flush() throws IOException, SQLException, InterruptedException {
+		persistTestCases();
+	}
+
+	/**
+	 * Forgets the suite and test case last parsed, so that nothing carries over from one report to the next and a report is read the same whichever
+	 * parser reads it.
+	 */
+	private void clearDocumentState() {
+		currentSuiteStatus = JUnitTestInfo.STATUS_SUCCESS;
+		currentSuiteTestCaseIndex = 0;
+		currentSuiteDuration = 0;
+		currentSuiteTimestamp = 0;
+		currentSuiteName = null;
+		currentSuiteErrorMessage = null;
+		currentSuiteErrorStackTrace.setLength(0);
+		currentSuiteStdout = null;
+		currentSuiteStderr = null;
+
+		currentTestCaseStatus = JUnitTestInfo.STATUS_SUCCESS;
+		currentTestCaseDuration = 0;
+		currentTestQualifiedClassName = null;
+		currentTestPackageName = null;
+		currentTestClassName = null;
+		currentTestCaseName = null;
+		currentTestCaseErrorMessage = null;
+		currentTestCaseErrorStackTrace.setLength(0);
+		currentTestCaseStdout = null;
+		currentTestCaseStderr = null;
+	}
+
+	/**
+	 * Removes the test cases buffered by this parser and returns them, for the caller to write or release.
+	 */
+	JUnitTestBatch takeTestCases() {
+		JUnitTestBatch result = new JUnitTestBatch(new ArrayList<JUnitTestInfo>(junitTestCases), new ArrayList<ReaderWriter>(readerWriters));
+		junitTestCases.clear();
+		readerWriters.clear();
+		junitTestCasesLength = 0;
+		return result;
+	}
+
+	/**
+	 * Returns the running project, module, package and class summaries of every test case parsed so far.
+	 */
+	public JUnitSummaryCollector getSummaryCollector() {
+		return summaryCollector;
+	}
+
 	public void setDocumentLocator(Locator locator) {
 		// TODO Auto-generated method stub
 
 	}
 
 	public void startDocument() throws SAXException {
-		stateStack.push(STATE_DOCUMENT_START);
+		pushState(STATE_DOCUMENT_START);
 
 	}
 
 	public void endDocument() throws SAXException {
-		stateStack.pop();
+		popState();
 	}
 
 	public void startPrefixMapping(String prefix, String uri) throws SAXException {
@@ -154,12 +279,13 @@ public class JUnitParser implements ContentHandler {
 	}
 
 	public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
-		Integer currentState = stateStack.peek();
-		if(currentState == STATE_DOCUMENT_START && "testsuites".equals(qName)) {
-			stateStack.push(STATE_TEST_SUITES_START);
+		int currentState = peekState();
+		int element = getElement(qName);
+		if(currentState == STATE_DOCUMENT_START && element == ELEMENT_TEST_SUITES) {
+			pushState(STATE_TEST_SUITES_START);
 		}
-		else if((currentState == STATE_DOCUMENT_START || currentState == STATE_TEST_SUITES_START) && "testsuite".equals(qName)) {
-			stateStack.push(STATE_TEST_SUITE_START);
+		else if((currentState == STATE_DOCUMENT_START || currentState == STATE_TEST_SUITES_START) && element == ELEMENT_TEST_SUITE) {
+			pushState(STATE_TEST_SUITE_START);
 			currentSuiteName = atts.getValue("name");
 			if(currentSuiteName == null) {
 				currentSuiteName = '(' + reportFileName + ')';
@@ -174,102 +300,107 @@ public class JUnitParser implements ContentHandler {
 			currentSuiteTimestamp = parseDate(atts.getValue("timestamp"));
 			currentSuiteDuration = parseTime(atts.getValue("time"));
 		}
-		else if(currentState == STATE_TEST_SUITE_START && "error".equals(qName)) {
+		else if(currentState == STATE_TEST_SUITE_START && element == ELEMENT_ERROR) {
 			currentSuiteErrorMessage = atts.getValue("message");
 			currentSuiteStatus = JUnitTestInfo.STATUS_ERROR;
-			currentSuiteErrorStackTrace = null;
+			currentSuiteErrorStackTrace.setLength(0);
 
-			stateStack.push(STATE_TEST_SUITE_ERROR_START);
+			pushState(STATE_TEST_SUITE_ERROR_START);
 		}
-		else if(currentState == STATE_TEST_SUITE_START && "failure".equals(qName)) {
+		else if(currentState == STATE_TEST_SUITE_START && element == ELEMENT_FAILURE) {
 			currentSuiteErrorMessage = atts.getValue("message");
 			currentSuiteStatus = JUnitTestInfo.STATUS_FAIL;
-			stateStack.push(STATE_TEST_SUITE_FAILURE_START);
+			pushState(STATE_TEST_SUITE_FAILURE_START);
 		}
-		else if(currentState == STATE_TEST_SUITE_START && "skipped".equals(qName)) {
+		else if(currentState == STATE_TEST_SUITE_START && element == ELEMENT_SKIPPED) {
 			currentSuiteStatus = JUnitTestInfo.STATUS_SKIP;
-			stateStack.push(STATE_TEST_SUITE_SKIP_START);
+			pushState(STATE_TEST_SUITE_SKIP_START);
 		}
-		else if(currentState == STATE_TEST_SUITE_START && "system-out".equals(qName)) {
+		else if(currentState == STATE_TEST_SUITE_START && element == ELEMENT_SYSTEM_OUT) {
 			currentSuiteStdout = null;
-			stateStack.push(STATE_TEST_SUITE_SYSOUT_START);
+			pushState(STATE_TEST_SUITE_SYSOUT_START);
 		}
-		else if(currentState == STATE_TEST_SUITE_START && "system-err".equals(qName)) {
+		else if(currentState == STATE_TEST_SUITE_START && element == ELEMENT_SYSTEM_ERR) {
 			currentSuiteStderr = null;
-			stateStack.push(STATE_TEST_SUITE_SYSERR_START);
+			pushState(STATE_TEST_SUITE_SYSERR_START);
 		}
-		else if(currentState == STATE_TEST_SUITE_START && "testcase".equals(qName)) {
+		else if(currentState == STATE_TEST_SUITE_START && element == ELEMENT_TEST_CASE) {
 			currentTestCaseStatus = JUnitTestInfo.STATUS_SUCCESS;
-			currentTestClassName = atts.getValue("classname");
+			currentTestCaseErrorMessage = null;
+			currentTestCaseErrorStackTrace.setLength(0);
+			String qualifiedClassName = atts.getValue("classname");
 			currentTestCaseName = atts.getValue("name");
-			if(currentTestClassName == null && currentTestCaseName != null) {
+			if(qualifiedClassName == null && currentTestCaseName != null) {
 				int indexOfDot = currentTestCaseName.lastIndexOf('.');
 				if(indexOfDot >= 0) {
-					currentTestClassName = currentTestCaseName.substring(0, indexOfDot);
+					qualifiedClassName = currentTestCaseName.substring(0, indexOfDot);
 					currentTestCaseName = currentTestCaseName.substring(indexOfDot + 1);
 				}
 			}
-			if(currentTestClassName != null) {
-				int indexOfDot = currentTestClassName.lastIndexOf('.');
-				if(indexOfDot >= 0) {
-					currentTestPackageName = currentTestClassName.substring(0, indexOfDot);
-					currentTestClassName = currentTestClassName.substring(indexOfDot + 1);
-				}
-			}
+			setTestClassName(qualifiedClassName);
 			currentTestCaseDuration = parseTime(atts.getValue("time"));
-			stateStack.push(STATE_TEST_SUITE_TEST_CASE_START);
+			pushState(STATE_TEST_SUITE_TEST_CASE_START);
 
 		}
-		else if(currentState == STATE_TEST_SUITE_TEST_CASE_START && "error".equals(qName)) {
+		else if(currentState == STATE_TEST_SUITE_TEST_CASE_START && element == ELEMENT_ERROR) {
 			currentTestCaseErrorMessage = atts.getValue("message");
 			currentTestCaseStatus = JUnitTestInfo.STATUS_ERROR;
-			currentTestCaseErrorStackTrace = null;
+			currentTestCaseErrorStackTrace.setLength(0);
 
-			stateStack.push(STATE_TEST_SUITE_TEST_CASE_ERROR_START);
+			pushState(STATE_TEST_SUITE_TEST_CASE_ERROR_START);
 		}
-		else if(currentState == STATE_TEST_SUITE_TEST_CASE_START && "failure".equals(qName)) {
+		else if(currentState == STATE_TEST_SUITE_TEST_CASE_START && element == ELEMENT_FAILURE) {
 			currentTestCaseErrorMessage = atts.getValue("message");
 			currentTestCaseStatus = JUnitTestInfo.STATUS_FAIL;
-			currentSuiteErrorStackTrace = null;
+			currentTestCaseErrorStackTrace.setLength(0);
 
-			stateStack.push(STATE_TEST_SUITE_TEST_CASE_FAILURE_START);
+			pushState(STATE_TEST_SUITE_TEST_CASE_FAILURE_START);
 		}
-		else if(currentState == STATE_TEST_SUITE_TEST_CASE_START && "skipped".equals(qName)) {
+		else if(currentState == STATE_TEST_SUITE_TEST_CASE_START && element == ELEMENT_SKIPPED) {
 			currentTestCaseStatus = JUnitTestInfo.STATUS_SKIP;
-			stateStack.push(STATE_TEST_SUITE_TEST_CASE_SKIP_START);
+			pushState(STATE_TEST_SUITE_TEST_CASE_SKIP_START);
 		}
-		else if(currentState == STATE_TEST_SUITE_TEST_CASE_START && "system-out".equals(qName)) {
+		else if(currentState == STATE_TEST_SUITE_TEST_CASE_START && element == ELEMENT_SYSTEM_OUT) {
 			currentTestCaseStdout = null;
-			stateStack.push(STATE_TEST_SUITE_TEST_CASE_SYSOUT_START);
+			pushState(STATE_TEST_SUITE_TEST_CASE_SYSOUT_START);
 		}
-		else if(currentState == STATE_TEST_SUITE_TEST_CASE_START && "system-err".equals(qName)) {
+		else if(currentState == STATE_TEST_SUITE_TEST_CASE_START && element == ELEMENT_SYSTEM_ERR) {
 			currentTestCaseStderr = null;
-			stateStack.push(STATE_TEST_SUITE_TEST_CASE_SYSERR_START);
+			pushState(STATE_TEST_SUITE_TEST_CASE_SYSERR_START);
 		}
 		else {
-			stateStack.push(STATE_IGNORED);
+			pushState(STATE_IGNORED);
 		}
 
 	}
 
-	public void characters(char[] ch, int start, int length) throws SAXException {
-		Integer currentState = stateStack.peek();
-		if(currentState == STATE_TEST_SUITE_ERROR_START || currentState == STATE_TEST_SUITE_FAILURE_START) {
-			if(currentSuiteErrorStackTrace == null) {
-				currentSuiteErrorStackTrace = new String(ch, start, length);
-			}
-			else {
-				currentSuiteErrorStackTrace += new String(ch, start, length);
+	/**
+	 * Splits the qualified class name of a test case into its package and class names. Consecutive test cases of a suite usually share their class,
+	 * in which case the names split for the previous test case are reused.
+	 */
+	private void setTestClassName(String qualifiedClassName) {
+		if(qualifiedClassName == null) {
+			currentTestQualifiedClassName = null;
+			currentTestClassName = null;
+		}
+		else if(!qualifiedClassName.equals(currentTestQualifiedClassName)) {
+			currentTestQualifiedClassName = qualifiedClassName;
+			currentTestClassName = qualifiedClassName;
+			int indexOfDot = qualifiedClassName.lastIndexOf('.');
+			if(indexOfDot >= 0) {
+				currentTestPackageName = qualifiedClassName.substring(0, indexOfDot);
+				currentTestClassName = qualifiedClassName.substring(indexOfDot + 1);
 			}
+		}
+	}
 
+	public void characters(char[] ch, int start, int length) throws SAXException {
+		int currentState = peekState();
+		if(currentState == STATE_TEST_SUITE_ERROR_START || currentState == STATE_TEST_SUITE_FAILURE_START) {
+			currentSuiteErrorStackTrace.append(ch, start, length);
 		}
 		else if(currentState == STATE_TEST_SUITE_TEST_CASE_ERROR_START || currentState == STATE_TEST_SUITE_TEST_CASE_FAILURE_START) {
-			if(currentTestCaseErrorStackTrace == null) {
-				currentTestCaseErrorStackTrace = new String(ch, start, length);
-			}
-			else {
-				currentTestCaseErrorStackTrace += new String(ch, start, length);
-			}
+			currentTestCaseErrorStackTrace.append(ch, start, length);
 		}
 		else if(currentState == STATE_TEST_SUITE_SYSOUT_START) {
 			try {
@@ -327,29 +458,63 @@ public class JUnitParser implements ContentHandler {
 	}
 
 	public void endElement(String uri, String localName, String qName) throws SAXException {
-		Integer currentState = stateStack.peek();
-		if(currentState == STATE_TEST_SUITE_START && "testsuite".equals(qName)) {
-			insertTestCase(buildId, buildNumber, projectName, currentSuiteName, "<init>", "<init>", "<init>", currentSuiteTestCaseIndex, currentSuiteStatus, currentSuiteTimestamp, currentSuiteDuration, currentSuiteErrorMessage, currentSuiteErrorStackTrace, currentSuiteStdout, currentSuiteStderr);
+		int currentState = peekState();
+		if(currentState == STATE_TEST_SUITE_START) {
+			insertTestCase(buildId, buildNumber, projectName, currentSuiteName, "<init>", "<init>", "<init>", currentSuiteTestCaseIndex, currentSuiteStatus, currentSuiteTimestamp, currentSuiteDuration, currentSuiteErrorMessage, getText(currentSuiteErrorStackTrace), currentSuiteStdout, currentSuiteStderr);
 			currentSuiteTestCaseIndex = 0;
 			currentSuiteStdout = null;
 			currentSuiteStderr = null;
-			currentSuiteErrorStackTrace = null;
+			currentSuiteErrorStackTrace.setLength(0);
 		}
-		else if(currentState == STATE_TEST_SUITE_TEST_CASE_START && "testcase".equals(qName)) {
-			insertTestCase(buildId, buildNumber, projectName, currentSuiteName, currentTestPackageName, currentTestClassName, currentTestCaseName, currentSuiteTestCaseIndex++, currentTestCaseStatus, currentSuiteTimestamp, currentTestCaseDuration, currentTestCaseErrorMessage, currentTestCaseErrorStackTrace, currentTestCaseStdout, currentTestCaseStderr);
+		else if(currentState == STATE_TEST_SUITE_TEST_CASE_START) {
+			insertTestCase(buildId, buildNumber, projectName, currentSuiteName, currentTestPackageName, currentTestClassName, currentTestCaseName, currentSuiteTestCaseIndex++, currentTestCaseStatus, currentSuiteTimestamp, currentTestCaseDuration, currentTestCaseErrorMessage, getText(currentTestCaseErrorStackTrace), currentTestCaseStdout, currentTestCaseStderr);
 			currentTestCaseStdout = null;
 			currentTestCaseStderr = null;
-			currentTestCaseErrorStackTrace = null;
+			currentTestCaseErrorStackTrace.setLength(0);
 
 		}
 
-		stateStack.pop();
+		popState();
+	}
+
+	/**
+	 * Returns true if the element last started is ignored, along with everything inside it, so that an engine may skip it.
+	 */
+	boolean isIgnoring() {
+		return peekState() == STATE_IGNORED;
+	}
+
+	private void pushState(int state) {
+		if(stateStackSize == stateStack.length) {
+			stateStack = Arrays.copyOf(stateStack, 2 * stateStackSize);
+		}
+		stateStack[stateStackSize++] = state;
+	}
+
+	private int peekState() {
+		return stateStack[stateStackSize - 1];
+	}
+
+	private void popState() {
+		stateStackSize--;
+	}
+
+	private static int getElement(String qName) {
+		Integer element = ELEMENTS.get(qName);
+		return element == null ? ELEMENT_OTHER : element;
+	}
+
+	/**
+	 * Returns the text accumulated in the given buffer, or null if none was.
+	 */
+	private static String getText(StringBuilder text) {
+		return text.length() == 0 ? null : text.toString();
 	}
 
 	private long parseDate(String value) {
 		try {
 			if(!StringUtils.isBlank(value)) {
-				return JUNIT_DATE_FORMAT.parse(value).getTime();
+				return junitDateFormat.parse(value).getTime();
 			}
 
 		}
@@ -361,7 +526,9 @@ public class JUnitParser implements ContentHandler {
 
 	private long parseTime(String value) {
 		if(value != null) {
-			value = value.replace(",", "");
+			if(value.indexOf(',') >= 0) {
+				value = value.replace(",", "");
+			}
 			try {
 				return (long)(Float.parseFloat(value) * 1000);
 			}
@@ -379,7 +546,7 @@ public class JUnitParser implements ContentHandler {
 
 	private void insertTestCase(String buildId, int buildNumber, String projectName, String suiteName, String packageName, String className,
 			String caseName, int index, int status, long startTime, long duration, String errorMessage, String errorStackTrace, ReaderWriter stdout,
-			ReaderWriter stderr) {
+			ReaderWriter stderr) throws SAXException {
 		JUnitTestInfo junitTestInfo = new JUnitTestInfo();
 		junitTestInfo.setBuildId(buildId);
 		junitTestInfo.setBuildNumber(buildNumber);
@@ -393,38 +560,34 @@ public class JUnitParser implements ContentHandler {
 		junitTestInfo.setStartTime(startTime);
 		junitTestInfo.setDuration(duration);
 
-		try {
-			JUnitTestDetailInfo junitTestDetailInfo = new JUnitTestDetailInfo();
-			junitTestDetailInfo.setErrorMessage(errorMessage);
-			junitTestDetailInfo.setErrorStackTrace(errorStackTrace);
+		// most test cases pass without output and need no detail
+		if(errorMessage != null || errorStackTrace != null || stdout != null || stderr != null) {
+			try {
+				JUnitTestDetailInfo junitTestDetailInfo = new JUnitTestDetailInfo();
+				junitTestDetailInfo.setErrorMessage(errorMessage);
+				junitTestDetailInfo.setErrorStackTrace(errorStackTrace);
+
+				if(stdout != null) {
+					junitTestDetailInfo.setStdout(stdout.getReader());
+					junitTestDetailInfo.setStdoutLength(stdout.getLength());
+					junitTestCasesLength += stdout.getLength();
+				}
 
-			if(stdout != null) {
-				junitTestDetailInfo.setStdout(stdout.getReader());
-			}
+				if(stderr != null) {
+					junitTestDetailInfo.setStderr(stderr.getReader());
+					junitTestDetailInfo.setStderrLength(stderr.getLength());
+					junitTestCasesLength += stderr.getLength();
+				}
 
-			if(stderr != null) {
-				junitTestDetailInfo.setStderr(stderr.getReader());
-			}
-
-			junitTestInfo.setDetail(junitTestDetailInfo);
-		}
-		catch(IOException iE) {
-			LOGGER.log(Level.SEVERE, iE.getMessage(), iE);
-		}
-
-		if(junitTestCases.size() > 100) {
-			try {
-				persistTestCases();
+				junitTestInfo.setDetail(junitTestDetailInfo);
 			}
 			catch(IOException iE) {
 				LOGGER.log(Level.SEVERE, iE.getMessage(), iE);
 			}
-			catch(SQLException sE) {
-				LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
-			}
 		}
 
 		junitTestCases.add(junitTestInfo);
+		summaryCollector.add(junitTestInfo);
 		if(stdout != null) {
 			readerWriters.add(stdout);
 		}
@@ -432,25 +595,30 @@ public class JUnitParser implements ContentHandler {
 			readerWriters.add(stderr);
 		}
 
-	}
-
-	private void persistTestCases() throws IOException, SQLException {
-		try {
-			junitDB.insertTests(junitTestCases);
-		}
-		finally {
-			junitTestCases.clear();
+		if(isFlushing && (junitTestCases.size() >= flushSize || junitTestCasesLength >= junitDB.getInsertBatchMaxLength())) {
+			// the parser engine only lets SAXExceptions through, parse() unwraps them
+			try {
+				persistTestCases();
+			}
+			catch(IOException iE) {
+				throw new SAXException(iE);
+			}
+			catch(SQLException sE) {
+				throw new SAXException(sE);
+			}
+			catch(InterruptedException iE) {
+				throw new SAXException(iE);
+			}
 		}
+	}
 
-		try {
-			for(ReaderWriter readerWriter: readerWriters) {
-				readerWriter.release();
-			}
+	private void persistTestCases() throws IOException, SQLException, InterruptedException {
+		if(junitTestWriter != null) {
+			junitTestWriter.write(takeTestCases());
 		}
-		finally {
-			readerWriters.clear();
+		else {
+			takeTestCases().write(junitDB);
 		}
-
 	}
 
 	public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
@@ -464,11 +632,12 @@ public class JUnitParser implements ContentHandler {
 	}
 
 	/*public static void main(String[] args) throws Exception {
-		JUnitDB junitDB = new JUnitDB("D:/Temp");
+		JUnitDB junitDB = JUnitDB.getInstance("D:/Temp");
 
 		// "D:/TEST-com.cwctravel.test.AllTests.xml" == true;
 
 		JUnitParser junitParser = new JUnitParser(junitDB);
 		junitParser.parse(0, "test-build-id", "test-project", new File("D:/logs/TEST-com.cwctravel.test.AllTests.xml"));
+		junitParser.flush();
 	}*/
 }
@@ -0,0 +1,26 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Reads a report and hands its elements and text to a {@link JUnitParser}, as SAX events. An engine is used by one parser at a time and may keep
+ * state from one report to the next.
+ */
+public interface JUnitParserEngine {
+	/**
+	 * The name of the engine reading reports with a SAX parser, used when none is configured.
+	 */
+	public static final String SAX = "SAX";
+
+	/**
+	 * The name of the engine reading reports with a StAX stream reader.
+	 */
+	public static final String STAX = "STAX";
+
+	public void parse(InputStream iS, JUnitParser junitParser) throws SAXException, ParserConfigurationException, IOException;
+}
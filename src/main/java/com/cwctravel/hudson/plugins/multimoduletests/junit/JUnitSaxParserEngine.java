@@ -0,0 +1,35 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Reads reports with a SAX parser, which reports every element to the {@link JUnitParser}, including those it ignores. The parser is created once,
+ * from a shared factory, and reused for every report.
+ */
+public class JUnitSaxParserEngine implements JUnitParserEngine {
+	private static final SAXParserFactory SAX_PARSER_FACTORY = SAXParserFactory.newInstance();
+
+	static {
+		SAX_PARSER_FACTORY.setNamespaceAware(false);
+	}
+
+	private XMLReader xmlReader;
+
+	public void parse(InputStream iS, JUnitParser junitParser) throws SAXException, ParserConfigurationException, IOException {
+		if(xmlReader == null) {
+			synchronized(SAX_PARSER_FACTORY) {
+				xmlReader = SAX_PARSER_FACTORY.newSAXParser().getXMLReader();
+			}
+		}
+		xmlReader.setContentHandler(junitParser);
+		xmlReader.parse(new InputSource(iS));
+	}
+}
@@ -0,0 +1,164 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * Reads reports with a StAX stream reader, pulling events and passing them on to the {@link JUnitParser}. Elements the parser ignores, such as a
+ * suite's properties, are skipped along with everything inside them without being reported. Readers are created from a shared factory.
+ */
+public class JUnitStaxParserEngine implements JUnitParserEngine {
+	private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+	static {
+		XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+		XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+	}
+
+	private final StreamAttributes attributes = new StreamAttributes();
+
+	public void parse(InputStream iS, JUnitParser junitParser) throws SAXException, IOException {
+		try {
+			XMLStreamReader xmlStreamReader;
+			synchronized(XML_INPUT_FACTORY) {
+				xmlStreamReader = XML_INPUT_FACTORY.createXMLStreamReader(iS);
+			}
+			try {
+				attributes.xmlStreamReader = xmlStreamReader;
+				parse(xmlStreamReader, junitParser);
+			}
+			finally {
+				attributes.xmlStreamReader = null;
+				xmlStreamReader.close();
+			}
+		}
+		catch(XMLStreamException xSE) {
+			throw new SAXException(xSE.getMessage(), xSE);
+		}
+	}
+
+	private void parse(XMLStreamReader xmlStreamReader, JUnitParser junitParser) throws SAXException, XMLStreamException {
+		junitParser.startDocument();
+		while(xmlStreamReader.hasNext()) {
+			int event = xmlStreamReader.next();
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				String localName = xmlStreamReader.getLocalName();
+				String qName = getQName(xmlStreamReader.getPrefix(), localName);
+				junitParser.startElement(null, localName, qName, attributes);
+				if(junitParser.isIgnoring()) {
+					skipElement(xmlStreamReader);
+					junitParser.endElement(null, localName, qName);
+				}
+			}
+			else if(event == XMLStreamConstants.END_ELEMENT) {
+				String localName = xmlStreamReader.getLocalName();
+				junitParser.endElement(null, localName, getQName(xmlStreamReader.getPrefix(), localName));
+			}
+			else if(event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+				junitParser.characters(xmlStreamReader.getTextCharacters(), xmlStreamReader.getTextStart(), xmlStreamReader.getTextLength());
+			}
+		}
+		junitParser.endDocument();
+	}
+
+	/**
+	 * Moves the reader past the end of the element it is at the start of.
+	 */
+	private static void skipElement(XMLStreamReader xmlStreamReader) throws XMLStreamException {
+		int depth = 1;
+		while(depth > 0) {
+			int event = xmlStreamReader.next();
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			}
+			else if(event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	private static String getQName(String prefix, String localName) {
+		if(prefix == null || prefix.length() == 0) {
+			return localName;
+		}
+		return prefix + ':' + localName;
+	}
+
+	/**
+	 * The attributes of the element the reader is at, as SAX attributes.
+	 */
+	private static final class StreamAttributes implements Attributes {
+		private XMLStreamReader xmlStreamReader;
+
+		public int getLength() {
+			return xmlStreamReader.getAttributeCount();
+		}
+
+		public String getURI(int index) {
+			String result = xmlStreamReader.getAttributeNamespace(index);
+			return result == null ? "" : result;
+		}
+
+		public String getLocalName(int index) {
+			return xmlStreamReader.getAttributeLocalName(index);
+		}
+
+		public String getQName(int index) {
+			return JUnitStaxParserEngine.getQName(xmlStreamReader.getAttributePrefix(index), xmlStreamReader.getAttributeLocalName(index));
+		}
+
+		public String getType(int index) {
+			return xmlStreamReader.getAttributeType(index);
+		}
+
+		public String getValue(int index) {
+			return xmlStreamReader.getAttributeValue(index);
+		}
+
+		public int getIndex(String uri, String localName) {
+			for(int i = 0; i < getLength(); i++) {
+				if(localName.equals(getLocalName(i)) && uri.equals(getURI(i))) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		public int getIndex(String qName) {
+			for(int i = 0; i < getLength(); i++) {
+				if(qName.equals(getQName(i))) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		public String getType(String uri, String localName) {
+			int index = getIndex(uri, localName);
+			return index < 0 ? null : getType(index);
+		}
+
+		public String getType(String qName) {
+			int index = getIndex(qName);
+			return index < 0 ? null : getType(index);
+		}
+
+		public String getValue(String uri, String localName) {
+			int index = getIndex(uri, localName);
+			return index < 0 ? null : getValue(index);
+		}
+
+		public String getValue(String qName) {
+			int index = getIndex(qName);
+			return index < 0 ? null : getValue(index);
+		}
+	}
+}
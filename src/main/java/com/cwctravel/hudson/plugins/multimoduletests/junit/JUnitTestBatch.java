@@ -0,0 +1,46 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDB;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestInfo;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.io.ReaderWriter;
+
+/**
+ * Test cases taken from a {@link JUnitParser} that have yet to be written to the database, together with the readers and writers buffering their
+ * output, which must be released once the cases are written or abandoned.
+ */
+public class JUnitTestBatch {
+	private final List<JUnitTestInfo> tests;
+	private final List<ReaderWriter> readerWriters;
+
+	JUnitTestBatch(List<JUnitTestInfo> tests, List<ReaderWriter> readerWriters) {
+		this.tests = tests;
+		this.readerWriters = readerWriters;
+	}
+
+	public List<JUnitTestInfo> getTests() {
+		return tests;
+	}
+
+	/**
+	 * Inserts the test cases into the database and releases their output.
+	 */
+	public void write(JUnitDB junitDB) throws IOException, SQLException {
+		try {
+			junitDB.insertTests(tests);
+		}
+		finally {
+			release();
+		}
+	}
+
+	public void release() throws IOException {
+		for(ReaderWriter readerWriter: readerWriters) {
+			readerWriter.release();
+		}
+		readerWriters.clear();
+	}
+}
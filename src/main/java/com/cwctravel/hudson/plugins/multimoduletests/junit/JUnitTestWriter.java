@@ -0,0 +1,228 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDB;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestInfo;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.io.ReaderWriter;
+
+/**
+ * Writes the test cases handed over by parsers to the database on a thread of its own, so that parsing goes on while earlier test cases are being
+ * written. Batches wait in a bounded queue; parsers that get too far ahead block until the writer catches up. The writer takes every batch waiting
+ * when it becomes free and inserts them together, committing once per group rather than once per batch.
+ */
+public class JUnitTestWriter {
+	private static final Logger LOGGER = Logger.getLogger(JUnitTestWriter.class.getName());
+
+	private static final int QUEUE_CAPACITY = Integer.getInteger(JUnitTestWriter.class.getName() + ".queueCapacity", 16);
+
+	private static final JUnitTestBatch END_OF_BATCHES = new JUnitTestBatch(Collections.<JUnitTestInfo>emptyList(), new ArrayList<ReaderWriter>());
+
+	private final JUnitDB junitDB;
+
+	private final BlockingQueue<JUnitTestBatch> queue;
+
+	private final Thread thread;
+
+	private final AtomicInteger maxQueueDepth = new AtomicInteger();
+	private final AtomicLong stallTime = new AtomicLong();
+
+	private volatile Throwable failure;
+
+	private volatile boolean isStopped;
+
+	private long batchCount;
+	private long groupCount;
+	private long testCount;
+	private long writeTime;
+
+	public JUnitTestWriter(JUnitDB junitDB) {
+		this.junitDB = junitDB;
+		this.queue = new ArrayBlockingQueue<JUnitTestBatch>(QUEUE_CAPACITY);
+		this.thread = new Thread(new Runnable() {
+			public void run() {
+				writeBatches();
+			}
+		}, "JUnitTestWriter");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Queues a batch to be written, waiting for room in the queue if it is full. Batches that can no longer be written, because writing an earlier
+	 * one failed or the writer has stopped, are released and the failure is thrown.
+	 */
+	public void write(JUnitTestBatch batch) throws IOException, SQLException, InterruptedException {
+		checkFailure(batch);
+		if(!queue.offer(batch)) {
+			long startTime = System.currentTimeMillis();
+			try {
+				while(!queue.offer(batch, 1, TimeUnit.SECONDS)) {
+					checkStopped(batch);
+				}
+			}
+			finally {
+				stallTime.addAndGet(System.currentTimeMillis() - startTime);
+			}
+		}
+		if(isStopped && queue.remove(batch)) {
+			// queued after the writer took its last batch
+			checkStopped(batch);
+		}
+
+		int queueDepth = queue.size();
+		int currentMaxQueueDepth;
+		while(queueDepth > (currentMaxQueueDepth = maxQueueDepth.get()) && !maxQueueDepth.compareAndSet(currentMaxQueueDepth, queueDepth)) {
+			// retry until the maximum is at least this depth
+		}
+	}
+
+	/**
+	 * Waits for every queued batch to be written and stops the writer, throwing the failure of any batch that could not be written.
+	 */
+	public void close() throws IOException, SQLException, InterruptedException {
+		if(!isStopped) {
+			queue.put(END_OF_BATCHES);
+		}
+		thread.join();
+		checkFailure(null);
+	}
+
+	/**
+	 * Stops the writer without waiting for the queued batches, which are released, for use once parsing has failed.
+	 */
+	public void abort() {
+		if(failure == null) {
+			failure = new IOException("Writing test cases was aborted");
+		}
+		try {
+			if(!isStopped) {
+				queue.put(END_OF_BATCHES);
+			}
+			thread.join();
+		}
+		catch(InterruptedException iE) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public int getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	/**
+	 * The total time, in milliseconds, parsers spent waiting for room in the queue.
+	 */
+	public long getStallTime() {
+		return stallTime.get();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Wrote " + testCount + " test cases in " + batchCount + " batches and " + groupCount + " commit groups in " + writeTime +
+				" ms; queue depth max " + maxQueueDepth.get() + " of " + QUEUE_CAPACITY + ", parsers stalled " + stallTime.get() + " ms";
+	}
+
+	private void writeBatches() {
+		try {
+			writeGroups();
+		}
+		finally {
+			isStopped = true;
+		}
+	}
+
+	private void writeGroups() {
+		List<JUnitTestBatch> batches = new ArrayList<JUnitTestBatch>();
+		boolean isEnded = false;
+		while(!isEnded) {
+			try {
+				batches.add(queue.take());
+				queue.drainTo(batches);
+				isEnded = batches.remove(END_OF_BATCHES);
+
+				if(failure == null && !batches.isEmpty()) {
+					writeGroup(batches);
+				}
+			}
+			catch(InterruptedException iE) {
+				failure = iE;
+			}
+			catch(Throwable t) {
+				LOGGER.log(Level.SEVERE, t.getMessage(), t);
+				failure = t;
+			}
+			finally {
+				for(JUnitTestBatch batch: batches) {
+					try {
+						batch.release();
+					}
+					catch(IOException iE) {
+						LOGGER.log(Level.SEVERE, iE.getMessage(), iE);
+					}
+				}
+				batches.clear();
+			}
+		}
+	}
+
+	private void writeGroup(List<JUnitTestBatch> batches) throws IOException, SQLException {
+		long startTime = System.currentTimeMillis();
+		List<JUnitTestInfo> tests = new ArrayList<JUnitTestInfo>();
+		for(JUnitTestBatch batch: batches) {
+			tests.addAll(batch.getTests());
+		}
+		junitDB.insertTests(tests);
+
+		synchronized(this) {
+			batchCount += batches.size();
+			groupCount++;
+			testCount += tests.size();
+			writeTime += System.currentTimeMillis() - startTime;
+		}
+	}
+
+	private void checkStopped(JUnitTestBatch batch) throws IOException, SQLException, InterruptedException {
+		if(isStopped) {
+			checkFailure(batch);
+			batch.release();
+			throw new IOException("The test case writer has stopped");
+		}
+	}
+
+	private void checkFailure(JUnitTestBatch batch) throws IOException, SQLException, InterruptedException {
+		Throwable currentFailure = failure;
+		if(currentFailure != null) {
+			if(batch != null) {
+				batch.release();
+			}
+			if(currentFailure instanceof IOException) {
+				throw (IOException)currentFailure;
+			}
+			if(currentFailure instanceof SQLException) {
+				throw (SQLException)currentFailure;
+			}
+			if(currentFailure instanceof InterruptedException) {
+				throw (InterruptedException)currentFailure;
+			}
+			if(currentFailure instanceof RuntimeException) {
+				throw (RuntimeException)currentFailure;
+			}
+			if(currentFailure instanceof Error) {
+				throw (Error)currentFailure;
+			}
+			throw new IOException(currentFailure);
+		}
+	}
+}
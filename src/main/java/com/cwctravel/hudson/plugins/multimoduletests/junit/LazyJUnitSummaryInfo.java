@@ -217,6 +217,18 @@ public class LazyJUnitSummaryInfo extends JUnitSummaryInfo {
 	@Override
 	public void setTotalCount(long totalCount) {}
 
+	@Override
+	public int getFailedSince() {
+		computeSummary();
+		if(summary != null) {
+			return summary.getFailedSince();
+		}
+		return super.getFailedSince();
+	}
+
+	@Override
+	public void setFailedSince(int failedSince) {}
+
 	@Override
 	public String getDurationString() {
 		return Util.getTimeSpanString((getDuration() * 1000));
@@ -46,9 +46,11 @@ import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.export.Exported;
 
 import com.cwctravel.hudson.plugins.multimoduletests.ProjectResultBuildAction;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitChildSummaryInfo;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDB;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitMetricsInfo;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryInfo;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryTree;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestDetailInfo;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestInfo;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.io.IOUtil;
@@ -59,12 +61,10 @@ import com.cwctravel.hudson.plugins.multimoduletests.junit.io.StringReaderWriter
  * 
  * @author Kohsuke Kawaguchi
  */
-public final class ModuleResult extends MetaTabulatedResult {
+public final class ModuleResult extends MetaTabulatedResult implements CaseResults.ClassResultFinder {
 	private static final Logger LOGGER = Logger.getLogger(ModuleResult.class.getName());
 	private static final long serialVersionUID = 1L;
 
-	private int failedSince;
-
 	private TestObject parent;
 
 	private final JUnitDB junitDB;
@@ -75,6 +75,7 @@ public final class ModuleResult extends MetaTabulatedResult {
 
 	private final JUnitSummaryInfo summary;
 	private JUnitSummaryInfo previousSummary;
+	private boolean previousSummaryFetched;
 
 	private JUnitMetricsInfo metrics;
 
@@ -86,13 +87,23 @@ public final class ModuleResult extends MetaTabulatedResult {
 		this.parent = parent;
 		this.summary = junitSummaryInfo;
 		try {
-			this.junitDB = new JUnitDB(getOwner().getProject().getRootDir().getAbsolutePath());
+			this.junitDB = JUnitDB.getInstance(getOwner().getProject().getRootDir().getAbsolutePath());
 		}
 		catch(SQLException sE) {
 			throw new JUnitException(sE);
 		}
 	}
 
+	/**
+	 * Creates the result of a child read by one of the children queries, which already carry the previous summary and the metrics.
+	 */
+	ModuleResult(TestObject parent, JUnitChildSummaryInfo junitChildSummaryInfo) {
+		this(parent, junitChildSummaryInfo.getSummary());
+		this.previousSummary = junitChildSummaryInfo.getPreviousSummary();
+		this.previousSummaryFetched = true;
+		this.metrics = junitChildSummaryInfo.getMetrics();
+	}
+
 	@Override
 	public TestObject getParent() {
 		return parent;
@@ -259,13 +270,18 @@ public final class ModuleResult extends MetaTabulatedResult {
 
 	@Override
 	public ModuleResult getPreviousResult() {
-		return new ModuleResult(getParent(), getPreviousSummary());
+		JUnitSummaryInfo junitSummaryInfo = getPreviousSummary();
+		if(junitSummaryInfo != null) {
+			return new ModuleResult(getParent(), junitSummaryInfo);
+		}
+		return null;
 	}
 
 	private JUnitSummaryInfo getPreviousSummary() {
-		if(previousSummary == null) {
+		if(!previousSummaryFetched) {
 			try {
 				previousSummary = junitDB.fetchTestModuleSummaryForBuildPriorTo(summary.getBuildNumber(), summary.getProjectName(), getName());
+				previousSummaryFetched = true;
 			}
 			catch(SQLException sE) {
 				LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
@@ -274,26 +290,31 @@ public final class ModuleResult extends MetaTabulatedResult {
 		return previousSummary;
 	}
 
-	@Override
-	public List<CaseResult> getFailedTests() {
+	public ClassResult findClassResult(JUnitTestInfo junitTestInfo) {
+		PackageResult packageResult = byPackage(junitTestInfo.getPackageName());
+		if(packageResult == null) {
+			packageResult = new PackageResult(this, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_PACKAGE, junitDB, junitTestInfo));
+		}
+		return packageResult.findClassResult(junitTestInfo);
+	}
+
+	/**
+	 * Returns the tests whose status is between the given ones.
+	 */
+	private List<CaseResult> readTests(int minStatus, int maxStatus) {
 		try {
-			List<CaseResult> result = new ArrayList<CaseResult>();
-			List<JUnitTestInfo> junitTestInfoList = junitDB.queryTestsByModule(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName());
-			for(JUnitTestInfo junitTestInfo: junitTestInfoList) {
-				if(junitTestInfo.getStatus() == JUnitTestInfo.STATUS_FAIL || junitTestInfo.getStatus() == JUnitTestInfo.STATUS_ERROR) {
-					PackageResult packageResult = new PackageResult(this, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_PACKAGE, junitDB, junitTestInfo));
-					ClassResult classResult = new ClassResult(packageResult, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_CLASS, junitDB, junitTestInfo));
-					CaseResult caseResult = new CaseResult(classResult, junitTestInfo);
-					result.add(caseResult);
-				}
-			}
-			return result;
+			return CaseResults.readCaseResults(this, junitDB.openTestsByModule(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName(), minStatus, maxStatus));
 		}
 		catch(SQLException sE) {
 			throw new JUnitException(sE);
 		}
 	}
 
+	@Override
+	public List<CaseResult> getFailedTests() {
+		return readTests(JUnitTestInfo.STATUS_FAIL, JUnitTestInfo.STATUS_ERROR);
+	}
+
 	/**
 	 * Gets the "children" of this test result that passed
 	 * 
@@ -301,22 +322,7 @@ public final class ModuleResult extends MetaTabulatedResult {
 	 */
 	@Override
 	public Collection<? extends hudson.tasks.test.TestResult> getPassedTests() {
-		try {
-			List<CaseResult> result = new ArrayList<CaseResult>();
-			List<JUnitTestInfo> junitTestInfoList = junitDB.queryTestsByModule(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName());
-			for(JUnitTestInfo junitTestInfo: junitTestInfoList) {
-				if(junitTestInfo.getStatus() == JUnitTestInfo.STATUS_SUCCESS) {
-					PackageResult packageResult = new PackageResult(this, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_PACKAGE, junitDB, junitTestInfo));
-					ClassResult classResult = new ClassResult(packageResult, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_CLASS, junitDB, junitTestInfo));
-					CaseResult caseResult = new CaseResult(classResult, junitTestInfo);
-					result.add(caseResult);
-				}
-			}
-			return result;
-		}
-		catch(SQLException sE) {
-			throw new JUnitException(sE);
-		}
+		return readTests(JUnitTestInfo.STATUS_SUCCESS, JUnitTestInfo.STATUS_SUCCESS);
 	}
 
 	/**
@@ -326,42 +332,12 @@ public final class ModuleResult extends MetaTabulatedResult {
 	 */
 	@Override
 	public Collection<? extends hudson.tasks.test.TestResult> getSkippedTests() {
-		try {
-			List<CaseResult> result = new ArrayList<CaseResult>();
-			List<JUnitTestInfo> junitTestInfoList = junitDB.queryTestsByModule(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName());
-			for(JUnitTestInfo junitTestInfo: junitTestInfoList) {
-				if(junitTestInfo.getStatus() == JUnitTestInfo.STATUS_SKIP) {
-					PackageResult packageResult = new PackageResult(this, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_PACKAGE, junitDB, junitTestInfo));
-					ClassResult classResult = new ClassResult(packageResult, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_CLASS, junitDB, junitTestInfo));
-					CaseResult caseResult = new CaseResult(classResult, junitTestInfo);
-					result.add(caseResult);
-				}
-			}
-			return result;
-		}
-		catch(SQLException sE) {
-			throw new JUnitException(sE);
-		}
+		return readTests(JUnitTestInfo.STATUS_SKIP, JUnitTestInfo.STATUS_SKIP);
 	}
 
 	@Override
-	public int getFailedSince() { // TODO: implement this.
-		if(failedSince == 0 && getFailCount() > 0) {
-			try {
-				List<JUnitSummaryInfo> history = junitDB.fetchTestModuleSummaryHistory(summary.getProjectName(), summary.getModuleName(), 5000);
-				for(JUnitSummaryInfo junitSummaryInfo: history) {
-					int failedBuildNumber = junitSummaryInfo.getBuildNumber();
-					if(failedBuildNumber < getOwner().getNumber() && junitSummaryInfo.getFailCount() > 0) {
-						failedSince = failedBuildNumber;
-						break;
-					}
-				}
-			}
-			catch(SQLException sE) {
-				LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
-			}
-		}
-		return failedSince;
+	public int getFailedSince() {
+		return summary.getFailedSince();
 	}
 
 	@Override
@@ -486,9 +462,10 @@ public final class ModuleResult extends MetaTabulatedResult {
 			List<PackageResult> result = getCachedChildren();
 			if(result == null) {
 				result = new ArrayList<PackageResult>();
-				List<JUnitSummaryInfo> junitSummaryInfoList = junitDB.fetchTestModuleChildrenForBuild(summary.getBuildNumber(), summary.getProjectName(), summary.getModuleName());
-				for(JUnitSummaryInfo summaryInfo: junitSummaryInfoList) {
-					PackageResult packageResult = new PackageResult(this, summaryInfo);
+				JUnitSummaryTree junitSummaryTree = junitDB.fetchSummaryTreeForBuild(summary.getBuildNumber(), summary.getProjectName());
+				List<JUnitChildSummaryInfo> junitChildSummaryInfoList = junitSummaryTree.getPackages(summary.getModuleName());
+				for(JUnitChildSummaryInfo junitChildSummaryInfo: junitChildSummaryInfoList) {
+					PackageResult packageResult = new PackageResult(this, junitChildSummaryInfo);
 					result.add(packageResult);
 				}
 				cacheChildren(result);
@@ -557,9 +534,10 @@ public final class ModuleResult extends MetaTabulatedResult {
 		try {
 			PackageResult result = getCachedPackageResult(packageName);
 			if(result == null) {
-				JUnitSummaryInfo junitSummaryInfo = junitDB.fetchTestPackageSummaryForBuild(summary.getBuildNumber(), summary.getProjectName(), summary.getModuleName(), packageName);
-				if(junitSummaryInfo != null) {
-					result = new PackageResult(this, junitSummaryInfo);
+				JUnitSummaryTree junitSummaryTree = junitDB.fetchSummaryTreeForBuild(summary.getBuildNumber(), summary.getProjectName());
+				JUnitChildSummaryInfo junitChildSummaryInfo = junitSummaryTree.getPackage(summary.getModuleName(), packageName);
+				if(junitChildSummaryInfo != null) {
+					result = new PackageResult(this, junitChildSummaryInfo);
 					cachePackageResult(result);
 				}
 
@@ -589,7 +567,7 @@ public final class ModuleResult extends MetaTabulatedResult {
 	public hudson.tasks.junit.History getHistory() {
 		History history = null;
 		if(historyReference == null || (history = historyReference.get()) == null) {
-			history = new History(this, 5000);
+			history = new History(this);
 			historyReference = new WeakReference<History>(history);
 			return history;
 		}
@@ -43,9 +43,11 @@ import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.export.Exported;
 
 import com.cwctravel.hudson.plugins.multimoduletests.ProjectResultBuildAction;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitChildSummaryInfo;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDB;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitMetricsInfo;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryInfo;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryTree;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestInfo;
 
 /**
@@ -53,12 +55,10 @@ import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestInfo;
  * 
  * @author Kohsuke Kawaguchi
  */
-public final class PackageResult extends MetaTabulatedResult implements Comparable<PackageResult> {
+public final class PackageResult extends MetaTabulatedResult implements Comparable<PackageResult>, CaseResults.ClassResultFinder {
 
 	private static final Logger LOGGER = Logger.getLogger(PackageResult.class.getName());
 
-	private int failedSince;
-
 	private final JUnitDB junitDB;
 	private final TestObject parent;
 
@@ -67,6 +67,7 @@ public final class PackageResult extends MetaTabulatedResult implements Comparab
 
 	private final JUnitSummaryInfo summary;
 	private JUnitSummaryInfo previousSummary;
+	private boolean previousSummaryFetched;
 
 	private JUnitMetricsInfo metrics;
 
@@ -74,13 +75,23 @@ public final class PackageResult extends MetaTabulatedResult implements Comparab
 		this.parent = parent;
 		this.summary = summary;
 		try {
-			junitDB = new JUnitDB(getOwner().getProject().getRootDir().getAbsolutePath());
+			junitDB = JUnitDB.getInstance(getOwner().getProject().getRootDir().getAbsolutePath());
 		}
 		catch(SQLException sE) {
 			throw new JUnitException(sE);
 		}
 	}
 
+	/**
+	 * Creates the result of a child read by one of the children queries, which already carry the previous summary and the metrics.
+	 */
+	PackageResult(TestObject parent, JUnitChildSummaryInfo junitChildSummaryInfo) {
+		this(parent, junitChildSummaryInfo.getSummary());
+		this.previousSummary = junitChildSummaryInfo.getPreviousSummary();
+		this.previousSummaryFetched = true;
+		this.metrics = junitChildSummaryInfo.getMetrics();
+	}
+
 	@Override
 	public AbstractBuild<?, ?> getOwner() {
 		return(parent == null ? null : parent.getOwner());
@@ -242,13 +253,18 @@ public final class PackageResult extends MetaTabulatedResult implements Comparab
 
 	@Override
 	public PackageResult getPreviousResult() {
-		return new PackageResult(getParent(), getPreviousSummary());
+		JUnitSummaryInfo junitSummaryInfo = getPreviousSummary();
+		if(junitSummaryInfo != null) {
+			return new PackageResult(getParent(), junitSummaryInfo);
+		}
+		return null;
 	}
 
 	private JUnitSummaryInfo getPreviousSummary() {
-		if(previousSummary == null) {
+		if(!previousSummaryFetched) {
 			try {
 				previousSummary = junitDB.fetchTestPackageSummaryForBuildPriorTo(summary.getBuildNumber(), summary.getProjectName(), summary.getModuleName(), summary.getPackageName());
+				previousSummaryFetched = true;
 			}
 			catch(SQLException sE) {
 				LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
@@ -296,9 +312,10 @@ public final class PackageResult extends MetaTabulatedResult implements Comparab
 		if(result == null) {
 			try {
 				result = new ArrayList<ClassResult>();
-				List<JUnitSummaryInfo> junitSummaryInfoList = junitDB.fetchTestPackageChildrenForBuild(summary.getBuildNumber(), summary.getProjectName(), summary.getModuleName(), summary.getPackageName());
-				for(JUnitSummaryInfo junitSummaryInfo: junitSummaryInfoList) {
-					ClassResult classResult = new ClassResult(this, junitSummaryInfo);
+				JUnitSummaryTree junitSummaryTree = junitDB.fetchSummaryTreeForBuild(summary.getBuildNumber(), summary.getProjectName());
+				List<JUnitChildSummaryInfo> junitChildSummaryInfoList = junitSummaryTree.getClasses(summary.getModuleName(), summary.getPackageName());
+				for(JUnitChildSummaryInfo junitChildSummaryInfo: junitChildSummaryInfoList) {
+					ClassResult classResult = new ClassResult(this, junitChildSummaryInfo);
 					result.add(classResult);
 				}
 				cacheChildren(result);
@@ -318,61 +335,39 @@ public final class PackageResult extends MetaTabulatedResult implements Comparab
 		return summary.getTotalCount() > 0;
 	}
 
-	@Override
-	public List<CaseResult> getFailedTests() {
+	public ClassResult findClassResult(JUnitTestInfo junitTestInfo) {
+		ClassResult result = getClassResult(junitTestInfo.getClassName());
+		if(result == null) {
+			result = new ClassResult(this, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_CLASS, junitDB, junitTestInfo));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the tests whose status is between the given ones.
+	 */
+	private List<CaseResult> readTests(int minStatus, int maxStatus) {
 		try {
-			List<CaseResult> result = new ArrayList<CaseResult>();
-			List<JUnitTestInfo> junitTestInfoList = junitDB.queryTestsByPackage(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName(), summary.getPackageName());
-			for(JUnitTestInfo junitTestInfo: junitTestInfoList) {
-				if(junitTestInfo.getStatus() == JUnitTestInfo.STATUS_FAIL || junitTestInfo.getStatus() == JUnitTestInfo.STATUS_ERROR) {
-					ClassResult classResult = new ClassResult(this, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_CLASS, junitDB, junitTestInfo));
-					CaseResult caseResult = new CaseResult(classResult, junitTestInfo);
-					result.add(caseResult);
-				}
-			}
-			return result;
+			return CaseResults.readCaseResults(this, junitDB.openTestsByPackage(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName(), summary.getPackageName(), minStatus, maxStatus));
 		}
 		catch(SQLException sE) {
 			throw new JUnitException(sE);
 		}
 	}
 
+	@Override
+	public List<CaseResult> getFailedTests() {
+		return readTests(JUnitTestInfo.STATUS_FAIL, JUnitTestInfo.STATUS_ERROR);
+	}
+
 	@Override
 	public List<CaseResult> getSkippedTests() {
-		try {
-			List<CaseResult> result = new ArrayList<CaseResult>();
-			List<JUnitTestInfo> junitTestInfoList = junitDB.queryTestsByPackage(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName(), summary.getPackageName());
-			for(JUnitTestInfo junitTestInfo: junitTestInfoList) {
-				if(junitTestInfo.getStatus() == JUnitTestInfo.STATUS_SKIP) {
-					ClassResult classResult = new ClassResult(this, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_CLASS, junitDB, junitTestInfo));
-					CaseResult caseResult = new CaseResult(classResult, junitTestInfo);
-					result.add(caseResult);
-				}
-			}
-			return result;
-		}
-		catch(SQLException sE) {
-			throw new JUnitException(sE);
-		}
+		return readTests(JUnitTestInfo.STATUS_SKIP, JUnitTestInfo.STATUS_SKIP);
 	}
 
 	@Override
 	public List<CaseResult> getPassedTests() {
-		try {
-			List<CaseResult> result = new ArrayList<CaseResult>();
-			List<JUnitTestInfo> junitTestInfoList = junitDB.queryTestsByPackage(summary.getProjectName(), summary.getBuildNumber(), summary.getModuleName(), summary.getPackageName());
-			for(JUnitTestInfo junitTestInfo: junitTestInfoList) {
-				if(junitTestInfo.getStatus() == JUnitTestInfo.STATUS_SUCCESS) {
-					ClassResult classResult = new ClassResult(this, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_CLASS, junitDB, junitTestInfo));
-					CaseResult caseResult = new CaseResult(classResult, junitTestInfo);
-					result.add(caseResult);
-				}
-			}
-			return result;
-		}
-		catch(SQLException sE) {
-			throw new JUnitException(sE);
-		}
+		return readTests(JUnitTestInfo.STATUS_SUCCESS, JUnitTestInfo.STATUS_SUCCESS);
 	}
 
 	/**
@@ -388,22 +383,7 @@ public final class PackageResult extends MetaTabulatedResult implements Comparab
 
 	@Override
 	public int getFailedSince() {
-		if(failedSince == 0 && getFailCount() > 0) {
-			try {
-				List<JUnitSummaryInfo> history = junitDB.summarizeTestPackageHistory(summary.getProjectName(), summary.getModuleName(), summary.getPackageName(), 5000);
-				for(JUnitSummaryInfo junitSummaryInfo: history) {
-					int failedBuildNumber = junitSummaryInfo.getBuildNumber();
-					if(failedBuildNumber < getOwner().getNumber() && junitSummaryInfo.getFailCount() > 0) {
-						failedSince = failedBuildNumber;
-						break;
-					}
-				}
-			}
-			catch(SQLException sE) {
-				LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
-			}
-		}
-		return failedSince;
+		return summary.getFailedSince();
 	}
 
 	@Override
@@ -439,7 +419,7 @@ public final class PackageResult extends MetaTabulatedResult implements Comparab
 	public hudson.tasks.junit.History getHistory() {
 		History history = null;
 		if(historyReference == null || (history = historyReference.get()) == null) {
-			history = new History(this, 5000);
+			history = new History(this);
 			historyReference = new WeakReference<History>(history);
 			return history;
 		}
@@ -14,8 +14,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,18 +24,18 @@ import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.export.Exported;
 
 import com.cwctravel.hudson.plugins.multimoduletests.ProjectResultBuildAction;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitChildSummaryInfo;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitDB;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitMetricsInfo;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryInfo;
+import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitSummaryTree;
 import com.cwctravel.hudson.plugins.multimoduletests.junit.db.JUnitTestInfo;
 
-public class ProjectResult extends MetaTabulatedResult {
+public class ProjectResult extends MetaTabulatedResult implements CaseResults.ClassResultFinder {
 	private static final long serialVersionUID = -6091389434656908226L;
 
 	private static final Logger LOGGER = Logger.getLogger(ProjectResult.class.getName());
 
-	private int failedSince;
-
 	private String description = "";
 
 	private ProjectResultBuildAction parentAction;
@@ -50,7 +50,7 @@ public class ProjectResult extends MetaTabulatedResult {
 	private JUnitMetricsInfo metrics;
 
 	private transient WeakReference<History> historyReference;
-	private transient Map<String, ModuleResult> moduleResultMap;
+	private transient ConcurrentMap<String, ModuleResult> moduleResultMap;
 	private transient Set<String> emptyModuleResults;
 
 	/**
@@ -65,7 +65,7 @@ public class ProjectResult extends MetaTabulatedResult {
 	public ProjectResult(AbstractProject<?, ?> project, JUnitSummaryInfo summary, String moduleNamesStr, String description) {
 		this.description = description;
 		try {
-			this.junitDB = new JUnitDB(project.getRootDir().getAbsolutePath());
+			this.junitDB = JUnitDB.getInstance(project.getRootDir().getAbsolutePath());
 			this.summary = summary;
 			moduleNames = new ArrayList<String>();
 			if(moduleNamesStr != null) {
@@ -106,11 +106,11 @@ public class ProjectResult extends MetaTabulatedResult {
 		ModuleResult result = getModuleResultFromCache(moduleName);
 		if(result == null) {
 			try {
-				JUnitSummaryInfo junitSummaryInfo = junitDB.fetchTestModuleSummaryForBuild(summary.getBuildNumber(), summary.getProjectName(), moduleName);
+				JUnitSummaryTree junitSummaryTree = junitDB.fetchSummaryTreeForBuild(summary.getBuildNumber(), summary.getProjectName());
+				JUnitChildSummaryInfo junitChildSummaryInfo = junitSummaryTree.getModule(moduleName);
 
-				if(junitSummaryInfo != null) {
-					result = new ModuleResult(this, junitSummaryInfo);
-					cacheModuleResult(moduleName, result);
+				if(junitChildSummaryInfo != null) {
+					result = cacheModuleResult(moduleName, new ModuleResult(this, junitChildSummaryInfo));
 				}
 			}
 			catch(SQLException sE) {
@@ -120,7 +120,7 @@ public class ProjectResult extends MetaTabulatedResult {
 		return result;
 	}
 
-	private boolean isModuleResultEmpty(String moduleName) {
+	private synchronized boolean isModuleResultEmpty(String moduleName) {
 		if(emptyModuleResults != null && emptyModuleResults.contains(moduleName)) {
 			return true;
 		}
@@ -128,17 +128,22 @@ public class ProjectResult extends MetaTabulatedResult {
 	}
 
 	private ModuleResult getModuleResultFromCache(String moduleName) {
-		if(moduleResultMap != null) {
-			return moduleResultMap.get(moduleName);
-		}
-		return null;
+		return getModuleResultMap().get(moduleName);
 	}
 
-	private void cacheModuleResult(String moduleName, ModuleResult testResult) {
+	/**
+	 * Caches the given result unless another request thread has cached one for the same module first, and returns the cached one.
+	 */
+	private ModuleResult cacheModuleResult(String moduleName, ModuleResult testResult) {
+		ModuleResult result = getModuleResultMap().putIfAbsent(moduleName, testResult);
+		return result != null ? result : testResult;
+	}
+
+	private synchronized ConcurrentMap<String, ModuleResult> getModuleResultMap() {
 		if(moduleResultMap == null) {
 			moduleResultMap = new WeakValueHashMap<String, ModuleResult>();
 		}
-		moduleResultMap.put(moduleName, testResult);
+		return moduleResultMap;
 	}
 
 	@Override
@@ -308,25 +313,8 @@ public class ProjectResult extends MetaTabulatedResult {
 	}
 
 	@Override
-	public int getFailedSince() { // TODO: implement this.
-		// If we haven't calculated failedSince yet, and we should,
-		// do it now.
-		if(failedSince == 0 && getFailCount() > 0) {
-			try {
-				List<JUnitSummaryInfo> history = junitDB.summarizeTestProjectHistory(summary.getProjectName(), 5000);
-				for(JUnitSummaryInfo junitSummaryInfo: history) {
-					int failedBuildNumber = junitSummaryInfo.getBuildNumber();
-					if(failedBuildNumber < getOwner().getNumber() && junitSummaryInfo.getFailCount() > 0) {
-						failedSince = failedBuildNumber;
-						break;
-					}
-				}
-			}
-			catch(SQLException sE) {
-				LOGGER.log(Level.SEVERE, sE.getMessage(), sE);
-			}
-		}
-		return failedSince;
+	public int getFailedSince() {
+		return summary.getFailedSince();
 	}
 
 	@Override
@@ -363,67 +351,39 @@ public class ProjectResult extends MetaTabulatedResult {
 		return (int)summary.getPassCount();
 	}
 
-	@Override
-	public List<CaseResult> getFailedTests() {
+	public ClassResult findClassResult(JUnitTestInfo junitTestInfo) {
+		ModuleResult moduleResult = getModuleResultByName(junitTestInfo.getModuleName());
+		if(moduleResult == null) {
+			moduleResult = new ModuleResult(this, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_MODULE, junitDB, junitTestInfo));
+		}
+		return moduleResult.findClassResult(junitTestInfo);
+	}
+
+	/**
+	 * Returns the tests whose status is between the given ones.
+	 */
+	private List<CaseResult> readTests(int minStatus, int maxStatus) {
 		try {
-			List<CaseResult> result = new ArrayList<CaseResult>();
-			List<JUnitTestInfo> junitTestInfoList = junitDB.queryTestsByProject(summary.getProjectName(), summary.getBuildNumber());
-			for(JUnitTestInfo junitTestInfo: junitTestInfoList) {
-				if(junitTestInfo.getStatus() == JUnitTestInfo.STATUS_FAIL || junitTestInfo.getStatus() == JUnitTestInfo.STATUS_ERROR) {
-					ModuleResult testResult = new ModuleResult(this, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_MODULE, junitDB, junitTestInfo));
-					PackageResult packageResult = new PackageResult(testResult, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_PACKAGE, junitDB, junitTestInfo));
-					ClassResult classResult = new ClassResult(packageResult, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_CLASS, junitDB, junitTestInfo));
-					CaseResult caseResult = new CaseResult(classResult, junitTestInfo);
-					result.add(caseResult);
-				}
-			}
-			return result;
+			return CaseResults.readCaseResults(this, junitDB.openTestsByProject(summary.getProjectName(), summary.getBuildNumber(), minStatus, maxStatus));
 		}
 		catch(SQLException sE) {
 			throw new JUnitException(sE);
 		}
 	}
 
+	@Override
+	public List<CaseResult> getFailedTests() {
+		return readTests(JUnitTestInfo.STATUS_FAIL, JUnitTestInfo.STATUS_ERROR);
+	}
+
 	@Override
 	public List<CaseResult> getSkippedTests() {
-		try {
-			List<CaseResult> result = new ArrayList<CaseResult>();
-			List<JUnitTestInfo> junitTestInfoList = junitDB.queryTestsByProject(summary.getProjectName(), summary.getBuildNumber());
-			for(JUnitTestInfo junitTestInfo: junitTestInfoList) {
-				if(junitTestInfo.getStatus() == JUnitTestInfo.STATUS_SKIP) {
-					ModuleResult testResult = new ModuleResult(this, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_MODULE, junitDB, junitTestInfo));
-					PackageResult packageResult = new PackageResult(testResult, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_PACKAGE, junitDB, junitTestInfo));
-					ClassResult classResult = new ClassResult(packageResult, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_CLASS, junitDB, junitTestInfo));
-					CaseResult caseResult = new CaseResult(classResult, junitTestInfo);
-					result.add(caseResult);
-				}
-			}
-			return result;
-		}
-		catch(SQLException sE) {
-			throw new JUnitException(sE);
-		}
+		return readTests(JUnitTestInfo.STATUS_SKIP, JUnitTestInfo.STATUS_SKIP);
 	}
 
 	@Override
 	public List<CaseResult> getPassedTests() {
-		try {
-			List<CaseResult> result = new ArrayList<CaseResult>();
-			List<JUnitTestInfo> junitTestInfoList = junitDB.queryTestsByProject(summary.getProjectName(), summary.getBuildNumber());
-			for(JUnitTestInfo junitTestInfo: junitTestInfoList) {
-				if(junitTestInfo.getStatus() == JUnitTestInfo.STATUS_SUCCESS) {
-					ModuleResult testResult = new ModuleResult(this, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_MODULE, junitDB, junitTestInfo));
-					PackageResult packageResult = new PackageResult(testResult, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_PACKAGE, junitDB, junitTestInfo));
-					ClassResult classResult = new ClassResult(packageResult, new LazyJUnitSummaryInfo(LazyJUnitSummaryInfo.SUMMARY_TYPE_CLASS, junitDB, junitTestInfo));
-					CaseResult caseResult = new CaseResult(classResult, junitTestInfo);
-					result.add(caseResult);
-				}
-			}
-			return result;
-		}
-		catch(SQLException sE) {
-			throw new JUnitException(sE);
-		}
+		return readTests(JUnitTestInfo.STATUS_SUCCESS, JUnitTestInfo.STATUS_SUCCESS);
 	}
 
 	@Override
@@ -431,15 +391,18 @@ public class ProjectResult extends MetaTabulatedResult {
 		AbstractBuild<?, ?> build = getOwner();
 
 		List<ModuleResult> result = new ArrayList<ModuleResult>();
+		JUnitSummaryTree junitSummaryTree = null;
 		try {
 			for(String moduleName: moduleNames) {
 				ModuleResult testResult = getModuleResultFromCache(moduleName);
 				if(testResult == null && !isModuleResultEmpty(moduleName)) {
-					JUnitSummaryInfo junitSummaryInfo = junitDB.fetchTestModuleSummaryForBuild(build.getNumber(), build.getProject().getName(), moduleName);
+					if(junitSummaryTree == null) {
+						junitSummaryTree = junitDB.fetchSummaryTreeForBuild(build.getNumber(), build.getProject().getName());
+					}
 
-					if(junitSummaryInfo != null) {
-						testResult = new ModuleResult(this, junitSummaryInfo);
-						cacheModuleResult(moduleName, testResult);
+					JUnitChildSummaryInfo junitChildSummaryInfo = junitSummaryTree.getModule(moduleName);
+					if(junitChildSummaryInfo != null) {
+						testResult = cacheModuleResult(moduleName, new ModuleResult(this, junitChildSummaryInfo));
 					}
 					else {
 						addEmptyModuleResult(moduleName);
@@ -457,7 +420,7 @@ public class ProjectResult extends MetaTabulatedResult {
 		return result;
 	}
 
-	private void addEmptyModuleResult(String moduleName) {
+	private synchronized void addEmptyModuleResult(String moduleName) {
 		if(emptyModuleResults == null) {
 			emptyModuleResults = new HashSet<String>();
 		}
@@ -543,7 +506,7 @@ public class ProjectResult extends MetaTabulatedResult {
 	public hudson.tasks.junit.History getHistory() {
 		History history = null;
 		if(historyReference == null || (history = historyReference.get()) == null) {
-			history = new History(this, 5000);
+			history = new History(this);
 			historyReference = new WeakReference<History>(history);
 			return history;
 		}
@@ -1,105 +1,264 @@
 package com.cwctravel.hudson.plugins.multimoduletests.junit;
 
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * A map that maintains weak references to its values.
- * 
+ * A map that maintains weak references to its values. Entries whose values have been garbage collected are purged, through a reference queue, on the
+ * next access to the map. The map can also be bounded, in which case the least recently used entries are dropped once it holds more than the given
+ * number of entries. All operations are synchronized on the map; the views iterate over a snapshot taken when the iterator is created, and removing
+ * through them removes from the map.
+ *
  * @param <K>
  *        Key type.
  * @param <V>
  *        Value type.
  * @author Philip Aston
  */
-public final class WeakValueHashMap<K, V> implements Map<K, V> {
-	private final Map<K, WeakReference<V>> m_map = new HashMap<K, WeakReference<V>>();
+public final class WeakValueHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+	private final int maxSize;
+
+	private final LinkedHashMap<K, ValueReference<K, V>> m_map;
+
+	private final ReferenceQueue<V> m_queue = new ReferenceQueue<V>();
+
+	private Set<Map.Entry<K, V>> entrySet;
+
+	/**
+	 * Creates an unbounded map.
+	 */
+	public WeakValueHashMap() {
+		this(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a map holding at most maxSize entries.
+	 *
+	 * @param maxSize
+	 *        The number of entries above which the least recently used ones are dropped.
+	 */
+	public WeakValueHashMap(int maxSize) {
+		if(maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+		}
+		this.maxSize = maxSize;
+		this.m_map = new LinkedHashMap<K, ValueReference<K, V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, ValueReference<K, V>> eldest) {
+				return size() > WeakValueHashMap.this.maxSize;
+			}
+		};
+	}
 
 	/**
 	 * Clear all entries out of the map.
 	 */
-	public void clear() {
+	@Override
+	public synchronized void clear() {
 		m_map.clear();
+		while(m_queue.poll() != null) {
+			// nothing to remove, the map is empty
+		}
 	}
 
 	/**
 	 * Look up a value by key.
-	 * 
+	 *
 	 * @param key
 	 *        The key.
 	 * @return The value, or <code>null</code> if none found.
 	 */
-	public V get(Object key) {
-		final WeakReference<V> reference = m_map.get(key);
-		return reference != null ? reference.get() : null;
+	@Override
+	public synchronized V get(Object key) {
+		expungeStaleEntries();
+		return dereference(m_map.get(key));
 	}
 
 	/**
 	 * Add a value.
-	 * 
+	 *
 	 * @param key
 	 *        The key.
 	 * @param value
 	 *        The value.
+	 * @return The value previously mapped to the key, or <code>null</code> if none found.
 	 */
-	public V put(K key, V value) {
-		if(m_map.put(key, new WeakReference<V>(value)) != null) {
-			return value;
+	@Override
+	public synchronized V put(K key, V value) {
+		if(value == null) {
+			throw new NullPointerException();
+		}
+		expungeStaleEntries();
+		return dereference(m_map.put(key, new ValueReference<K, V>(key, value, m_queue)));
+	}
+
+	public synchronized V putIfAbsent(K key, V value) {
+		V result = get(key);
+		if(result == null) {
+			put(key, value);
 		}
-		return null;
+		return result;
 	}
 
 	/**
 	 * Remove an entry from the map.
-	 * 
+	 *
 	 * @param key
 	 *        The key.
 	 * @return The removed value, or <code>null</code> if none found.
 	 */
-	public V remove(Object key) {
-		final WeakReference<V> reference = m_map.remove(key);
-		return reference != null ? reference.get() : null;
+	@Override
+	public synchronized V remove(Object key) {
+		expungeStaleEntries();
+		return dereference(m_map.remove(key));
 	}
 
-	public int size() {
-		// TODO Auto-generated method stub
-		return 0;
+	public synchronized boolean remove(Object key, Object value) {
+		V currentValue = get(key);
+		if(currentValue != null && currentValue.equals(value)) {
+			m_map.remove(key);
+			return true;
+		}
+		return false;
 	}
 
-	public boolean isEmpty() {
-		// TODO Auto-generated method stub
+	public synchronized boolean replace(K key, V oldValue, V newValue) {
+		V currentValue = get(key);
+		if(currentValue != null && currentValue.equals(oldValue)) {
+			put(key, newValue);
+			return true;
+		}
 		return false;
 	}
 
-	public boolean containsKey(Object key) {
-		// TODO Auto-generated method stub
-		return false;
+	public synchronized V replace(K key, V value) {
+		V result = get(key);
+		if(result != null) {
+			put(key, value);
+		}
+		return result;
 	}
 
-	public boolean containsValue(Object value) {
-		// TODO Auto-generated method stub
-		return false;
+	@Override
+	public synchronized int size() {
+		expungeStaleEntries();
+		return m_map.size();
+	}
+
+	@Override
+	public synchronized boolean containsKey(Object key) {
+		return get(key) != null;
 	}
 
-	public void putAll(Map<? extends K, ? extends V> m) {
-		// TODO Auto-generated method stub
+	@Override
+	public synchronized Set<Map.Entry<K, V>> entrySet() {
+		if(entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	/**
+	 * Returns the entries whose values have not been collected, oldest first.
+	 */
+	private synchronized List<Map.Entry<K, V>> snapshot() {
+		expungeStaleEntries();
+		List<Map.Entry<K, V>> result = new ArrayList<Map.Entry<K, V>>(m_map.size());
+		for(Map.Entry<K, ValueReference<K, V>> entry: m_map.entrySet()) {
+			V value = entry.getValue().get();
+			if(value != null) {
+				result.add(new Entry(entry.getKey(), value));
+			}
+		}
+		return result;
+	}
 
+	/**
+	 * Removes the entries whose values have been collected. An entry is only removed if it still holds the collected reference, not a value put for
+	 * the same key since.
+	 */
+	@SuppressWarnings("unchecked")
+	private void expungeStaleEntries() {
+		ValueReference<K, V> reference;
+		while((reference = (ValueReference<K, V>)m_queue.poll()) != null) {
+			if(m_map.get(reference.key) == reference) {
+				m_map.remove(reference.key);
+			}
+		}
 	}
 
-	public Set<K> keySet() {
-		// TODO Auto-generated method stub
-		return null;
+	private static <V> V dereference(WeakReference<V> reference) {
+		return reference != null ? reference.get() : null;
 	}
 
-	public Collection<V> values() {
-		// TODO Auto-generated method stub
-		return null;
+	private static final class ValueReference<K, V> extends WeakReference<V> {
+		private final K key;
+
+		private ValueReference(K key, V value, ReferenceQueue<V> queue) {
+			super(value, queue);
+			this.key = key;
+		}
 	}
 
-	public Set<java.util.Map.Entry<K, V>> entrySet() {
-		return null;
+	private final class Entry extends SimpleEntry<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		private Entry(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(V value) {
+			super.setValue(value);
+			return put(getKey(), value);
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			final Iterator<Map.Entry<K, V>> iterator = snapshot().iterator();
+			return new Iterator<Map.Entry<K, V>>() {
+				private Map.Entry<K, V> current;
+
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				public Map.Entry<K, V> next() {
+					current = iterator.next();
+					return current;
+				}
+
+				public void remove() {
+					if(current == null) {
+						throw new IllegalStateException();
+					}
+					WeakValueHashMap.this.remove(current.getKey(), current.getValue());
+					current = null;
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return WeakValueHashMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			WeakValueHashMap.this.clear();
+		}
 	}
 }
@@ -0,0 +1,35 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit.db;
+
+/**
+ * The summary of one child of a project, module or package in a build, read together with what the build pages show next to it: the child's summary
+ * in the last earlier build it was part of, or null if this is its first, and its counts accumulated over all builds up to this one.
+ */
+public class JUnitChildSummaryInfo {
+	private JUnitSummaryInfo summary;
+	private JUnitSummaryInfo previousSummary;
+	private JUnitMetricsInfo metrics;
+
+	public JUnitSummaryInfo getSummary() {
+		return summary;
+	}
+
+	public void setSummary(JUnitSummaryInfo summary) {
+		this.summary = summary;
+	}
+
+	public JUnitSummaryInfo getPreviousSummary() {
+		return previousSummary;
+	}
+
+	public void setPreviousSummary(JUnitSummaryInfo previousSummary) {
+		this.previousSummary = previousSummary;
+	}
+
+	public JUnitMetricsInfo getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(JUnitMetricsInfo metrics) {
+		this.metrics = metrics;
+	}
+}
@@ -0,0 +1,406 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A small bounded pool of Derby connections shared by every user of a {@link JUnitDB}. Idle connections are kept most recently used first,
+ * validated before they are handed out again and closed once they have been idle for longer than the configured time. Each pooled connection keeps
+ * its prepared statements, keyed by SQL text, for as long as the connection stays open. A cached statement is only handed out to one caller at a
+ * time and is never evicted from the cache while it is in use.
+ */
+public class JUnitConnectionPool {
+	private static final Logger LOGGER = Logger.getLogger(JUnitConnectionPool.class.getName());
+
+	private static final int VALIDATION_TIMEOUT = 5;
+
+	private final String dbUrl;
+
+	private final int maxConnections;
+	private final int maxCachedStatements;
+	private final long maxIdleTime;
+	private final long borrowTimeout;
+
+	private final LinkedList<PooledConnection> idleConnections;
+	private final Map<Connection, PooledConnection> borrowedConnections;
+
+	private final AtomicLong statementCacheHits;
+	private final AtomicLong statementCacheMisses;
+
+	private int openConnections;
+
+	private boolean isClosed;
+
+	public JUnitConnectionPool(String dbUrl, int maxConnections, int maxCachedStatements, long maxIdleTime, long borrowTimeout) {
+		this.dbUrl = dbUrl;
+		this.maxConnections = Math.max(1, maxConnections);
+		this.maxCachedStatements = maxCachedStatements;
+		this.maxIdleTime = maxIdleTime;
+		this.borrowTimeout = borrowTimeout;
+		this.idleConnections = new LinkedList<PooledConnection>();
+		this.borrowedConnections = new IdentityHashMap<Connection, PooledConnection>();
+		this.statementCacheHits = new AtomicLong();
+		this.statementCacheMisses = new AtomicLong();
+	}
+
+	public Connection borrowConnection() throws SQLException {
+		long deadline = System.currentTimeMillis() + borrowTimeout;
+		while(true) {
+			PooledConnection pooledConnection = null;
+			boolean isCreating = false;
+
+			List<PooledConnection> expiredConnections = null;
+			synchronized(this) {
+				if(isClosed) {
+					throw new SQLException("The connection pool of " + dbUrl + " is closed");
+				}
+				expiredConnections = removeExpiredConnections();
+				if(!idleConnections.isEmpty()) {
+					pooledConnection = idleConnections.removeFirst();
+				}
+				else if(openConnections < maxConnections) {
+					openConnections++;
+					isCreating = true;
+				}
+				else {
+					long waitTime = deadline - System.currentTimeMillis();
+					if(waitTime <= 0) {
+						throw new SQLException("Timed out waiting for a connection to " + dbUrl);
+					}
+					try {
+						wait(waitTime);
+					}
+					catch(InterruptedException iE) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for a connection to " + dbUrl);
+					}
+				}
+			}
+			closeConnections(expiredConnections);
+
+			if(isCreating) {
+				try {
+					pooledConnection = new PooledConnection(openConnection());
+				}
+				catch(SQLException sE) {
+					discardConnection();
+					throw sE;
+				}
+				catch(RuntimeException rE) {
+					discardConnection();
+					throw rE;
+				}
+			}
+			else if(pooledConnection != null && !isValid(pooledConnection.connection)) {
+				closeConnection(pooledConnection.connection);
+				discardConnection();
+				pooledConnection = null;
+			}
+
+			if(pooledConnection != null) {
+				synchronized(this) {
+					borrowedConnections.put(pooledConnection.connection, pooledConnection);
+				}
+				return pooledConnection.connection;
+			}
+		}
+	}
+
+	/**
+	 * Rolls back any outstanding work and makes the connection available to the next borrower. Connections that cannot be reset, or are returned
+	 * after the pool has been closed, are closed and dropped from the pool.
+	 */
+	public void returnConnection(Connection connection) {
+		if(connection != null) {
+			PooledConnection pooledConnection = null;
+			synchronized(this) {
+				pooledConnection = borrowedConnections.remove(connection);
+			}
+
+			if(pooledConnection == null) {
+				closeConnection(connection);
+			}
+			else if(!reset(connection) || !pooledConnection.releaseStatements()) {
+				closeConnection(connection);
+				discardConnection();
+			}
+			else {
+				List<PooledConnection> closingConnections = null;
+				synchronized(this) {
+					if(isClosed) {
+						closingConnections = Collections.singletonList(pooledConnection);
+						openConnections--;
+					}
+					else {
+						pooledConnection.idleSince = System.currentTimeMillis();
+						idleConnections.addFirst(pooledConnection);
+						closingConnections = removeExpiredConnections();
+					}
+					notifyAll();
+				}
+				closeConnections(closingConnections);
+			}
+		}
+	}
+
+	/**
+	 * Returns a prepared statement for the given SQL, reusing the one previously prepared on the same pooled connection if there is one. Statements
+	 * obtained here must be handed back through {@link #releaseStatement(PreparedStatement)} rather than closed.
+	 */
+	public PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+		PooledConnection pooledConnection = null;
+		synchronized(this) {
+			pooledConnection = borrowedConnections.get(connection);
+		}
+
+		PreparedStatement result = null;
+		if(pooledConnection != null && maxCachedStatements > 0) {
+			result = pooledConnection.borrowStatement(sql);
+			if(result != null) {
+				statementCacheHits.incrementAndGet();
+			}
+			else {
+				statementCacheMisses.incrementAndGet();
+				result = connection.prepareStatement(sql);
+				pooledConnection.cacheStatement(sql, result);
+			}
+		}
+		else {
+			result = connection.prepareStatement(sql);
+		}
+		return result;
+	}
+
+	public void releaseStatement(PreparedStatement pS) throws SQLException {
+		if(pS != null) {
+			PooledConnection pooledConnection = null;
+			synchronized(this) {
+				pooledConnection = borrowedConnections.get(pS.getConnection());
+			}
+
+			if(pooledConnection != null && pooledConnection.returnStatement(pS)) {
+				pS.clearBatch();
+				pS.clearParameters();
+			}
+			else {
+				pS.close();
+			}
+		}
+	}
+
+	/**
+	 * Closes the idle connections and stops handing out new ones. Connections still borrowed are closed as they are returned.
+	 */
+	public void close() {
+		List<PooledConnection> connections = null;
+		synchronized(this) {
+			isClosed = true;
+			connections = new ArrayList<PooledConnection>(idleConnections);
+			openConnections -= idleConnections.size();
+			idleConnections.clear();
+			notifyAll();
+		}
+		closeConnections(connections);
+	}
+
+	public synchronized int getOpenConnectionCount() {
+		return openConnections;
+	}
+
+	public synchronized int getIdleConnectionCount() {
+		return idleConnections.size();
+	}
+
+	public long getStatementCacheHitCount() {
+		return statementCacheHits.get();
+	}
+
+	public long getStatementCacheMissCount() {
+		return statementCacheMisses.get();
+	}
+
+	private Connection openConnection() throws SQLException {
+		Connection connection = DriverManager.getConnection(dbUrl);
+		connection.setAutoCommit(false);
+		return connection;
+	}
+
+	private synchronized void discardConnection() {
+		openConnections--;
+		notifyAll();
+	}
+
+	private boolean reset(Connection connection) {
+		try {
+			if(connection.isClosed()) {
+				return false;
+			}
+			if(connection.getAutoCommit()) {
+				connection.setAutoCommit(false);
+			}
+			else {
+				connection.rollback();
+			}
+			return true;
+		}
+		catch(SQLException sE) {
+			LOGGER.log(Level.WARNING, sE.getMessage(), sE);
+			return false;
+		}
+	}
+
+	private boolean isValid(Connection connection) {
+		try {
+			return !connection.isClosed() && connection.isValid(VALIDATION_TIMEOUT);
+		}
+		catch(SQLException sE) {
+			LOGGER.log(Level.FINE, sE.getMessage(), sE);
+			return false;
+		}
+	}
+
+	/**
+	 * Must be called while holding the pool lock; the returned connections are closed by the caller once the lock has been released.
+	 */
+	private List<PooledConnection> removeExpiredConnections() {
+		List<PooledConnection> result = null;
+		if(maxIdleTime > 0) {
+			long expiryTime = System.currentTimeMillis() - maxIdleTime;
+			Iterator<PooledConnection> iter = idleConnections.descendingIterator();
+			while(iter.hasNext()) {
+				PooledConnection pooledConnection = iter.next();
+				if(pooledConnection.idleSince >= expiryTime) {
+					break;
+				}
+				iter.remove();
+				openConnections--;
+				if(result == null) {
+					result = new ArrayList<PooledConnection>();
+				}
+				result.add(pooledConnection);
+			}
+		}
+		return result;
+	}
+
+	private void closeConnections(List<PooledConnection> connections) {
+		if(connections != null) {
+			for(PooledConnection pooledConnection: connections) {
+				closeConnection(pooledConnection.connection);
+			}
+		}
+	}
+
+	private void closeConnection(Connection connection) {
+		try {
+			connection.close();
+		}
+		catch(SQLException sE) {
+			LOGGER.log(Level.FINE, sE.getMessage(), sE);
+		}
+	}
+
+	private static void closeStatement(PreparedStatement pS) {
+		try {
+			pS.close();
+		}
+		catch(SQLException sE) {
+			LOGGER.log(Level.FINE, sE.getMessage(), sE);
+		}
+	}
+
+	private final class PooledConnection {
+		private final Connection connection;
+
+		/**
+		 * The cached statements by key, least recently used first.
+		 */
+		private final LinkedHashMap<String, PreparedStatement> statementCache;
+		private final Map<PreparedStatement, String> statementKeys;
+		private final Set<PreparedStatement> borrowedStatements;
+
+		private long idleSince;
+
+		private PooledConnection(Connection connection) {
+			this.connection = connection;
+			this.statementCache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+			this.statementKeys = new IdentityHashMap<PreparedStatement, String>();
+			this.borrowedStatements = Collections.newSetFromMap(new IdentityHashMap<PreparedStatement, Boolean>());
+		}
+
+		/**
+		 * Returns the cached statement with the given key, or null if there is none or it is already in use.
+		 */
+		private PreparedStatement borrowStatement(String key) {
+			PreparedStatement result = statementCache.get(key);
+			if(result != null && !borrowedStatements.add(result)) {
+				result = null;
+			}
+			return result;
+		}
+
+		/**
+		 * Caches a newly prepared statement, unless one is already cached for the key, and evicts the least recently used statements that are not in
+		 * use while the cache is over its size.
+		 */
+		private void cacheStatement(String key, PreparedStatement pS) {
+			if(!statementCache.containsKey(key)) {
+				statementCache.put(key, pS);
+				statementKeys.put(pS, key);
+				borrowedStatements.add(pS);
+
+				Iterator<PreparedStatement> iter = statementCache.values().iterator();
+				while(statementCache.size() > maxCachedStatements && iter.hasNext()) {
+					PreparedStatement cachedPS = iter.next();
+					if(!borrowedStatements.contains(cachedPS)) {
+						iter.remove();
+						statementKeys.remove(cachedPS);
+						closeStatement(cachedPS);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns true if the statement is cached, in which case it is available to the next caller.
+		 */
+		private boolean returnStatement(PreparedStatement pS) {
+			borrowedStatements.remove(pS);
+			return statementKeys.containsKey(pS);
+		}
+
+		/**
+		 * Makes the statements not handed back by the last borrower of the connection available again, returning false if one of them could not be
+		 * reset.
+		 */
+		private boolean releaseStatements() {
+			boolean result = true;
+			for(PreparedStatement pS: borrowedStatements) {
+				try {
+					pS.clearBatch();
+					pS.clearParameters();
+				}
+				catch(SQLException sE) {
+					LOGGER.log(Level.FINE, sE.getMessage(), sE);
+					result = false;
+				}
+			}
+			borrowedStatements.clear();
+			return result;
+		}
+	}
+}
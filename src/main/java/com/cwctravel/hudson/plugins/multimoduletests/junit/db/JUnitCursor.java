@@ -0,0 +1,144 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit.db;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A forward only, single pass view of the rows of a {@link JUnitDB} query, read one at a time as the caller iterates rather than collected into a list
+ * up front. The cursor holds on to a pooled connection until it is closed, so callers must close it in a finally block; it also closes itself as soon
+ * as the last row has been read. Errors raised while iterating are rethrown as {@link IllegalStateException}s wrapping the {@link SQLException}.
+ */
+public abstract class JUnitCursor<T> implements Iterator<T>, Iterable<T>, Closeable {
+	private static final Logger LOGGER = Logger.getLogger(JUnitCursor.class.getName());
+
+	private final JUnitConnectionPool connectionPool;
+
+	private Connection connection;
+	private PreparedStatement pS;
+	private ResultSet rS;
+
+	private T next;
+
+	JUnitCursor(JUnitConnectionPool connectionPool) {
+		this.connectionPool = connectionPool;
+	}
+
+	void open(String query, Object... parameters) throws SQLException {
+		connection = connectionPool.borrowConnection();
+		try {
+			pS = connectionPool.prepareStatement(connection, query);
+			for(int i = 0; i < parameters.length; i++) {
+				pS.setObject(i + 1, parameters[i]);
+			}
+			rS = pS.executeQuery();
+		}
+		catch(SQLException sE) {
+			close();
+			throw sE;
+		}
+		catch(RuntimeException rE) {
+			close();
+			throw rE;
+		}
+	}
+
+	protected abstract T read(ResultSet rS) throws SQLException;
+
+	/**
+	 * Returns this cursor, so that it can be used in a for-each loop. The rows can only be walked once.
+	 */
+	public Iterator<T> iterator() {
+		return this;
+	}
+
+	public boolean hasNext() {
+		try {
+			return fetch();
+		}
+		catch(SQLException sE) {
+			throw new IllegalStateException(sE.getMessage(), sE);
+		}
+	}
+
+	public T next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		T result = next;
+		next = null;
+		return result;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Reads at most limit of the remaining rows, or all of them if limit is negative, and closes the cursor.
+	 */
+	public List<T> toList(int limit) throws SQLException {
+		List<T> result = new ArrayList<T>();
+		try {
+			while((limit < 0 || result.size() < limit) && fetch()) {
+				result.add(next);
+				next = null;
+			}
+		}
+		finally {
+			close();
+		}
+		return result;
+	}
+
+	public void close() {
+		if(rS != null) {
+			try {
+				rS.close();
+			}
+			catch(SQLException sE) {
+				LOGGER.log(Level.FINE, sE.getMessage(), sE);
+			}
+			rS = null;
+		}
+		if(pS != null) {
+			try {
+				connectionPool.releaseStatement(pS);
+			}
+			catch(SQLException sE) {
+				LOGGER.log(Level.FINE, sE.getMessage(), sE);
+			}
+			pS = null;
+		}
+		if(connection != null) {
+			connectionPool.returnConnection(connection);
+			connection = null;
+		}
+	}
+
+	private boolean fetch() throws SQLException {
+		if(next == null && rS != null) {
+			try {
+				if(rS.next()) {
+					next = read(rS);
+				}
+				else {
+					close();
+				}
+			}
+			catch(SQLException sE) {
+				close();
+				throw sE;
+			}
+		}
+		return next != null;
+	}
+}
@@ -16,7 +16,19 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,64 +38,110 @@ import com.cwctravel.hudson.plugins.multimoduletests.junit.io.ReaderWriter;
 
 public class JUnitDB {
 	//@formatter:off
+	private static final String COMPACT_JUNIT_CLASS_SUMMARY_QUERY = "DELETE FROM JUNIT_CLASS_SUMMARY WHERE PROJECT_ID = ? AND BUILD_ID NOT IN (SELECT BUILD_ID FROM JUNIT_ACTIVE_BUILDS WHERE PROJECT_NAME = ?)";
 	private static final String COMPACT_JUNIT_PACKAGE_SUMMARY_QUERY = "DELETE FROM JUNIT_PACKAGE_SUMMARY WHERE PROJECT_NAME = ? AND BUILD_ID NOT IN (SELECT BUILD_ID FROM JUNIT_ACTIVE_BUILDS WHERE PROJECT_NAME = ?)";
 	private static final String COMPACT_JUNIT_MODULE_SUMMARY_QUERY = "DELETE FROM JUNIT_MODULE_SUMMARY WHERE PROJECT_NAME = ? AND BUILD_ID NOT IN (SELECT BUILD_ID FROM JUNIT_ACTIVE_BUILDS WHERE PROJECT_NAME = ?)";
 	private static final String COMPACT_JUNIT_PROJECT_SUMMARY_QUERY = "DELETE FROM JUNIT_PROJECT_SUMMARY WHERE PROJECT_NAME = ? AND BUILD_ID NOT IN (SELECT BUILD_ID FROM JUNIT_ACTIVE_BUILDS WHERE PROJECT_NAME = ?)";
-	private static final String COMPACT_JUNIT_TESTS_QUERY = "DELETE FROM JUNIT_TESTS WHERE PROJECT_NAME = ? AND BUILD_ID NOT IN (SELECT BUILD_ID FROM JUNIT_ACTIVE_BUILDS WHERE PROJECT_NAME = ?)";
+	private static final String COMPACT_JUNIT_TEST_DETAILS_QUERY = "DELETE FROM JUNIT_TEST_DETAILS WHERE ID IN (SELECT T.DETAIL_ID FROM JUNIT_TESTS T WHERE T.PROJECT_ID = ? AND T.BUILD_ID NOT IN (SELECT BUILD_ID FROM JUNIT_ACTIVE_BUILDS WHERE PROJECT_NAME = ?))";
+	private static final String COMPACT_JUNIT_BUILD_DIFFS_QUERY = "DELETE FROM JUNIT_BUILD_DIFFS WHERE PROJECT_ID = ? AND BUILD_ID NOT IN (SELECT BUILD_ID FROM JUNIT_ACTIVE_BUILDS WHERE PROJECT_NAME = ?)";
+	private static final String COMPACT_JUNIT_TESTS_QUERY = "DELETE FROM JUNIT_TESTS WHERE PROJECT_ID = ? AND BUILD_ID NOT IN (SELECT BUILD_ID FROM JUNIT_ACTIVE_BUILDS WHERE PROJECT_NAME = ?)";
+	private static final String COMPACT_JUNIT_TEST_IDENTITY_QUERY = "DELETE FROM JUNIT_TEST_IDENTITY WHERE PROJECT_ID = ? AND NOT EXISTS (SELECT 1 FROM JUNIT_TESTS T WHERE T.TEST_ID = JUNIT_TEST_IDENTITY.TEST_ID)";
 	
 	
 	private static final String CLEAR_JUNIT_ACTIVE_BUILDS_QUERY = "DELETE FROM JUNIT_ACTIVE_BUILDS WHERE PROJECT_NAME = ?";
 	
-	private static final String JUNIT_TESTS_SELECT_TESTCASE_DETAIL_QUERY = "SELECT ERROR_MESSAGE, ERROR_STACK_TRACE, STDOUT, STDERR FROM JUNIT_TESTS WHERE " +
-																			"BUILD_NUMBER = ? AND " +
-																			"PROJECT_NAME = ? AND " +
-																			"MODULE_NAME = ? AND " +
-																			"PACKAGE_NAME = ? AND " +
-																			"CLASS_NAME = ? AND " +
-																			"CASE_NAME = ?";
+	private static final String JUNIT_TESTS_SELECT_TESTCASE_DETAIL_QUERY = "SELECT D.ERROR_MESSAGE, D.ERROR_STACK_TRACE, D.STDOUT, D.STDERR FROM JUNIT_TESTS T LEFT OUTER JOIN JUNIT_TEST_DETAILS D ON D.ID = T.DETAIL_ID WHERE " +
+																			"T.BUILD_NUMBER = ? AND " +
+																			"T.TEST_ID = ?";
 
+	private static final String JUNIT_TESTS_SELECT_TESTCASE_STDIO_QUERY = "SELECT T.TEST_ID, D.STDOUT, D.STDERR FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_DETAILS D ON D.ID = T.DETAIL_ID WHERE " +
+																		 "T.BUILD_NUMBER = ? AND " +
+																		 "T.TEST_ID IN (?, ?)";
+
+	
+	
+	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_QUERY =
+			"SELECT T.ID, I.PROJECT_NAME, T.BUILD_ID, T.BUILD_NUMBER, I.MODULE_NAME, I.PACKAGE_NAME, I.CLASS_NAME, I.CASE_NAME, T.INDEX, T.STATUS, T.START_TIME, T.DURATION, T.FAILED_SINCE FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID WHERE T.PROJECT_ID = ? AND T.BUILD_NUMBER = ?";
+	
+	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_STATUS_QUERY =
+			"SELECT T.ID, I.PROJECT_NAME, T.BUILD_ID, T.BUILD_NUMBER, I.MODULE_NAME, I.PACKAGE_NAME, I.CLASS_NAME, I.CASE_NAME, T.INDEX, T.STATUS, T.START_TIME, T.DURATION, T.FAILED_SINCE FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID WHERE T.PROJECT_ID = ? AND T.BUILD_NUMBER = ? AND T.STATUS BETWEEN ? AND ?";
 	
+	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_QUERY =
+			"SELECT T.ID, I.PROJECT_NAME, T.BUILD_ID, T.BUILD_NUMBER, I.MODULE_NAME, I.PACKAGE_NAME, I.CLASS_NAME, I.CASE_NAME, T.INDEX, T.STATUS, T.START_TIME, T.DURATION, T.FAILED_SINCE FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID WHERE T.MODULE_ID = ? AND T.BUILD_NUMBER = ?";
 	
-	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_QUERY = 
-			"SELECT ID, PROJECT_NAME, BUILD_ID, BUILD_NUMBER, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME, INDEX, STATUS, START_TIME, DURATION FROM JUNIT_TESTS WHERE PROJECT_NAME = ? AND BUILD_NUMBER = ?";
+	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_STATUS_QUERY =
+			"SELECT T.ID, I.PROJECT_NAME, T.BUILD_ID, T.BUILD_NUMBER, I.MODULE_NAME, I.PACKAGE_NAME, I.CLASS_NAME, I.CASE_NAME, T.INDEX, T.STATUS, T.START_TIME, T.DURATION, T.FAILED_SINCE FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID WHERE T.MODULE_ID = ? AND T.BUILD_NUMBER = ? AND T.STATUS BETWEEN ? AND ?";
 	
-	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_QUERY = 
-			"SELECT ID, PROJECT_NAME, BUILD_ID, BUILD_NUMBER, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME, INDEX, STATUS, START_TIME, DURATION FROM JUNIT_TESTS WHERE PROJECT_NAME = ? AND BUILD_NUMBER = ? AND MODULE_NAME = ?";
+	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_PACKAGE_NAME_QUERY =
+			"SELECT T.ID, I.PROJECT_NAME, T.BUILD_ID, T.BUILD_NUMBER, I.MODULE_NAME, I.PACKAGE_NAME, I.CLASS_NAME, I.CASE_NAME, T.INDEX, T.STATUS, T.START_TIME, T.DURATION, T.FAILED_SINCE FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID WHERE T.PACKAGE_ID = ? AND T.BUILD_NUMBER = ?";
 	
-	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_PACKAGE_NAME_QUERY = 
-			"SELECT ID, PROJECT_NAME, BUILD_ID, BUILD_NUMBER, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME, INDEX, STATUS, START_TIME, DURATION FROM JUNIT_TESTS WHERE PROJECT_NAME = ? AND BUILD_NUMBER = ? AND MODULE_NAME = ? AND PACKAGE_NAME = ?";
+	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_PACKAGE_NAME_STATUS_QUERY =
+			"SELECT T.ID, I.PROJECT_NAME, T.BUILD_ID, T.BUILD_NUMBER, I.MODULE_NAME, I.PACKAGE_NAME, I.CLASS_NAME, I.CASE_NAME, T.INDEX, T.STATUS, T.START_TIME, T.DURATION, T.FAILED_SINCE FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID WHERE T.PACKAGE_ID = ? AND T.BUILD_NUMBER = ? AND T.STATUS BETWEEN ? AND ?";
 	
 	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_PACKAGE_NAME_CLASS_NAME_QUERY =
-			"SELECT ID, PROJECT_NAME, BUILD_ID, BUILD_NUMBER, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME, INDEX, STATUS, START_TIME, DURATION FROM JUNIT_TESTS WHERE PROJECT_NAME = ? AND BUILD_NUMBER = ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND CLASS_NAME = ?";
+			"SELECT T.ID, I.PROJECT_NAME, T.BUILD_ID, T.BUILD_NUMBER, I.MODULE_NAME, I.PACKAGE_NAME, I.CLASS_NAME, I.CASE_NAME, T.INDEX, T.STATUS, T.START_TIME, T.DURATION, T.FAILED_SINCE FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID WHERE T.CLASS_ID = ? AND T.BUILD_NUMBER = ?";
+	
+	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_PACKAGE_NAME_CLASS_NAME_STATUS_QUERY =
+			"SELECT T.ID, I.PROJECT_NAME, T.BUILD_ID, T.BUILD_NUMBER, I.MODULE_NAME, I.PACKAGE_NAME, I.CLASS_NAME, I.CASE_NAME, T.INDEX, T.STATUS, T.START_TIME, T.DURATION, T.FAILED_SINCE FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID WHERE T.CLASS_ID = ? AND T.BUILD_NUMBER = ? AND T.STATUS BETWEEN ? AND ?";
 	
 	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_CLASS_NAME_CASE_NAME_QUERY =
-			"SELECT ID, PROJECT_NAME, BUILD_ID, BUILD_NUMBER, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME, INDEX, STATUS, START_TIME, DURATION FROM JUNIT_TESTS WHERE PROJECT_NAME = ? AND BUILD_NUMBER = ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND CLASS_NAME = ? AND CASE_NAME = ?";
+			"SELECT T.ID, I.PROJECT_NAME, T.BUILD_ID, T.BUILD_NUMBER, I.MODULE_NAME, I.PACKAGE_NAME, I.CLASS_NAME, I.CASE_NAME, T.INDEX, T.STATUS, T.START_TIME, T.DURATION, T.FAILED_SINCE FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID WHERE T.TEST_ID = ? AND T.BUILD_NUMBER = ?";
 
 	private static final String JUNIT_TESTS_SELECT_BY_PROJECT_NAME_PRIOR_BUILD_NUMBER_MODULE_NAME_CLASS_NAME_CASE_NAME_QUERY =
-			"SELECT ID, PROJECT_NAME, BUILD_ID, BUILD_NUMBER, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME, INDEX, STATUS, START_TIME, DURATION FROM JUNIT_TESTS WHERE BUILD_NUMBER < ? AND PROJECT_NAME LIKE ? AND MODULE_NAME LIKE ? AND PACKAGE_NAME LIKE ? AND CLASS_NAME LIKE ? AND CASE_NAME LIKE ? FETCH FIRST ROW ONLY";
+			"SELECT T.ID, I.PROJECT_NAME, T.BUILD_ID, T.BUILD_NUMBER, I.MODULE_NAME, I.PACKAGE_NAME, I.CLASS_NAME, I.CASE_NAME, T.INDEX, T.STATUS, T.START_TIME, T.DURATION, T.FAILED_SINCE FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID WHERE T.BUILD_NUMBER < ? AND T.TEST_ID = ? ORDER BY T.BUILD_NUMBER DESC FETCH FIRST ROW ONLY";
 
 	
 	private static final String JUNIT_TESTS_TEST_CASE_HISTORY_QUERY =
-			"SELECT ID, PROJECT_NAME, BUILD_ID, BUILD_NUMBER, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME, INDEX, STATUS, START_TIME, DURATION FROM JUNIT_TESTS WHERE PROJECT_NAME = ? AND MODULE_NAME = ? AND PACKAGE_NAME =? AND CLASS_NAME = ? AND CASE_NAME = ? ORDER BY ID DESC";
+			"SELECT T.ID, I.PROJECT_NAME, T.BUILD_ID, T.BUILD_NUMBER, I.MODULE_NAME, I.PACKAGE_NAME, I.CLASS_NAME, I.CASE_NAME, T.INDEX, T.STATUS, T.START_TIME, T.DURATION, T.FAILED_SINCE FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID WHERE T.TEST_ID = ? ORDER BY T.ID DESC";
 
 	private static final String TABLE_NAME_JUNIT_TESTS = "JUNIT_TESTS";
+	private static final String TABLE_NAME_JUNIT_TEST_IDENTITY = "JUNIT_TEST_IDENTITY";
+	private static final String TABLE_NAME_JUNIT_TEST_DETAILS = "JUNIT_TEST_DETAILS";
+
+	private static final String SEQUENCE_NAME_JUNIT_TEST_DETAIL_IDS = "JUNIT_TEST_DETAIL_IDS";
+	private static final String TABLE_NAME_JUNIT_CLASS_SUMMARY = "JUNIT_CLASS_SUMMARY";
+	private static final String TABLE_NAME_JUNIT_PACKAGE_SUMMARY = "JUNIT_PACKAGE_SUMMARY";
+	private static final String TABLE_NAME_JUNIT_MODULE_SUMMARY = "JUNIT_MODULE_SUMMARY";
+	private static final String TABLE_NAME_JUNIT_PROJECT_SUMMARY = "JUNIT_PROJECT_SUMMARY";
+	private static final String TABLE_NAME_JUNIT_BUILD_DIFFS = "JUNIT_BUILD_DIFFS";
+
+	private static final String SUMMARY_FAILED_CONDITION = "%1$s.FAIL_COUNT + %1$s.ERROR_COUNT > 0";
 
 	private static final String JUNIT_TESTS_SUMMARIZE_TEST_CASE_HISTORY_QUERY =			
-			"SELECT MIN(BUILD_ID) BUILD_ID, " +
-				   "BUILD_NUMBER, " +
-				   "PROJECT_NAME, " +
-				   "MODULE_NAME, " +
-				   "PACKAGE_NAME, " +
-				   "CLASS_NAME, " +
-				   "CASE_NAME, " +
-				   "COUNT(*) TOTAL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
-				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_TESTS WHERE PROJECT_NAME = ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND CLASS_NAME = ? AND CASE_NAME = ? GROUP BY BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME  ORDER BY BUILD_NUMBER DESC";
+			"SELECT T.BUILD_ID, " +
+				   "T.BUILD_NUMBER, " +
+				   "I.PROJECT_NAME, " +
+				   "I.MODULE_NAME, " +
+				   "I.PACKAGE_NAME, " +
+				   "I.CLASS_NAME, " +
+				   "I.CASE_NAME, " +
+				   "T.TOTAL_COUNT, " +
+				   "T.PASS_COUNT, " +
+				   "T.FAIL_COUNT, " +
+				   "T.ERROR_COUNT, " +
+				   "T.SKIP_COUNT, " +
+				   "T.START_TIME, " +
+				   "T.DURATION, " +
+				   "T.FAILED_SINCE " +
+				   "FROM (SELECT MIN(BUILD_ID) BUILD_ID, " +
+						  "BUILD_NUMBER, " +
+						  "MIN(TEST_ID) TEST_ID, " +
+						  "COUNT(*) TOTAL_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
+						  "MIN(START_TIME) START_TIME, " +
+						  "SUM(DURATION) DURATION, " +
+						  "MAX(FAILED_SINCE) FAILED_SINCE " +
+						  "FROM JUNIT_TESTS WHERE TEST_ID = ? AND BUILD_NUMBER < ? GROUP BY BUILD_NUMBER ORDER BY BUILD_NUMBER DESC FETCH FIRST ? ROWS ONLY) T " +
+				   "INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID ORDER BY T.BUILD_NUMBER DESC";
+
+	private static final String JUNIT_TESTS_COUNT_TEST_CASE_HISTORY_QUERY =
+			"SELECT COUNT(DISTINCT BUILD_NUMBER) FROM JUNIT_TESTS WHERE TEST_ID = ?";
+
+	private static final String JUNIT_TESTS_FETCH_TEST_CASE_BUILD_NUMBERS_QUERY =
+			"SELECT DISTINCT BUILD_NUMBER FROM JUNIT_TESTS WHERE TEST_ID = ? AND BUILD_NUMBER >= ? ORDER BY BUILD_NUMBER FETCH FIRST ? ROWS ONLY";
 
 	private static final String JUNIT_TESTS_FETCH_TEST_CASE_METRICS_FOR_BUILD_QUERY =			
 			"SELECT COUNT(*) TOTAL_COUNT, " +
@@ -93,120 +151,140 @@ public class JUnitDB {
 				   "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
 				   "MIN(START_TIME) START_TIME, " +
 				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_TESTS WHERE BUILD_NUMBER <=? AND PROJECT_NAME = ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND CLASS_NAME = ? AND CASE_NAME = ?";
+				   "FROM JUNIT_TESTS WHERE BUILD_NUMBER <= ? AND TEST_ID = ?";
 	
 	
 	private static final String JUNIT_TESTS_SUMMARIZE_TEST_CASE_FOR_BUILD_QUERY =			
-			"SELECT MIN(BUILD_ID) BUILD_ID, " +
-				   "BUILD_NUMBER, " +
-				   "PROJECT_NAME, " +
-				   "MODULE_NAME, " +
-				   "PACKAGE_NAME, " +
-				   "CLASS_NAME, " +
-				   "CASE_NAME, " +
-				   "COUNT(*) TOTAL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
-				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_TESTS WHERE BUILD_NUMBER = ? AND PROJECT_NAME= ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND CLASS_NAME = ? AND CASE_NAME = ? GROUP BY BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME";	
+			"SELECT T.BUILD_ID, " +
+				   "T.BUILD_NUMBER, " +
+				   "I.PROJECT_NAME, " +
+				   "I.MODULE_NAME, " +
+				   "I.PACKAGE_NAME, " +
+				   "I.CLASS_NAME, " +
+				   "I.CASE_NAME, " +
+				   "T.TOTAL_COUNT, " +
+				   "T.PASS_COUNT, " +
+				   "T.FAIL_COUNT, " +
+				   "T.ERROR_COUNT, " +
+				   "T.SKIP_COUNT, " +
+				   "T.START_TIME, " +
+				   "T.DURATION, " +
+				   "T.FAILED_SINCE " +
+				   "FROM (SELECT MIN(BUILD_ID) BUILD_ID, " +
+						  "BUILD_NUMBER, " +
+						  "MIN(TEST_ID) TEST_ID, " +
+						  "COUNT(*) TOTAL_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
+						  "MIN(START_TIME) START_TIME, " +
+						  "SUM(DURATION) DURATION, " +
+						  "MAX(FAILED_SINCE) FAILED_SINCE " +
+						  "FROM JUNIT_TESTS WHERE BUILD_NUMBER = ? AND TEST_ID = ? GROUP BY BUILD_NUMBER) T " +
+				   "INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID";
 	
 	private static final String JUNIT_TESTS_SUMMARIZE_TEST_CASE_FOR_BUILD_PRIOR_TO_QUERY =			
-			"SELECT MIN(BUILD_ID) BUILD_ID, " +
-				   "BUILD_NUMBER, " +
-				   "PROJECT_NAME, " +
-				   "MODULE_NAME, " +
-				   "PACKAGE_NAME, " +
-				   "CLASS_NAME, " +
-				   "CASE_NAME, " +
-				   "COUNT(*) TOTAL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
-				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_TESTS WHERE BUILD_NUMBER < ? AND PROJECT_NAME= ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND CLASS_NAME = ? AND CASE_NAME = ? GROUP BY BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME ORDER BY BUILD_NUMBER DESC";	
+			"SELECT T.BUILD_ID, " +
+				   "T.BUILD_NUMBER, " +
+				   "I.PROJECT_NAME, " +
+				   "I.MODULE_NAME, " +
+				   "I.PACKAGE_NAME, " +
+				   "I.CLASS_NAME, " +
+				   "I.CASE_NAME, " +
+				   "T.TOTAL_COUNT, " +
+				   "T.PASS_COUNT, " +
+				   "T.FAIL_COUNT, " +
+				   "T.ERROR_COUNT, " +
+				   "T.SKIP_COUNT, " +
+				   "T.START_TIME, " +
+				   "T.DURATION, " +
+				   "T.FAILED_SINCE " +
+				   "FROM (SELECT MIN(BUILD_ID) BUILD_ID, " +
+						  "BUILD_NUMBER, " +
+						  "MIN(TEST_ID) TEST_ID, " +
+						  "COUNT(*) TOTAL_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
+						  "MIN(START_TIME) START_TIME, " +
+						  "SUM(DURATION) DURATION, " +
+						  "MAX(FAILED_SINCE) FAILED_SINCE " +
+						  "FROM JUNIT_TESTS WHERE BUILD_NUMBER < ? AND TEST_ID = ? GROUP BY BUILD_NUMBER) T " +
+				   "INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID ORDER BY T.BUILD_NUMBER DESC";
 	
 	private static final String JUNIT_TESTS_SUMMARIZE_TEST_CLASS_HISTORY_QUERY =			
-			"SELECT MIN(BUILD_ID) BUILD_ID, " +
+			"SELECT BUILD_ID, " +
 				   "BUILD_NUMBER, " +
 				   "PROJECT_NAME, " +
 				   "MODULE_NAME, " +
 				   "PACKAGE_NAME, " +
 				   "CLASS_NAME, " +
 				   "'' CASE_NAME, " +
-				   "COUNT(*) TOTAL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
-				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_TESTS WHERE PROJECT_NAME= ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND CLASS_NAME = ? GROUP BY BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME  ORDER BY BUILD_NUMBER DESC";
+				   "TOTAL_COUNT, " +
+				   "PASS_COUNT, " +
+				   "FAIL_COUNT, " +
+				   "ERROR_COUNT, " +
+				   "SKIP_COUNT, " +
+				   "START_TIME, " +
+				   "DURATION, " +
+				   "FAILED_SINCE " +
+				   "FROM JUNIT_CLASS_SUMMARY WHERE CLASS_ID = ? AND BUILD_NUMBER < ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ? ROWS ONLY";
+
+	private static final String JUNIT_TESTS_COUNT_TEST_CLASS_HISTORY_QUERY =
+			"SELECT COUNT(*) FROM JUNIT_CLASS_SUMMARY WHERE CLASS_ID = ?";
+
+	private static final String JUNIT_TESTS_FETCH_TEST_CLASS_BUILD_NUMBERS_QUERY =
+			"SELECT BUILD_NUMBER FROM JUNIT_CLASS_SUMMARY WHERE CLASS_ID = ? AND BUILD_NUMBER >= ? ORDER BY BUILD_NUMBER FETCH FIRST ? ROWS ONLY";
 	
 	private static final String JUNIT_TESTS_FETCH_TEST_CLASS_METRICS_FOR_BUILD_QUERY =			
-			"SELECT COUNT(*) TOTAL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
-				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_TESTS WHERE BUILD_NUMBER <= ? AND PROJECT_NAME= ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND CLASS_NAME = ?";
-	
-
-	private static final String JUNIT_TESTS_FETCH_TEST_CLASS_CHILDREN_FOR_BUILD_QUERY =			
-			"SELECT ID, " +
-					"PROJECT_NAME, " +
-					"BUILD_ID, " +
-					"BUILD_NUMBER, " +
-					"MODULE_NAME, " +
-					"PACKAGE_NAME, " +
-					"CLASS_NAME, " +
-					"CASE_NAME, " +
-					"INDEX, " +
-					"STATUS, " +
-					"START_TIME,  " +
-					"DURATION " +
-					"FROM JUNIT_TESTS " +
-					"WHERE BUILD_NUMBER = ? AND PROJECT_NAME= ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND CLASS_NAME = ?";
+			"SELECT CUMULATIVE_TOTAL_COUNT, " +
+				   "CUMULATIVE_PASS_COUNT, " +
+				   "CUMULATIVE_FAIL_COUNT, " +
+				   "CUMULATIVE_ERROR_COUNT, " +
+				   "CUMULATIVE_SKIP_COUNT " +
+				   "FROM JUNIT_CLASS_SUMMARY WHERE BUILD_NUMBER <= ? AND CLASS_ID = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";
+	
+
+	private static final String JUNIT_TESTS_FETCH_TEST_CLASS_CHILDREN_FOR_BUILD_QUERY =
+			"SELECT T.ID, I.PROJECT_NAME, T.BUILD_ID, T.BUILD_NUMBER, I.MODULE_NAME, I.PACKAGE_NAME, I.CLASS_NAME, I.CASE_NAME, T.INDEX, T.STATUS, T.START_TIME, T.DURATION, T.FAILED_SINCE FROM JUNIT_TESTS T INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID WHERE T.BUILD_NUMBER = ? AND T.CLASS_ID = ?";
 	
 	private static final String JUNIT_TESTS_SUMMARIZE_TEST_CLASS_FOR_BUILD_QUERY =			
-			"SELECT MIN(BUILD_ID) BUILD_ID, " +
+			"SELECT BUILD_ID, " +
 				   "BUILD_NUMBER, " +
 				   "PROJECT_NAME, " +
 				   "MODULE_NAME, " +
 				   "PACKAGE_NAME, " +
 				   "CLASS_NAME, " +
 				   "'' CASE_NAME, " +
-				   "COUNT(*) TOTAL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
-				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_TESTS WHERE BUILD_NUMBER = ? AND PROJECT_NAME= ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND CLASS_NAME = ? GROUP BY BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME ";
+				   "TOTAL_COUNT, " +
+				   "PASS_COUNT, " +
+				   "FAIL_COUNT, " +
+				   "ERROR_COUNT, " +
+				   "SKIP_COUNT, " +
+				   "START_TIME, " +
+				   "DURATION, " +
+				   "FAILED_SINCE " +
+				   "FROM JUNIT_CLASS_SUMMARY WHERE BUILD_NUMBER = ? AND CLASS_ID = ?";
 
 	private static final String JUNIT_TESTS_SUMMARIZE_TEST_CLASS_FOR_BUILD_PRIOR_TO_QUERY =			
-			"SELECT MIN(BUILD_ID), " +
+			"SELECT BUILD_ID, " +
 				   "BUILD_NUMBER, " +
 				   "PROJECT_NAME, " +
 				   "MODULE_NAME, " +
 				   "PACKAGE_NAME, " +
 				   "CLASS_NAME, " +
 				   "'' CASE_NAME, " +
-				   "COUNT(*) TOTAL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
-				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_TESTS WHERE BUILD_NUMBER < ? AND PROJECT_NAME = ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND CLASS_NAME = ? GROUP BY BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";	
+				   "TOTAL_COUNT, " +
+				   "PASS_COUNT, " +
+				   "FAIL_COUNT, " +
+				   "ERROR_COUNT, " +
+				   "SKIP_COUNT, " +
+				   "START_TIME, " +
+				   "DURATION, " +
+				   "FAILED_SINCE " +
+				   "FROM JUNIT_CLASS_SUMMARY WHERE BUILD_NUMBER < ? AND CLASS_ID = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";
 	
 	private static final String JUNIT_TESTS_SUMMARIZE_TEST_PACKAGE_HISTORY_QUERY =			
 			"SELECT MIN(BUILD_ID) BUILD_ID, " +
@@ -222,53 +300,131 @@ public class JUnitDB {
 				   "SUM(ERROR_COUNT) ERROR_COUNT, " +
 				   "SUM(SKIP_COUNT) SKIP_COUNT, " +
 				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_PACKAGE_SUMMARY WHERE PROJECT_NAME= ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? GROUP BY BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME ORDER BY BUILD_NUMBER DESC";
-
-	private static final String JUNIT_TESTS_FETCH_TEST_PACKAGE_CHILDREN_FOR_BUILD_QUERY =			
-			"SELECT MIN(BUILD_ID) BUILD_ID, " +
-				   "BUILD_NUMBER, " +
-				   "PROJECT_NAME, " +
-				   "MODULE_NAME, " +
-				   "PACKAGE_NAME, " +
-				   "CLASS_NAME, " +
+				   "SUM(DURATION) DURATION, " +
+				   "MAX(FAILED_SINCE) FAILED_SINCE " +
+				   "FROM JUNIT_PACKAGE_SUMMARY WHERE PROJECT_NAME= ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND BUILD_NUMBER < ? GROUP BY BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME ORDER BY BUILD_NUMBER DESC FETCH FIRST ? ROWS ONLY";
+
+	private static final String JUNIT_TESTS_COUNT_TEST_PACKAGE_HISTORY_QUERY =
+			"SELECT COUNT(*) FROM JUNIT_PACKAGE_SUMMARY WHERE PROJECT_NAME = ? AND MODULE_NAME = ? AND PACKAGE_NAME = ?";
+
+	private static final String JUNIT_TESTS_FETCH_TEST_PACKAGE_BUILD_NUMBERS_QUERY =
+			"SELECT BUILD_NUMBER FROM JUNIT_PACKAGE_SUMMARY WHERE PROJECT_NAME = ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? AND BUILD_NUMBER >= ? ORDER BY BUILD_NUMBER FETCH FIRST ? ROWS ONLY";
+
+	private static final String JUNIT_TESTS_FETCH_TEST_PACKAGE_CHILDREN_FOR_BUILD_QUERY =
+			"SELECT C.BUILD_ID, " +
+				   "C.BUILD_NUMBER, " +
+				   "C.PROJECT_NAME, " +
+				   "C.MODULE_NAME, " +
+				   "C.PACKAGE_NAME, " +
+				   "C.CLASS_NAME, " +
 				   "'' CASE_NAME, " +
-				   "COUNT(*) TOTAL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
-				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_TESTS WHERE BUILD_NUMBER = ? AND PROJECT_NAME= ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? GROUP BY BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME";
+				   "C.TOTAL_COUNT, " +
+				   "C.PASS_COUNT, " +
+				   "C.FAIL_COUNT, " +
+				   "C.ERROR_COUNT, " +
+				   "C.SKIP_COUNT, " +
+				   "C.START_TIME, " +
+				   "C.DURATION, " +
+				   "C.FAILED_SINCE, " +
+				   "C.CUMULATIVE_TOTAL_COUNT, " +
+				   "C.CUMULATIVE_PASS_COUNT, " +
+				   "C.CUMULATIVE_FAIL_COUNT, " +
+				   "C.CUMULATIVE_ERROR_COUNT, " +
+				   "C.CUMULATIVE_SKIP_COUNT, " +
+				   "P.BUILD_ID, " +
+				   "P.BUILD_NUMBER, " +
+				   "P.PROJECT_NAME, " +
+				   "P.MODULE_NAME, " +
+				   "P.PACKAGE_NAME, " +
+				   "P.CLASS_NAME, " +
+				   "'', " +
+				   "P.TOTAL_COUNT, " +
+				   "P.PASS_COUNT, " +
+				   "P.FAIL_COUNT, " +
+				   "P.ERROR_COUNT, " +
+				   "P.SKIP_COUNT, " +
+				   "P.START_TIME, " +
+				   "P.DURATION, " +
+				   "P.FAILED_SINCE " +
+				   "FROM (SELECT S.*, " +
+						  "(SELECT MAX(X.BUILD_NUMBER) FROM JUNIT_CLASS_SUMMARY X WHERE X.CLASS_ID = S.CLASS_ID AND X.BUILD_NUMBER < S.BUILD_NUMBER) PREVIOUS_BUILD_NUMBER " +
+						  "FROM JUNIT_CLASS_SUMMARY S WHERE S.BUILD_NUMBER = ? AND S.PACKAGE_ID = ?) C " +
+				   "LEFT OUTER JOIN JUNIT_CLASS_SUMMARY P ON P.CLASS_ID = C.CLASS_ID AND P.BUILD_NUMBER = C.PREVIOUS_BUILD_NUMBER";
 	
-
+	private static final String JUNIT_TESTS_SUMMARIZE_TEST_CLASSES_FOR_BUILD_QUERY =			
+			"INSERT INTO JUNIT_CLASS_SUMMARY(PROJECT_ID, PACKAGE_ID, CLASS_ID, BUILD_ID, BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, TOTAL_COUNT, PASS_COUNT, FAIL_COUNT, ERROR_COUNT, SKIP_COUNT, START_TIME, DURATION) " +
+				   "SELECT T.PROJECT_ID, " +
+				   "T.PACKAGE_ID, " +
+				   "T.CLASS_ID, " +
+				   "T.BUILD_ID, " +
+				   "T.BUILD_NUMBER, " +
+				   "I.PROJECT_NAME, " +
+				   "I.MODULE_NAME, " +
+				   "I.PACKAGE_NAME, " +
+				   "I.CLASS_NAME, " +
+				   "T.TOTAL_COUNT, " +
+				   "T.PASS_COUNT, " +
+				   "T.FAIL_COUNT, " +
+				   "T.ERROR_COUNT, " +
+				   "T.SKIP_COUNT, " +
+				   "T.START_TIME, " +
+				   "T.DURATION " +
+				   "FROM (SELECT PROJECT_ID, " +
+						  "PACKAGE_ID, " +
+						  "CLASS_ID, " +
+						  "MIN(BUILD_ID) BUILD_ID, " +
+						  "BUILD_NUMBER, " +
+						  "MIN(TEST_ID) TEST_ID, " +
+						  "COUNT(*) TOTAL_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
+						  "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
+						  "MIN(START_TIME) START_TIME, " +
+						  "SUM(DURATION) DURATION " +
+						  "FROM JUNIT_TESTS WHERE BUILD_NUMBER = ? AND PROJECT_ID = ? GROUP BY BUILD_NUMBER, PROJECT_ID, PACKAGE_ID, CLASS_ID) T " +
+				   "INNER JOIN JUNIT_TEST_IDENTITY I ON I.TEST_ID = T.TEST_ID";
 	
-	private static final String JUNIT_TESTS_SUMMARIZE_TEST_PACKAGES_FOR_BUILD_QUERY =			
-			"INSERT INTO JUNIT_PACKAGE_SUMMARY(BUILD_ID, BUILD_NUMBER,PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, TOTAL_COUNT, PASS_COUNT, FAIL_COUNT, ERROR_COUNT, SKIP_COUNT, START_TIME, DURATION) " +
-				   "SELECT MIN(BUILD_ID) BUILD_ID, " +
-				   "BUILD_NUMBER, " +
-				   "PROJECT_NAME, " +
-				   "MODULE_NAME, " +
-				   "PACKAGE_NAME, " +
-				   "COUNT(*) TOTAL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
-				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_TESTS WHERE BUILD_NUMBER = ? AND PROJECT_NAME= ? AND MODULE_NAME = ? GROUP BY BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME";
+	private static final String JUNIT_TESTS_SELECT_UNSUMMARIZED_CLASS_BUILDS_QUERY =
+			"SELECT DISTINCT PROJECT_ID, BUILD_NUMBER FROM JUNIT_TESTS T " +
+			"WHERE NOT EXISTS (SELECT 1 FROM JUNIT_CLASS_SUMMARY C WHERE C.PROJECT_ID = T.PROJECT_ID AND C.BUILD_NUMBER = T.BUILD_NUMBER)";
+
+	private static final String JUNIT_TESTS_DIFF_TESTS_FOR_BUILD_QUERY =
+			"INSERT INTO JUNIT_BUILD_DIFFS(PROJECT_ID, TEST_ID, BUILD_ID, BUILD_NUMBER, STATUS, PREVIOUS_BUILD_NUMBER, PREVIOUS_STATUS) " +
+			"SELECT T.PROJECT_ID, " +
+				   "T.TEST_ID, " +
+				   "T.BUILD_ID, " +
+				   "T.BUILD_NUMBER, " +
+				   "T.STATUS, " +
+				   "P.BUILD_NUMBER, " +
+				   "P.STATUS " +
+				   "FROM (SELECT S.PROJECT_ID, " +
+						  "S.TEST_ID, " +
+						  "S.BUILD_ID, " +
+						  "S.BUILD_NUMBER, " +
+						  "S.STATUS, " +
+						  "(SELECT MAX(X.BUILD_NUMBER) FROM JUNIT_TESTS X WHERE X.TEST_ID = S.TEST_ID AND X.BUILD_NUMBER < S.BUILD_NUMBER) PREVIOUS_BUILD_NUMBER " +
+						  "FROM JUNIT_TESTS S WHERE S.BUILD_NUMBER = ? AND S.PROJECT_ID = ?) T " +
+				   "INNER JOIN JUNIT_TESTS P ON P.TEST_ID = T.TEST_ID AND P.BUILD_NUMBER = T.PREVIOUS_BUILD_NUMBER " +
+				   "WHERE ((T.STATUS = 1 OR T.STATUS = 2) AND P.STATUS = 0) OR (T.STATUS = 0 AND P.STATUS <> 0)";
+
+	private static final String JUNIT_TESTS_CLEAR_DIFFS_FOR_BUILD_QUERY = "DELETE FROM JUNIT_BUILD_DIFFS WHERE BUILD_NUMBER = ? AND PROJECT_ID = ?";
+
+	private static final String JUNIT_TESTS_FETCH_DIFFS_FOR_BUILD_QUERY = "SELECT TEST_ID FROM JUNIT_BUILD_DIFFS WHERE BUILD_NUMBER = ? AND PROJECT_ID = ?";
+
+	private static final String JUNIT_TESTS_FETCH_PROJECT_SUMMARY_PRESENT_FOR_BUILD_QUERY = "SELECT 1 FROM JUNIT_PROJECT_SUMMARY WHERE BUILD_NUMBER = ? AND PROJECT_NAME = ?";
+
+	private static final String JUNIT_TESTS_SELECT_BUILDS_QUERY = "SELECT DISTINCT PROJECT_ID, BUILD_NUMBER FROM JUNIT_TESTS";
+	
+
 	
 	private static final String JUNIT_TESTS_FETCH_TEST_PACKAGE_METRICS_FOR_BUILD_QUERY =			
-			"SELECT SUM(TOTAL_COUNT) TOTAL_COUNT, " +
-				   "SUM(PASS_COUNT) PASS_COUNT, " +
-				   "SUM(FAIL_COUNT) FAIL_COUNT, " +
-				   "SUM(ERROR_COUNT) ERROR_COUNT, " +
-				   "SUM(SKIP_COUNT) SKIP_COUNT, " +
-				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_PACKAGE_SUMMARY WHERE BUILD_NUMBER <= ? AND PROJECT_NAME = ? AND MODULE_NAME = ? AND PACKAGE_NAME = ?";	
+			"SELECT CUMULATIVE_TOTAL_COUNT, " +
+				   "CUMULATIVE_PASS_COUNT, " +
+				   "CUMULATIVE_FAIL_COUNT, " +
+				   "CUMULATIVE_ERROR_COUNT, " +
+				   "CUMULATIVE_SKIP_COUNT " +
+				   "FROM JUNIT_PACKAGE_SUMMARY WHERE BUILD_NUMBER <= ? AND PROJECT_NAME = ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";	
 
 	private static final String JUNIT_TESTS_FETCH_TEST_PACKAGE_SUMMARY_FOR_BUILD_QUERY =			
 			"SELECT BUILD_ID, " +
@@ -284,7 +440,8 @@ public class JUnitDB {
 				   "ERROR_COUNT, " +
 				   "SKIP_COUNT, " +
 				   "START_TIME, " +
-				   "DURATION " +
+				   "DURATION, " +
+				   "FAILED_SINCE " +
 				   "FROM JUNIT_PACKAGE_SUMMARY WHERE BUILD_NUMBER = ? AND PROJECT_NAME= ? AND MODULE_NAME = ? AND PACKAGE_NAME = ?";
 	
 	private static final String JUNIT_TESTS_FETCH_TEST_PACKAGE_SUMMARY_FOR_BUILD_PRIOR_TO_QUERY =			
@@ -301,7 +458,8 @@ public class JUnitDB {
 				   "ERROR_COUNT, " +
 				   "SKIP_COUNT, " +
 				   "START_TIME, " +
-				   "DURATION " +
+				   "DURATION, " +
+				   "FAILED_SINCE " +
 				   "FROM JUNIT_PACKAGE_SUMMARY WHERE BUILD_NUMBER < ? AND PROJECT_NAME= ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";		
 	
 	private static final String JUNIT_FETCH_TEST_MODULE_SUMMARY_HISTORY_QUERY =			
@@ -318,50 +476,64 @@ public class JUnitDB {
 				   "ERROR_COUNT, " +
 				   "SKIP_COUNT, " +
 				   "START_TIME, " +
-				   "DURATION " +
-				   "FROM JUNIT_MODULE_SUMMARY WHERE PROJECT_NAME= ? AND MODULE_NAME = ? ORDER BY BUILD_NUMBER DESC";	
-
-	private static final String JUNIT_TESTS_FETCH_TEST_MODULE_CHILDREN_FOR_BUILD_QUERY =			
-			"SELECT BUILD_ID, " +
-				   "BUILD_NUMBER, " +
-				   "PROJECT_NAME, " +
-				   "MODULE_NAME, " +
-				   "PACKAGE_NAME, " +	
-				   "'' CLASS_NAME, " +		
+				   "DURATION, " +
+				   "FAILED_SINCE " +
+				   "FROM JUNIT_MODULE_SUMMARY WHERE PROJECT_NAME= ? AND MODULE_NAME = ? AND BUILD_NUMBER < ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ? ROWS ONLY";
+
+	private static final String JUNIT_COUNT_TEST_MODULE_HISTORY_QUERY =
+			"SELECT COUNT(*) FROM JUNIT_MODULE_SUMMARY WHERE PROJECT_NAME = ? AND MODULE_NAME = ?";
+
+	private static final String JUNIT_FETCH_TEST_MODULE_BUILD_NUMBERS_QUERY =
+			"SELECT BUILD_NUMBER FROM JUNIT_MODULE_SUMMARY WHERE PROJECT_NAME = ? AND MODULE_NAME = ? AND BUILD_NUMBER >= ? ORDER BY BUILD_NUMBER FETCH FIRST ? ROWS ONLY";	
+
+	private static final String JUNIT_TESTS_FETCH_TEST_MODULE_CHILDREN_FOR_BUILD_QUERY =
+			"SELECT C.BUILD_ID, " +
+				   "C.BUILD_NUMBER, " +
+				   "C.PROJECT_NAME, " +
+				   "C.MODULE_NAME, " +
+				   "C.PACKAGE_NAME, " +
+				   "'' CLASS_NAME, " +
 				   "'' CASE_NAME, " +
-				   "TOTAL_COUNT, " +
-				   "PASS_COUNT, " +
-				   "FAIL_COUNT, " +
-				   "ERROR_COUNT, " +
-				   "SKIP_COUNT, " +
-				   "START_TIME, " +
-				   "DURATION " +
-				   "FROM JUNIT_PACKAGE_SUMMARY WHERE BUILD_NUMBER = ? AND PROJECT_NAME= ? AND MODULE_NAME = ? ";
-	
-	private static final String JUNIT_TESTS_SUMMARIZE_TEST_MODULE_FOR_BUILD_QUERY =			
-			"INSERT INTO JUNIT_MODULE_SUMMARY(BUILD_ID, BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, TOTAL_COUNT, PASS_COUNT, FAIL_COUNT, ERROR_COUNT, SKIP_COUNT, START_TIME, DURATION) " + 
-				   "SELECT MIN(BUILD_ID) BUILD_ID, " +
-				   "BUILD_NUMBER, " +
-				   "PROJECT_NAME, " +
-				   "MODULE_NAME, " +
-				   "COUNT(*) TOTAL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
-				   "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
-				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_TESTS WHERE BUILD_NUMBER = ? AND PROJECT_NAME= ? AND MODULE_NAME = ? GROUP BY BUILD_NUMBER, PROJECT_NAME, MODULE_NAME";
+				   "C.TOTAL_COUNT, " +
+				   "C.PASS_COUNT, " +
+				   "C.FAIL_COUNT, " +
+				   "C.ERROR_COUNT, " +
+				   "C.SKIP_COUNT, " +
+				   "C.START_TIME, " +
+				   "C.DURATION, " +
+				   "C.FAILED_SINCE, " +
+				   "C.CUMULATIVE_TOTAL_COUNT, " +
+				   "C.CUMULATIVE_PASS_COUNT, " +
+				   "C.CUMULATIVE_FAIL_COUNT, " +
+				   "C.CUMULATIVE_ERROR_COUNT, " +
+				   "C.CUMULATIVE_SKIP_COUNT, " +
+				   "P.BUILD_ID, " +
+				   "P.BUILD_NUMBER, " +
+				   "P.PROJECT_NAME, " +
+				   "P.MODULE_NAME, " +
+				   "P.PACKAGE_NAME, " +
+				   "'', " +
+				   "'', " +
+				   "P.TOTAL_COUNT, " +
+				   "P.PASS_COUNT, " +
+				   "P.FAIL_COUNT, " +
+				   "P.ERROR_COUNT, " +
+				   "P.SKIP_COUNT, " +
+				   "P.START_TIME, " +
+				   "P.DURATION, " +
+				   "P.FAILED_SINCE " +
+				   "FROM (SELECT S.*, " +
+						  "(SELECT MAX(X.BUILD_NUMBER) FROM JUNIT_PACKAGE_SUMMARY X WHERE X.PROJECT_NAME = S.PROJECT_NAME AND X.MODULE_NAME = S.MODULE_NAME AND X.PACKAGE_NAME = S.PACKAGE_NAME AND X.BUILD_NUMBER < S.BUILD_NUMBER) PREVIOUS_BUILD_NUMBER " +
+						  "FROM JUNIT_PACKAGE_SUMMARY S WHERE S.BUILD_NUMBER = ? AND S.PROJECT_NAME = ? AND S.MODULE_NAME = ?) C " +
+				   "LEFT OUTER JOIN JUNIT_PACKAGE_SUMMARY P ON P.PROJECT_NAME = C.PROJECT_NAME AND P.MODULE_NAME = C.MODULE_NAME AND P.PACKAGE_NAME = C.PACKAGE_NAME AND P.BUILD_NUMBER = C.PREVIOUS_BUILD_NUMBER";
 	
 	private static final String JUNIT_TESTS_FETCH_TEST_MODULE_METRICS_FOR_BUILD_QUERY =			
-			"SELECT SUM(TOTAL_COUNT) TOTAL_COUNT, " +
-				   "SUM(PASS_COUNT) PASS_COUNT, " +
-				   "SUM(FAIL_COUNT) FAIL_COUNT, " +
-				   "SUM(ERROR_COUNT) ERROR_COUNT, " +
-				   "SUM(SKIP_COUNT) SKIP_COUNT, " +
-				   "MIN(START_TIME) START_TIME, " +
-				   "SUM(DURATION) DURATION " +
-				   "FROM JUNIT_MODULE_SUMMARY WHERE BUILD_NUMBER <= ? AND PROJECT_NAME= ? AND MODULE_NAME = ?";	
+			"SELECT CUMULATIVE_TOTAL_COUNT, " +
+				   "CUMULATIVE_PASS_COUNT, " +
+				   "CUMULATIVE_FAIL_COUNT, " +
+				   "CUMULATIVE_ERROR_COUNT, " +
+				   "CUMULATIVE_SKIP_COUNT " +
+				   "FROM JUNIT_MODULE_SUMMARY WHERE BUILD_NUMBER <= ? AND PROJECT_NAME= ? AND MODULE_NAME = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";	
 
 	private static final String JUNIT_FETCH_TEST_MODULE_SUMMARY_FOR_BUILD_QUERY =			
 			"SELECT BUILD_ID, " +
@@ -377,7 +549,8 @@ public class JUnitDB {
 				   "ERROR_COUNT, " +
 				   "SKIP_COUNT, " +
 				   "START_TIME, " +
-				   "DURATION " +
+				   "DURATION, " +
+				   "FAILED_SINCE " +
 				   "FROM JUNIT_MODULE_SUMMARY WHERE BUILD_NUMBER = ? AND PROJECT_NAME= ? AND MODULE_NAME = ?";
 	
 	private static final String JUNIT_FETCH_TEST_MODULE_SUMMARY_FOR_BUILD_PRIOR_TO_QUERY =			
@@ -394,7 +567,8 @@ public class JUnitDB {
 				   "ERROR_COUNT, " +
 				   "SKIP_COUNT, " +
 				   "START_TIME, " +
-				   "DURATION " +
+				   "DURATION, " +
+				   "FAILED_SINCE " +
 				   "FROM JUNIT_MODULE_SUMMARY WHERE BUILD_NUMBER < ? AND PROJECT_NAME= ? AND MODULE_NAME = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";	
 	
 	private static final String JUNIT_TESTS_FETCH_TEST_MODULE_SUMMARY_FOR_BUILD_NO_LATER_THAN_QUERY =			
@@ -411,7 +585,8 @@ public class JUnitDB {
 				   "ERROR_COUNT, " +
 				   "SKIP_COUNT, " +
 				   "START_TIME, " +
-				   "DURATION " +
+				   "DURATION, " +
+				   "FAILED_SINCE " +
 				   "FROM JUNIT_MODULE_SUMMARY WHERE BUILD_NUMBER <= ? AND PROJECT_NAME= ? AND MODULE_NAME = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";	
 	
 	private static final String JUNIT_TESTS_SUMMARIZE_TEST_PROJECT_HISTORY_QUERY =			
@@ -428,49 +603,186 @@ public class JUnitDB {
 				   "ERROR_COUNT, " +
 				   "SKIP_COUNT, " +
 				   "START_TIME, " +
-				   "DURATION " +
-				   "FROM JUNIT_PROJECT_SUMMARY WHERE PROJECT_NAME= ? ORDER BY BUILD_NUMBER DESC";	
-
-	private static final String JUNIT_TESTS_FETCH_TEST_PROJECT_CHILDREN_FOR_BUILD_QUERY = 	
-			"SELECT MIN(BUILD_ID) BUILD_ID, " +
-			   "BUILD_NUMBER, " +
-			   "PROJECT_NAME, " +
-			   "MODULE_NAME, " +
-			   "'' PACKAGE_NAME, " +	
-			   "'' CLASS_NAME, " +		
-			   "'' CASE_NAME, " +
-			   "TOTAL_COUNT, " +
-			   "PASS_COUNT, " +
-			   "FAIL_COUNT, " +
-			   "ERROR_COUNT, " +
-			   "SKIP_COUNT, " +
-			   "START_TIME, " +
-			   "DURATION " +
-			   "FROM JUNIT_MODULE_SUMMARY WHERE BUILD_NUMBER = ? AND PROJECT_NAME= ?";
+				   "DURATION, " +
+				   "FAILED_SINCE " +
+				   "FROM JUNIT_PROJECT_SUMMARY WHERE PROJECT_NAME= ? AND BUILD_NUMBER < ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ? ROWS ONLY";
+
+	private static final String JUNIT_TESTS_COUNT_TEST_PROJECT_HISTORY_QUERY =
+			"SELECT COUNT(*) FROM JUNIT_PROJECT_SUMMARY WHERE PROJECT_NAME = ?";
+
+	private static final String JUNIT_TESTS_FETCH_TEST_PROJECT_BUILD_NUMBERS_QUERY =
+			"SELECT BUILD_NUMBER FROM JUNIT_PROJECT_SUMMARY WHERE PROJECT_NAME = ? AND BUILD_NUMBER >= ? ORDER BY BUILD_NUMBER FETCH FIRST ? ROWS ONLY";	
+
+	private static final String JUNIT_TESTS_FETCH_TEST_PROJECT_CHILDREN_FOR_BUILD_QUERY =
+			"SELECT C.BUILD_ID, " +
+				   "C.BUILD_NUMBER, " +
+				   "C.PROJECT_NAME, " +
+				   "C.MODULE_NAME, " +
+				   "'' PACKAGE_NAME, " +
+				   "'' CLASS_NAME, " +
+				   "'' CASE_NAME, " +
+				   "C.TOTAL_COUNT, " +
+				   "C.PASS_COUNT, " +
+				   "C.FAIL_COUNT, " +
+				   "C.ERROR_COUNT, " +
+				   "C.SKIP_COUNT, " +
+				   "C.START_TIME, " +
+				   "C.DURATION, " +
+				   "C.FAILED_SINCE, " +
+				   "C.CUMULATIVE_TOTAL_COUNT, " +
+				   "C.CUMULATIVE_PASS_COUNT, " +
+				   "C.CUMULATIVE_FAIL_COUNT, " +
+				   "C.CUMULATIVE_ERROR_COUNT, " +
+				   "C.CUMULATIVE_SKIP_COUNT, " +
+				   "P.BUILD_ID, " +
+				   "P.BUILD_NUMBER, " +
+				   "P.PROJECT_NAME, " +
+				   "P.MODULE_NAME, " +
+				   "'', " +
+				   "'', " +
+				   "'', " +
+				   "P.TOTAL_COUNT, " +
+				   "P.PASS_COUNT, " +
+				   "P.FAIL_COUNT, " +
+				   "P.ERROR_COUNT, " +
+				   "P.SKIP_COUNT, " +
+				   "P.START_TIME, " +
+				   "P.DURATION, " +
+				   "P.FAILED_SINCE " +
+				   "FROM (SELECT S.*, " +
+						  "(SELECT MAX(X.BUILD_NUMBER) FROM JUNIT_MODULE_SUMMARY X WHERE X.PROJECT_NAME = S.PROJECT_NAME AND X.MODULE_NAME = S.MODULE_NAME AND X.BUILD_NUMBER < S.BUILD_NUMBER) PREVIOUS_BUILD_NUMBER " +
+						  "FROM JUNIT_MODULE_SUMMARY S WHERE S.BUILD_NUMBER = ? AND S.PROJECT_NAME = ?) C " +
+				   "LEFT OUTER JOIN JUNIT_MODULE_SUMMARY P ON P.PROJECT_NAME = C.PROJECT_NAME AND P.MODULE_NAME = C.MODULE_NAME AND P.BUILD_NUMBER = C.PREVIOUS_BUILD_NUMBER";
 	
-	private static final String JUNIT_TESTS_SUMMARIZE_TEST_PROJECT_FOR_BUILD_QUERY = 	
-			"INSERT INTO JUNIT_PROJECT_SUMMARY(BUILD_ID, BUILD_NUMBER, PROJECT_NAME, TOTAL_COUNT, PASS_COUNT, FAIL_COUNT, ERROR_COUNT, SKIP_COUNT, START_TIME, DURATION) " +
-			   "SELECT MIN(BUILD_ID) BUILD_ID, " +
-			   "BUILD_NUMBER, " +
-			   "PROJECT_NAME, " +
-			   "COUNT(*) TOTAL_COUNT, " +
-			   "SUM((CASE WHEN STATUS = 0 THEN 1 ELSE 0 END)) PASS_COUNT, " +
-			   "SUM((CASE WHEN STATUS = 1 THEN 1 ELSE 0 END)) FAIL_COUNT, " +
-			   "SUM((CASE WHEN STATUS = 2 THEN 1 ELSE 0 END)) ERROR_COUNT, " +
-			   "SUM((CASE WHEN STATUS = 3 THEN 1 ELSE 0 END)) SKIP_COUNT, " +
-			   "MIN(START_TIME) START_TIME, " +
-			   "SUM(DURATION) DURATION " +
-			   "FROM JUNIT_TESTS WHERE BUILD_NUMBER = ? AND PROJECT_NAME= ? GROUP BY BUILD_NUMBER, PROJECT_NAME";
+	private static final String JUNIT_TESTS_FETCH_SUMMARY_TREE_FOR_BUILD_QUERY =
+			"SELECT C.BUILD_ID, " +
+				   "C.BUILD_NUMBER, " +
+				   "C.PROJECT_NAME, " +
+				   "C.MODULE_NAME, " +
+				   "'' PACKAGE_NAME, " +
+				   "'' CLASS_NAME, " +
+				   "'' CASE_NAME, " +
+				   "C.TOTAL_COUNT, " +
+				   "C.PASS_COUNT, " +
+				   "C.FAIL_COUNT, " +
+				   "C.ERROR_COUNT, " +
+				   "C.SKIP_COUNT, " +
+				   "C.START_TIME, " +
+				   "C.DURATION, " +
+				   "C.FAILED_SINCE, " +
+				   "C.CUMULATIVE_TOTAL_COUNT, " +
+				   "C.CUMULATIVE_PASS_COUNT, " +
+				   "C.CUMULATIVE_FAIL_COUNT, " +
+				   "C.CUMULATIVE_ERROR_COUNT, " +
+				   "C.CUMULATIVE_SKIP_COUNT, " +
+				   "P.BUILD_ID, " +
+				   "P.BUILD_NUMBER, " +
+				   "P.PROJECT_NAME, " +
+				   "P.MODULE_NAME, " +
+				   "'', " +
+				   "'', " +
+				   "'', " +
+				   "P.TOTAL_COUNT, " +
+				   "P.PASS_COUNT, " +
+				   "P.FAIL_COUNT, " +
+				   "P.ERROR_COUNT, " +
+				   "P.SKIP_COUNT, " +
+				   "P.START_TIME, " +
+				   "P.DURATION, " +
+				   "P.FAILED_SINCE, " +
+				   "1 SUMMARY_LEVEL " +
+				   "FROM (SELECT S.*, " +
+						  "(SELECT MAX(X.BUILD_NUMBER) FROM JUNIT_MODULE_SUMMARY X WHERE X.PROJECT_NAME = S.PROJECT_NAME AND X.MODULE_NAME = S.MODULE_NAME AND X.BUILD_NUMBER < S.BUILD_NUMBER) PREVIOUS_BUILD_NUMBER " +
+						  "FROM JUNIT_MODULE_SUMMARY S WHERE S.BUILD_NUMBER = ? AND S.PROJECT_NAME = ?) C " +
+				   "LEFT OUTER JOIN JUNIT_MODULE_SUMMARY P ON P.PROJECT_NAME = C.PROJECT_NAME AND P.MODULE_NAME = C.MODULE_NAME AND P.BUILD_NUMBER = C.PREVIOUS_BUILD_NUMBER " +
+			   "UNION ALL SELECT C.BUILD_ID, " +
+				   "C.BUILD_NUMBER, " +
+				   "C.PROJECT_NAME, " +
+				   "C.MODULE_NAME, " +
+				   "C.PACKAGE_NAME, " +
+				   "'' CLASS_NAME, " +
+				   "'' CASE_NAME, " +
+				   "C.TOTAL_COUNT, " +
+				   "C.PASS_COUNT, " +
+				   "C.FAIL_COUNT, " +
+				   "C.ERROR_COUNT, " +
+				   "C.SKIP_COUNT, " +
+				   "C.START_TIME, " +
+				   "C.DURATION, " +
+				   "C.FAILED_SINCE, " +
+				   "C.CUMULATIVE_TOTAL_COUNT, " +
+				   "C.CUMULATIVE_PASS_COUNT, " +
+				   "C.CUMULATIVE_FAIL_COUNT, " +
+				   "C.CUMULATIVE_ERROR_COUNT, " +
+				   "C.CUMULATIVE_SKIP_COUNT, " +
+				   "P.BUILD_ID, " +
+				   "P.BUILD_NUMBER, " +
+				   "P.PROJECT_NAME, " +
+				   "P.MODULE_NAME, " +
+				   "P.PACKAGE_NAME, " +
+				   "'', " +
+				   "'', " +
+				   "P.TOTAL_COUNT, " +
+				   "P.PASS_COUNT, " +
+				   "P.FAIL_COUNT, " +
+				   "P.ERROR_COUNT, " +
+				   "P.SKIP_COUNT, " +
+				   "P.START_TIME, " +
+				   "P.DURATION, " +
+				   "P.FAILED_SINCE, " +
+				   "2 SUMMARY_LEVEL " +
+				   "FROM (SELECT S.*, " +
+						  "(SELECT MAX(X.BUILD_NUMBER) FROM JUNIT_PACKAGE_SUMMARY X WHERE X.PROJECT_NAME = S.PROJECT_NAME AND X.MODULE_NAME = S.MODULE_NAME AND X.PACKAGE_NAME = S.PACKAGE_NAME AND X.BUILD_NUMBER < S.BUILD_NUMBER) PREVIOUS_BUILD_NUMBER " +
+						  "FROM JUNIT_PACKAGE_SUMMARY S WHERE S.BUILD_NUMBER = ? AND S.PROJECT_NAME = ?) C " +
+				   "LEFT OUTER JOIN JUNIT_PACKAGE_SUMMARY P ON P.PROJECT_NAME = C.PROJECT_NAME AND P.MODULE_NAME = C.MODULE_NAME AND P.PACKAGE_NAME = C.PACKAGE_NAME AND P.BUILD_NUMBER = C.PREVIOUS_BUILD_NUMBER " +
+			   "UNION ALL SELECT C.BUILD_ID, " +
+				   "C.BUILD_NUMBER, " +
+				   "C.PROJECT_NAME, " +
+				   "C.MODULE_NAME, " +
+				   "C.PACKAGE_NAME, " +
+				   "C.CLASS_NAME, " +
+				   "'' CASE_NAME, " +
+				   "C.TOTAL_COUNT, " +
+				   "C.PASS_COUNT, " +
+				   "C.FAIL_COUNT, " +
+				   "C.ERROR_COUNT, " +
+				   "C.SKIP_COUNT, " +
+				   "C.START_TIME, " +
+				   "C.DURATION, " +
+				   "C.FAILED_SINCE, " +
+				   "C.CUMULATIVE_TOTAL_COUNT, " +
+				   "C.CUMULATIVE_PASS_COUNT, " +
+				   "C.CUMULATIVE_FAIL_COUNT, " +
+				   "C.CUMULATIVE_ERROR_COUNT, " +
+				   "C.CUMULATIVE_SKIP_COUNT, " +
+				   "P.BUILD_ID, " +
+				   "P.BUILD_NUMBER, " +
+				   "P.PROJECT_NAME, " +
+				   "P.MODULE_NAME, " +
+				   "P.PACKAGE_NAME, " +
+				   "P.CLASS_NAME, " +
+				   "'', " +
+				   "P.TOTAL_COUNT, " +
+				   "P.PASS_COUNT, " +
+				   "P.FAIL_COUNT, " +
+				   "P.ERROR_COUNT, " +
+				   "P.SKIP_COUNT, " +
+				   "P.START_TIME, " +
+				   "P.DURATION, " +
+				   "P.FAILED_SINCE, " +
+				   "3 SUMMARY_LEVEL " +
+				   "FROM (SELECT S.*, " +
+						  "(SELECT MAX(X.BUILD_NUMBER) FROM JUNIT_CLASS_SUMMARY X WHERE X.CLASS_ID = S.CLASS_ID AND X.BUILD_NUMBER < S.BUILD_NUMBER) PREVIOUS_BUILD_NUMBER " +
+						  "FROM JUNIT_CLASS_SUMMARY S WHERE S.BUILD_NUMBER = ? AND S.PROJECT_ID = ?) C " +
+				   "LEFT OUTER JOIN JUNIT_CLASS_SUMMARY P ON P.CLASS_ID = C.CLASS_ID AND P.BUILD_NUMBER = C.PREVIOUS_BUILD_NUMBER";
 	
 	private static final String JUNIT_TESTS_FETCH_TEST_PROJECT_METRICS_FOR_BUILD_QUERY = 	
-			"SELECT TOTAL_COUNT, " +
-			   "PASS_COUNT, " +
-			   "FAIL_COUNT, " +
-			   "ERROR_COUNT, " +
-			   "SKIP_COUNT, " +
-			   "START_TIME, " +
-			   "DURATION " +
-			   "FROM JUNIT_PROJECT_SUMMARY WHERE BUILD_NUMBER <= ? AND PROJECT_NAME = ?";	
+			"SELECT CUMULATIVE_TOTAL_COUNT, " +
+				   "CUMULATIVE_PASS_COUNT, " +
+				   "CUMULATIVE_FAIL_COUNT, " +
+				   "CUMULATIVE_ERROR_COUNT, " +
+				   "CUMULATIVE_SKIP_COUNT " +
+				   "FROM JUNIT_PROJECT_SUMMARY WHERE BUILD_NUMBER <= ? AND PROJECT_NAME = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";	
 	
 	private static final String JUNIT_TESTS_FETCH_TEST_PROJECT_SUMMARY_FOR_BUILD_QUERY = 	
 			"SELECT BUILD_ID, " +
@@ -486,7 +798,8 @@ public class JUnitDB {
 			   "ERROR_COUNT, " +
 			   "SKIP_COUNT, " +
 			   "START_TIME, " +
-			   "DURATION " +
+			   "DURATION, " +
+			   "FAILED_SINCE " +
 			   "FROM JUNIT_PROJECT_SUMMARY WHERE BUILD_NUMBER = ? AND PROJECT_NAME = ?";	
 	
 	private static final String JUNIT_TESTS_FETCH_TEST_PROJECT_SUMMARY_FOR_BUILD_PRIOR_TO_QUERY = 	
@@ -503,7 +816,8 @@ public class JUnitDB {
 			   "ERROR_COUNT, " +
 			   "SKIP_COUNT, " +
 			   "START_TIME, " +
-			   "DURATION " +
+			   "DURATION, " +
+			   "FAILED_SINCE " +
 			   "FROM JUNIT_PROJECT_SUMMARY WHERE BUILD_NUMBER < ? AND PROJECT_NAME = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";	
 	
 	private static final String JUNIT_TESTS_FETCH_TEST_PROJECT_SUMMARY_FOR_BUILD_NO_LATER_THAN_QUERY = 	
@@ -520,32 +834,66 @@ public class JUnitDB {
 			   "ERROR_COUNT, " +
 			   "SKIP_COUNT, " +
 			   "START_TIME, " +
-			   "DURATION " +
+			   "DURATION, " +
+			   "FAILED_SINCE " +
 			   "FROM JUNIT_PROJECT_SUMMARY WHERE BUILD_NUMBER <= ? AND PROJECT_NAME = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";	
 	
+	private static final String JUNIT_TESTS_FETCH_TEST_CASE_FAILED_SINCE_QUERY =
+			"SELECT (CASE WHEN STATUS = 1 OR STATUS = 2 THEN 1 ELSE 0 END), FAILED_SINCE FROM JUNIT_TESTS WHERE BUILD_NUMBER <= ? AND TEST_ID = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";
+
+	private static final String JUNIT_FETCH_TEST_CLASS_FAILED_SINCE_QUERY =
+			"SELECT FAIL_COUNT + ERROR_COUNT, FAILED_SINCE FROM JUNIT_CLASS_SUMMARY WHERE BUILD_NUMBER <= ? AND CLASS_ID = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";
+
+	private static final String JUNIT_FETCH_TEST_PACKAGE_FAILED_SINCE_QUERY =
+			"SELECT FAIL_COUNT + ERROR_COUNT, FAILED_SINCE FROM JUNIT_PACKAGE_SUMMARY WHERE BUILD_NUMBER <= ? AND PROJECT_NAME = ? AND MODULE_NAME = ? AND PACKAGE_NAME = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";
+
+	private static final String JUNIT_FETCH_TEST_MODULE_FAILED_SINCE_QUERY =
+			"SELECT FAIL_COUNT + ERROR_COUNT, FAILED_SINCE FROM JUNIT_MODULE_SUMMARY WHERE BUILD_NUMBER <= ? AND PROJECT_NAME = ? AND MODULE_NAME = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";
+
+	private static final String JUNIT_FETCH_TEST_PROJECT_FAILED_SINCE_QUERY =
+			"SELECT FAIL_COUNT + ERROR_COUNT, FAILED_SINCE FROM JUNIT_PROJECT_SUMMARY WHERE BUILD_NUMBER <= ? AND PROJECT_NAME = ? ORDER BY BUILD_NUMBER DESC FETCH FIRST ROW ONLY";
+
 	private static final String JUNIT_TESTS_FETCH_PROPERTY = "SELECT VALUE FROM JUNIT_PROPERTIES WHERE PROJECT_NAME = ? AND NAME = UPPER(?)";
 	private static final String JUNIT_TESTS_INSERT_PROPERTY = "INSERT INTO JUNIT_PROPERTIES(PROJECT_NAME, NAME, VALUE) VALUES(?, UPPER(?), ?)";
 	private static final String JUNIT_TESTS_UPDATE_PROPERTY = "UPDATE JUNIT_PROPERTIES SET VALUE = ? WHERE PROJECT_NAME = ? AND NAME = UPPER(?)";
 	
 	private static final String JUNIT_TESTS_TABLE_CREATE_QUERY = "CREATE TABLE " +
 																				"JUNIT_TESTS(ID BIGINT GENERATED ALWAYS AS IDENTITY(START WITH 100, INCREMENT BY 1), " +
-																							  "PROJECT_NAME VARCHAR(256) NOT NULL, " +
+																							  "PROJECT_ID BIGINT NOT NULL, " +
+																							  "MODULE_ID BIGINT NOT NULL, " +
+																							  "PACKAGE_ID BIGINT NOT NULL, " +
+																							  "CLASS_ID BIGINT NOT NULL, " +
+																							  "TEST_ID BIGINT NOT NULL, " +
 																							  "BUILD_ID VARCHAR(256) NOT NULL, " +
 																							  "BUILD_NUMBER INTEGER NOT NULL, " +
-																							  "MODULE_NAME VARCHAR(2048) NOT NULL, " +
-																							  "PACKAGE_NAME VARCHAR(4096) NOT NULL, " +
-																							  "CLASS_NAME VARCHAR(2048) NOT NULL, " +
-																							  "CASE_NAME VARCHAR(2048) NOT NULL, " +
 																							  "INDEX INT, " +
 																							  "STATUS INT, " +
 																							  "START_TIME TIMESTAMP, " +
 																							  "DURATION BIGINT, " +
-																							  "ERROR_MESSAGE VARCHAR(8192), " +
-																							  "ERROR_STACK_TRACE CLOB(2 M), " +
-																							  "STDOUT CLOB(64 M), " + 
-																							  "STDERR CLOB(64 M) " + 
+																							  "FAILED_SINCE INTEGER DEFAULT 0 NOT NULL, " +
+																							  "DETAIL_ID BIGINT" +
 																							 ")";
 	
+	private static final String JUNIT_TEST_DETAILS_TABLE_CREATE_QUERY = "CREATE TABLE " +
+			"JUNIT_TEST_DETAILS(ID BIGINT NOT NULL PRIMARY KEY, " +
+							   "ERROR_MESSAGE VARCHAR(8192), " +
+							   "ERROR_STACK_TRACE CLOB(2 M), " +
+							   "STDOUT CLOB(64 M), " +
+							   "STDERR CLOB(64 M) " +
+							  ")";
+
+	private static final String JUNIT_TEST_DETAIL_IDS_SEQUENCE_CREATE_QUERY = "CREATE SEQUENCE JUNIT_TEST_DETAIL_IDS AS BIGINT START WITH %d INCREMENT BY %d NO CYCLE";
+	
+	private static final String JUNIT_TEST_IDENTITY_TABLE_CREATE_QUERY = "CREATE TABLE " +
+			"JUNIT_TEST_IDENTITY(TEST_ID BIGINT NOT NULL PRIMARY KEY, " +
+							"PROJECT_ID BIGINT NOT NULL, " +
+							"PROJECT_NAME VARCHAR(256) NOT NULL, " +
+							"MODULE_NAME VARCHAR(2048) NOT NULL, " +
+							"PACKAGE_NAME VARCHAR(4096) NOT NULL, " +
+							"CLASS_NAME VARCHAR(2048) NOT NULL, " +
+							"CASE_NAME VARCHAR(2048) NOT NULL " +
+						   ")";
+
 	private static final String JUNIT_PROJECT_SUMMARY_TABLE_CREATE_QUERY = "CREATE TABLE " +
 			"JUNIT_PROJECT_SUMMARY(ID BIGINT GENERATED ALWAYS AS IDENTITY(START WITH 100, INCREMENT BY 1), " +
 						  "PROJECT_NAME VARCHAR(256) NOT NULL, " +
@@ -557,7 +905,13 @@ public class JUnitDB {
 						  "ERROR_COUNT BIGINT NOT NULL, " +
 						  "SKIP_COUNT BIGINT NOT NULL, " +
 						  "START_TIME TIMESTAMP, " +
-						  "DURATION BIGINT " +
+						  "DURATION BIGINT, " +
+						  "CUMULATIVE_TOTAL_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_PASS_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_FAIL_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_ERROR_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_SKIP_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "FAILED_SINCE INTEGER DEFAULT 0 NOT NULL" +
 						 ")";		
 	
 	private static final String JUNIT_MODULE_SUMMARY_TABLE_CREATE_QUERY = "CREATE TABLE " +
@@ -572,7 +926,13 @@ public class JUnitDB {
 						  "ERROR_COUNT BIGINT NOT NULL, " +
 						  "SKIP_COUNT BIGINT NOT NULL, " +
 						  "START_TIME TIMESTAMP, " +
-						  "DURATION BIGINT " +
+						  "DURATION BIGINT, " +
+						  "CUMULATIVE_TOTAL_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_PASS_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_FAIL_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_ERROR_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_SKIP_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "FAILED_SINCE INTEGER DEFAULT 0 NOT NULL" +
 						 ")";	
 	
 	private static final String JUNIT_PACKAGE_SUMMARY_TABLE_CREATE_QUERY = "CREATE TABLE " +
@@ -588,9 +948,52 @@ public class JUnitDB {
 						  "ERROR_COUNT BIGINT NOT NULL, " +
 						  "SKIP_COUNT BIGINT NOT NULL, " +
 						  "START_TIME TIMESTAMP, " +
-						  "DURATION BIGINT " +
+						  "DURATION BIGINT, " +
+						  "CUMULATIVE_TOTAL_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_PASS_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_FAIL_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_ERROR_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_SKIP_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "FAILED_SINCE INTEGER DEFAULT 0 NOT NULL" +
 						 ")";		
 	
+	private static final String JUNIT_CLASS_SUMMARY_TABLE_CREATE_QUERY = "CREATE TABLE " +
+			"JUNIT_CLASS_SUMMARY(ID BIGINT GENERATED ALWAYS AS IDENTITY(START WITH 100, INCREMENT BY 1), " +
+						  "PROJECT_ID BIGINT NOT NULL, " +
+						  "PACKAGE_ID BIGINT NOT NULL, " +
+						  "CLASS_ID BIGINT NOT NULL, " +
+						  "PROJECT_NAME VARCHAR(256) NOT NULL, " +
+						  "BUILD_ID VARCHAR(256) NOT NULL, " +
+						  "BUILD_NUMBER INTEGER NOT NULL, " +
+						  "MODULE_NAME VARCHAR(2048) NOT NULL, " +
+						  "PACKAGE_NAME VARCHAR(4096) NOT NULL, " +
+						  "CLASS_NAME VARCHAR(2048) NOT NULL, " +
+						  "TOTAL_COUNT BIGINT NOT NULL, " +
+						  "PASS_COUNT BIGINT NOT NULL, " +
+						  "FAIL_COUNT BIGINT NOT NULL, " +
+						  "ERROR_COUNT BIGINT NOT NULL, " +
+						  "SKIP_COUNT BIGINT NOT NULL, " +
+						  "START_TIME TIMESTAMP, " +
+						  "DURATION BIGINT, " +
+						  "CUMULATIVE_TOTAL_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_PASS_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_FAIL_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_ERROR_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "CUMULATIVE_SKIP_COUNT BIGINT DEFAULT 0 NOT NULL, " +
+						  "FAILED_SINCE INTEGER DEFAULT 0 NOT NULL" +
+						 ")";		
+	
+	private static final String JUNIT_BUILD_DIFFS_TABLE_CREATE_QUERY = "CREATE TABLE " +
+			"JUNIT_BUILD_DIFFS(ID BIGINT GENERATED ALWAYS AS IDENTITY(START WITH 100, INCREMENT BY 1), " +
+							  "PROJECT_ID BIGINT NOT NULL, " +
+							  "TEST_ID BIGINT NOT NULL, " +
+							  "BUILD_ID VARCHAR(256) NOT NULL, " +
+							  "BUILD_NUMBER INTEGER NOT NULL, " +
+							  "STATUS INT, " +
+							  "PREVIOUS_BUILD_NUMBER INTEGER NOT NULL, " +
+							  "PREVIOUS_STATUS INT" +
+							 ")";
+
 	private static final String JUNIT_PROPERTIES_TABLE_CREATE_QUERY = "CREATE TABLE " +
 																"JUNIT_PROPERTIES(ID BIGINT GENERATED ALWAYS AS IDENTITY(START WITH 100, INCREMENT BY 1), " +
 																				 "PROJECT_NAME VARCHAR(256) NOT NULL, " +
@@ -602,46 +1005,87 @@ public class JUnitDB {
 							 "PROJECT_NAME VARCHAR(256) NOT NULL, " +
 							 "BUILD_ID VARCHAR(256) NOT NULL)";	
 	
-	private static final String JUNIT_TESTS_TABLE_INDEX_1 = "CREATE INDEX IDX_JUNIT_TESTS_1 ON JUNIT_TESTS(BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME)";
-	private static final String JUNIT_TESTS_TABLE_INDEX_2 = "CREATE INDEX IDX_JUNIT_TESTS_2 ON JUNIT_TESTS(BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME)";
-	private static final String JUNIT_TESTS_TABLE_INDEX_3 = "CREATE INDEX IDX_JUNIT_TESTS_3 ON JUNIT_TESTS(BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME)";
-	private static final String JUNIT_TESTS_TABLE_INDEX_4 = "CREATE INDEX IDX_JUNIT_TESTS_4 ON JUNIT_TESTS(BUILD_NUMBER, PROJECT_NAME, MODULE_NAME)";
-	private static final String JUNIT_TESTS_TABLE_INDEX_5 = "CREATE INDEX IDX_JUNIT_TESTS_5 ON JUNIT_TESTS(BUILD_NUMBER, PROJECT_NAME)";
-	private static final String JUNIT_TESTS_TABLE_INDEX_6 = "CREATE INDEX IDX_JUNIT_TESTS_6 ON JUNIT_TESTS(BUILD_NUMBER)";
-	private static final String JUNIT_TESTS_TABLE_INDEX_7 = "CREATE INDEX IDX_JUNIT_TESTS_7 ON JUNIT_TESTS(PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME)";
-	private static final String JUNIT_TESTS_TABLE_INDEX_8 = "CREATE INDEX IDX_JUNIT_TESTS_8 ON JUNIT_TESTS(PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME)";
-	private static final String JUNIT_TESTS_TABLE_INDEX_9 = "CREATE INDEX IDX_JUNIT_TESTS_9 ON JUNIT_TESTS(PROJECT_NAME, MODULE_NAME, PACKAGE_NAME)";
-	private static final String JUNIT_TESTS_TABLE_INDEX_10 = "CREATE INDEX IDX_JUNIT_TESTS_10 ON JUNIT_TESTS(PROJECT_NAME, MODULE_NAME)";	
-	private static final String JUNIT_TESTS_TABLE_INDEX_11 = "CREATE INDEX IDX_JUNIT_TESTS_11 ON JUNIT_TESTS(PROJECT_NAME, BUILD_NUMBER)";
-	private static final String JUNIT_TESTS_TABLE_INDEX_12 = "CREATE INDEX IDX_JUNIT_TESTS_12 ON JUNIT_TESTS(PROJECT_NAME)";
+	private static final String JUNIT_TESTS_TABLE_INDEX_1 = "CREATE INDEX IDX_JUNIT_TESTS_1 ON JUNIT_TESTS(TEST_ID, BUILD_NUMBER)";
+	private static final String JUNIT_TESTS_TABLE_INDEX_2 = "CREATE INDEX IDX_JUNIT_TESTS_2 ON JUNIT_TESTS(CLASS_ID, BUILD_NUMBER, STATUS)";
+	private static final String JUNIT_TESTS_TABLE_INDEX_3 = "CREATE INDEX IDX_JUNIT_TESTS_3 ON JUNIT_TESTS(PACKAGE_ID, BUILD_NUMBER, STATUS)";
+	private static final String JUNIT_TESTS_TABLE_INDEX_4 = "CREATE INDEX IDX_JUNIT_TESTS_4 ON JUNIT_TESTS(MODULE_ID, BUILD_NUMBER, STATUS)";
+	private static final String JUNIT_TESTS_TABLE_INDEX_5 = "CREATE INDEX IDX_JUNIT_TESTS_5 ON JUNIT_TESTS(PROJECT_ID, BUILD_NUMBER, STATUS)";
+	private static final String JUNIT_TESTS_TABLE_INDEX_DETAIL_IDS = "CREATE INDEX IDX_JUNIT_TESTS_DETAIL_IDS ON JUNIT_TESTS(ID)";
+	
+	private static final String JUNIT_INDEX_TEST_IDENTITY_TABLE_1 = "CREATE INDEX IDX_JUNIT_TEST_IDENTITY_1 ON JUNIT_TEST_IDENTITY(PROJECT_ID)";
 	
 	private static final String JUNIT_INDEX_UNIQUE_PROJECT_SUMMARY_TABLE_1= "CREATE UNIQUE INDEX IDXUQ_JUNIT_PROJECT_SUMMARY_1 ON JUNIT_PROJECT_SUMMARY(BUILD_NUMBER, PROJECT_NAME)";
-	private static final String JUNIT_INDEX_PROJECT_SUMMARY_TABLE_1= "CREATE INDEX IDX_JUNIT_PROJECT_SUMMARY_1 ON JUNIT_PROJECT_SUMMARY(PROJECT_NAME)";
+	private static final String JUNIT_INDEX_PROJECT_SUMMARY_TABLE_1= "CREATE INDEX IDX_JUNIT_PROJECT_SUMMARY_1 ON JUNIT_PROJECT_SUMMARY(PROJECT_NAME, BUILD_NUMBER)";
 	
 	private static final String JUNIT_INDEX_UNIQUE_MODULE_SUMMARY_TABLE_1= "CREATE UNIQUE INDEX IDXUQ_JUNIT_MODULE_SUMMARY_1 ON JUNIT_MODULE_SUMMARY(BUILD_NUMBER, PROJECT_NAME, MODULE_NAME)";
-	private static final String JUNIT_INDEX_MODULE_SUMMARY_TABLE_1= "CREATE INDEX IDX_JUNIT_MODULE_SUMMARY_1 ON JUNIT_MODULE_SUMMARY(PROJECT_NAME, MODULE_NAME)";
+	private static final String JUNIT_INDEX_MODULE_SUMMARY_TABLE_1= "CREATE INDEX IDX_JUNIT_MODULE_SUMMARY_1 ON JUNIT_MODULE_SUMMARY(PROJECT_NAME, MODULE_NAME, BUILD_NUMBER)";
 	
 	private static final String JUNIT_INDEX_UNIQUE_PACKAGE_SUMMARY_TABLE_1= "CREATE UNIQUE INDEX IDXUQ_JUNIT_PACKAGE_SUMMARY_1 ON JUNIT_PACKAGE_SUMMARY(BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME)";
-	private static final String JUNIT_INDEX_PACKAGE_SUMMARY_TABLE_1= "CREATE INDEX IDX_JUNIT_PACKAGE_SUMMARY_1 ON JUNIT_PACKAGE_SUMMARY(PROJECT_NAME, MODULE_NAME, PACKAGE_NAME)";
+	private static final String JUNIT_INDEX_PACKAGE_SUMMARY_TABLE_1= "CREATE INDEX IDX_JUNIT_PACKAGE_SUMMARY_1 ON JUNIT_PACKAGE_SUMMARY(PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, BUILD_NUMBER)";
+	
+	private static final String JUNIT_INDEX_UNIQUE_CLASS_SUMMARY_TABLE_1= "CREATE UNIQUE INDEX IDXUQ_JUNIT_CLASS_SUMMARY_1 ON JUNIT_CLASS_SUMMARY(CLASS_ID, BUILD_NUMBER)";
+	private static final String JUNIT_INDEX_CLASS_SUMMARY_TABLE_1= "CREATE INDEX IDX_JUNIT_CLASS_SUMMARY_1 ON JUNIT_CLASS_SUMMARY(PACKAGE_ID, BUILD_NUMBER)";
+	private static final String JUNIT_INDEX_CLASS_SUMMARY_TABLE_2= "CREATE INDEX IDX_JUNIT_CLASS_SUMMARY_2 ON JUNIT_CLASS_SUMMARY(PROJECT_ID, BUILD_NUMBER)";
+	
+	private static final String JUNIT_INDEX_BUILD_DIFFS_TABLE_1= "CREATE INDEX IDX_JUNIT_BUILD_DIFFS_1 ON JUNIT_BUILD_DIFFS(PROJECT_ID, BUILD_NUMBER)";
 	
 	private static final String JUNIT_INDEX_UNIQUE_PROPERTIES_TABLE_1= "CREATE UNIQUE INDEX IDXUQ_JUNIT_PROPERTIES_1 ON JUNIT_PROPERTIES(PROJECT_NAME, NAME)";
 	
-	private static final String JUNIT_TESTS_TABLE_INSERT_QUERY = "INSERT INTO JUNIT_TESTS(PROJECT_NAME, " +
+	private static final String JUNIT_TESTS_TABLE_INSERT_QUERY = "INSERT INTO JUNIT_TESTS(PROJECT_ID, " +
+																						 "MODULE_ID, " +
+																						 "PACKAGE_ID, " +
+																						 "CLASS_ID, " +
+																						 "TEST_ID, " +
 																						 "BUILD_ID, " +
 																						 "BUILD_NUMBER, " +
-																						 "MODULE_NAME, " +
-																						 "PACKAGE_NAME, " +
-																						 "CLASS_NAME, " +
-																						 "CASE_NAME, " +
 																						 "INDEX, " +
 																						 "STATUS, " +
 																						 "START_TIME, " +
 																						 "DURATION, " +
-																						 "ERROR_MESSAGE, " +
-																						 "ERROR_STACK_TRACE, " +
-																						 "STDOUT, " +
-																						 "STDERR) " +
-																				  "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+																						 "FAILED_SINCE, " +
+																						 "DETAIL_ID) " +
+																				  "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	
+	private static final String JUNIT_TEST_DETAILS_TABLE_INSERT_QUERY = "INSERT INTO JUNIT_TEST_DETAILS(ID, " +
+																							 "ERROR_MESSAGE, " +
+																							 "ERROR_STACK_TRACE, " +
+																							 "STDOUT, " +
+																							 "STDERR) " +
+																					  "VALUES(?, ?, ?, ?, ?)";
+	
+	private static final String JUNIT_TESTS_COPY_DETAILS_QUERY = "INSERT INTO JUNIT_TEST_DETAILS(ID, ERROR_MESSAGE, ERROR_STACK_TRACE, STDOUT, STDERR) " +
+																"SELECT ID, ERROR_MESSAGE, ERROR_STACK_TRACE, STDOUT, STDERR FROM JUNIT_TESTS " +
+																"WHERE ID > ? AND ID <= ? AND " +
+																"(ERROR_MESSAGE IS NOT NULL OR ERROR_STACK_TRACE IS NOT NULL OR STDOUT IS NOT NULL OR STDERR IS NOT NULL)";
+	
+	private static final String JUNIT_TESTS_SELECT_MAX_ID_QUERY = "SELECT MAX(ID) FROM JUNIT_TESTS";
+	private static final String JUNIT_TEST_DETAILS_SELECT_MAX_ID_QUERY = "SELECT MAX(ID) FROM JUNIT_TEST_DETAILS";
+	private static final String JUNIT_TEST_DETAIL_IDS_RESERVE_QUERY = "VALUES NEXT VALUE FOR JUNIT_TEST_DETAIL_IDS";
+	private static final String JUNIT_TESTS_SELECT_MAX_DETAIL_ID_QUERY = "SELECT MAX(DETAIL_ID) FROM JUNIT_TESTS";
+	private static final String JUNIT_TESTS_UPDATE_DETAIL_IDS_QUERY = "UPDATE JUNIT_TESTS SET DETAIL_ID = ID WHERE ID > ? AND ID <= ? AND " +
+																	 "EXISTS (SELECT 1 FROM JUNIT_TEST_DETAILS D WHERE D.ID = JUNIT_TESTS.ID)";
+	private static final String SEQUENCE_PRESENT_QUERY = "SELECT 1 FROM SYS.SYSSEQUENCES WHERE SEQUENCENAME = ?";
+	private static final String JUNIT_TESTS_COUNT_UNRESOLVED_IDENTITIES_QUERY = "SELECT COUNT(*) FROM JUNIT_TESTS WHERE TEST_ID IS NULL";
+	
+	private static final String JUNIT_TESTS_SELECT_UNRESOLVED_IDENTITIES_QUERY = "SELECT PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME, PROJECT_ID, MODULE_ID, PACKAGE_ID, CLASS_ID, TEST_ID " +
+																				"FROM JUNIT_TESTS WHERE TEST_ID IS NULL FOR UPDATE OF PROJECT_ID, MODULE_ID, PACKAGE_ID, CLASS_ID, TEST_ID";
+	
+	private static final String JUNIT_TEST_IDENTITY_TABLE_INSERT_QUERY = "INSERT INTO JUNIT_TEST_IDENTITY(TEST_ID, PROJECT_ID, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, CASE_NAME) " +
+																		"SELECT CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS VARCHAR(256)), CAST(? AS VARCHAR(2048)), CAST(? AS VARCHAR(4096)), CAST(? AS VARCHAR(2048)), CAST(? AS VARCHAR(2048)) " +
+																		"FROM SYSIBM.SYSDUMMY1 WHERE NOT EXISTS (SELECT 1 FROM JUNIT_TEST_IDENTITY WHERE TEST_ID = ?)";
+	
+	
+	private static final String JUNIT_PROJECT_SUMMARY_TABLE_INSERT_QUERY = "INSERT INTO JUNIT_PROJECT_SUMMARY(BUILD_ID, BUILD_NUMBER, PROJECT_NAME, TOTAL_COUNT, PASS_COUNT, FAIL_COUNT, ERROR_COUNT, SKIP_COUNT, START_TIME, DURATION, CUMULATIVE_TOTAL_COUNT, CUMULATIVE_PASS_COUNT, CUMULATIVE_FAIL_COUNT, CUMULATIVE_ERROR_COUNT, CUMULATIVE_SKIP_COUNT, FAILED_SINCE) " +
+																		"VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	
+	private static final String JUNIT_MODULE_SUMMARY_TABLE_INSERT_QUERY = "INSERT INTO JUNIT_MODULE_SUMMARY(BUILD_ID, BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, TOTAL_COUNT, PASS_COUNT, FAIL_COUNT, ERROR_COUNT, SKIP_COUNT, START_TIME, DURATION, CUMULATIVE_TOTAL_COUNT, CUMULATIVE_PASS_COUNT, CUMULATIVE_FAIL_COUNT, CUMULATIVE_ERROR_COUNT, CUMULATIVE_SKIP_COUNT, FAILED_SINCE) " +
+																		"VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	
+	private static final String JUNIT_PACKAGE_SUMMARY_TABLE_INSERT_QUERY = "INSERT INTO JUNIT_PACKAGE_SUMMARY(BUILD_ID, BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, TOTAL_COUNT, PASS_COUNT, FAIL_COUNT, ERROR_COUNT, SKIP_COUNT, START_TIME, DURATION, CUMULATIVE_TOTAL_COUNT, CUMULATIVE_PASS_COUNT, CUMULATIVE_FAIL_COUNT, CUMULATIVE_ERROR_COUNT, CUMULATIVE_SKIP_COUNT, FAILED_SINCE) " +
+																		"VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	
+	private static final String JUNIT_CLASS_SUMMARY_TABLE_INSERT_QUERY = "INSERT INTO JUNIT_CLASS_SUMMARY(PROJECT_ID, PACKAGE_ID, CLASS_ID, BUILD_ID, BUILD_NUMBER, PROJECT_NAME, MODULE_NAME, PACKAGE_NAME, CLASS_NAME, TOTAL_COUNT, PASS_COUNT, FAIL_COUNT, ERROR_COUNT, SKIP_COUNT, START_TIME, DURATION, CUMULATIVE_TOTAL_COUNT, CUMULATIVE_PASS_COUNT, CUMULATIVE_FAIL_COUNT, CUMULATIVE_ERROR_COUNT, CUMULATIVE_SKIP_COUNT, FAILED_SINCE) " +
+																		"VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 	
 	
 private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INTO JUNIT_ACTIVE_BUILDS(PROJECT_NAME, " +
@@ -650,89 +1094,846 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 //@formatter:on	
 	private static final Logger LOGGER = Logger.getLogger(JUnitDB.class.getName());
 
-	private final String databaseDir;
+	private static final int MAX_CONNECTIONS = Integer.getInteger(JUnitDB.class.getName() + ".maxConnections", 8);
+	private static final int MAX_CACHED_STATEMENTS = Integer.getInteger(JUnitDB.class.getName() + ".maxCachedStatements", 128);
+	private static final long MAX_CONNECTION_IDLE_TIME = Long.getLong(JUnitDB.class.getName() + ".maxConnectionIdleTime", 5 * 60 * 1000);
+	private static final long CONNECTION_BORROW_TIMEOUT = Long.getLong(JUnitDB.class.getName() + ".connectionBorrowTimeout", 60 * 1000);
 
-	private String getDatabasePath() {
-		return databaseDir + "/JUnitDB";
-	}
+	private static final int INSERT_BATCH_SIZE = Math.max(1, Integer.getInteger(JUnitDB.class.getName() + ".insertBatchSize", 500));
+	private static final int INSERT_COMMIT_SIZE = Math.max(1, Integer.getInteger(JUnitDB.class.getName() + ".insertCommitSize", 5000));
+	private static final long INSERT_BATCH_MAX_LENGTH = Long.getLong(JUnitDB.class.getName() + ".insertBatchMaxLength", 8 * 1024 * 1024);
 
-	private Connection getConnection() throws SQLException {
-		String dbUrl = "jdbc:derby:" + getDatabasePath() + ";create=true;";
-		Connection connection = DriverManager.getConnection(dbUrl);
-		connection.setAutoCommit(false);
-		return connection;
-	}
+	/**
+	 * The number of detail IDs reserved at a time, which is the increment of the JUNIT_TEST_DETAIL_IDS sequence and so cannot change without a
+	 * migration.
+	 */
+	private static final int DETAIL_ID_BLOCK_SIZE = 1000;
+	private static final long DETAIL_ID_START = 100;
 
-	private void initDB() throws SQLException {
-		Connection connection = getConnection();
-		try {
-			if(!isTablePresent(connection, TABLE_NAME_JUNIT_TESTS)) {
-				createJUnitTestsTable(connection);
-				createJUnitTestsTableIndices(connection);
-			}
-		}
-		finally {
-			connection.close();
-		}
-	}
+	private static final long SUMMARY_TREE_CACHE_MAX_WEIGHT = Long.getLong(JUnitDB.class.getName() + ".summaryTreeCacheMaxWeight", 64 * 1024 * 1024);
 
-	private void createJUnitTestsTable(Connection connection) throws SQLException {
-		Statement s = connection.createStatement();
-		try {
-			String query = JUNIT_TESTS_TABLE_CREATE_QUERY;
-			s.execute(query);
+	private static final int SUMMARY_LEVEL_MODULE = 1;
+	private static final int SUMMARY_LEVEL_PACKAGE = 2;
 
-			query = JUNIT_PROJECT_SUMMARY_TABLE_CREATE_QUERY;
-			s.execute(query);
+	private static final int MIGRATION_CHUNK_SIZE = Math.max(1, Integer.getInteger(JUnitDB.class.getName() + ".migrationChunkSize", 10000));
 
-			query = JUNIT_MODULE_SUMMARY_TABLE_CREATE_QUERY;
-			s.execute(query);
+	private static final String PROPERTY_SCHEMA_VERSION = "schemaVersion";
 
-			query = JUNIT_PACKAGE_SUMMARY_TABLE_CREATE_QUERY;
-			s.execute(query);
+	private static final String SQL_STATE_DATABASE_SHUTDOWN = "08006";
+	private static final int SCHEMA_VERSION_BASELINE = 1;
 
-			query = JUNIT_PROPERTIES_TABLE_CREATE_QUERY;
-			s.execute(query);
+	private static final ConcurrentMap<String, JUnitDB> INSTANCES = new ConcurrentHashMap<String, JUnitDB>();
 
-			query = JUNIT_ACTIVE_BUILDS_TABLE_CREATE_QUERY;
-			s.execute(query);
+	private static final ExecutorService UPGRADE_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+		private final AtomicInteger threadCount = new AtomicInteger();
 
-			connection.commit();
+		public Thread newThread(Runnable runnable) {
+			Thread result = new Thread(runnable, "JUnitDBUpgrade-" + threadCount.incrementAndGet());
+			result.setDaemon(true);
+			return result;
 		}
-		finally {
-			connection.rollback();
-			s.close();
+	});
 
-		}
-	}
+	private static final JUnitSummaryTreeCache SUMMARY_TREE_CACHE = new JUnitSummaryTreeCache(SUMMARY_TREE_CACHE_MAX_WEIGHT);
+
+	private final String databaseDir;
+
+	private final JUnitConnectionPool connectionPool;
+
+	private final List<JUnitDBMigration> migrations;
+
+	private boolean isInitialized;
+
+	private Future<?> upgrade;
+
+	private String getDatabasePath() {
+		return databaseDir + "/JUnitDB";
+	}
+
+	private Connection getConnection() throws SQLException {
+		return connectionPool.borrowConnection();
+	}
+
+	private void releaseConnection(Connection connection) {
+		connectionPool.returnConnection(connection);
+	}
+
+	private PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+		return connectionPool.prepareStatement(connection, sql);
+	}
+
+	private void releaseStatement(PreparedStatement pS) throws SQLException {
+		connectionPool.releaseStatement(pS);
+	}
+
+	/**
+	 * Creates the tables of a new database, or starts upgrading an existing one on a thread of its own if its schema is out of date, so that only
+	 * the users of this database wait for the upgrade. Returns the upgrade while it is running, or null once the database can be used. An upgrade
+	 * that fails is started again by the next call.
+	 */
+	private synchronized Future<?> initDB() throws SQLException {
+		if(!isInitialized && upgrade == null) {
+			Connection connection = getConnection();
+			try {
+				if(!isTablePresent(connection, TABLE_NAME_JUNIT_TESTS)) {
+					createJUnitTestsTable(connection);
+					createJUnitTestsTableIndices(connection);
+					writeSchemaVersion(connection, getSchemaVersion());
+					connection.commit();
+					isInitialized = true;
+				}
+				else if(readSchemaVersion(connection) < getSchemaVersion()) {
+					upgrade = UPGRADE_EXECUTOR.submit(new Callable<Void>() {
+						public Void call() throws SQLException {
+							upgradeDB();
+							return null;
+						}
+					});
+				}
+				else {
+					migrateDB(connection);
+					isInitialized = true;
+				}
+			}
+			finally {
+				releaseConnection(connection);
+			}
+		}
+		return upgrade;
+	}
+
+	private void upgradeDB() throws SQLException {
+		boolean isUpgraded = false;
+		try {
+			Connection connection = getConnection();
+			try {
+				migrateDB(connection);
+				isUpgraded = true;
+			}
+			finally {
+				releaseConnection(connection);
+			}
+		}
+		catch(SQLException sE) {
+			LOGGER.log(Level.SEVERE, "Could not upgrade " + getDatabasePath() + ": " + sE.getMessage(), sE);
+			throw sE;
+		}
+		finally {
+			synchronized(this) {
+				isInitialized = isUpgraded;
+				upgrade = null;
+			}
+		}
+	}
+
+	/**
+	 * Lists the schema migrations in version order. Databases that predate versioning are taken to be at {@link #SCHEMA_VERSION_BASELINE}, so every
+	 * step checks the layout it is about to change before touching it.
+	 */
+	private List<JUnitDBMigration> createMigrations() {
+		List<JUnitDBMigration> result = new ArrayList<JUnitDBMigration>();
+		result.add(new JUnitDBMigration(2, "store test identities instead of names in JUNIT_TESTS") {
+			@Override
+			public void migrate(Connection connection) throws SQLException {
+				if(isColumnPresent(connection, TABLE_NAME_JUNIT_TESTS, "CASE_NAME")) {
+					migrateJUnitTestsToIdentities(connection);
+				}
+			}
+		});
+		result.add(new JUnitDBMigration(3, "move test details from JUNIT_TESTS to JUNIT_TEST_DETAILS") {
+			@Override
+			public void migrate(Connection connection) throws SQLException {
+				if(isColumnPresent(connection, TABLE_NAME_JUNIT_TESTS, "STDOUT")) {
+					migrateJUnitTestDetails(connection);
+				}
+			}
+		});
+		result.add(new JUnitDBMigration(4, "replace the JUNIT_TESTS indexes with one index per identifier") {
+			@Override
+			public void migrate(Connection connection) throws SQLException {
+				if(isIndexPresent(connection, TABLE_NAME_JUNIT_TESTS, "IDX_JUNIT_TESTS_12")) {
+					migrateJUnitTestsIndices(connection);
+				}
+			}
+		});
+		result.add(new JUnitDBMigration(5, "materialize class summaries in JUNIT_CLASS_SUMMARY") {
+			@Override
+			public void migrate(Connection connection) throws SQLException {
+				migrateJUnitClassSummary(connection);
+			}
+		});
+		result.add(new JUnitDBMigration(6, "keep cumulative counts on every summary row") {
+			@Override
+			public void migrate(Connection connection) throws SQLException {
+				migrateCumulativeCounts(connection, TABLE_NAME_JUNIT_PROJECT_SUMMARY, "S.PROJECT_NAME = T.PROJECT_NAME");
+				migrateCumulativeCounts(connection, TABLE_NAME_JUNIT_MODULE_SUMMARY, "S.PROJECT_NAME = T.PROJECT_NAME AND S.MODULE_NAME = T.MODULE_NAME");
+				migrateCumulativeCounts(connection, TABLE_NAME_JUNIT_PACKAGE_SUMMARY,
+						"S.PROJECT_NAME = T.PROJECT_NAME AND S.MODULE_NAME = T.MODULE_NAME AND S.PACKAGE_NAME = T.PACKAGE_NAME");
+				migrateCumulativeCounts(connection, TABLE_NAME_JUNIT_CLASS_SUMMARY, "S.CLASS_ID = T.CLASS_ID");
+			}
+		});
+		result.add(new JUnitDBMigration(7, "record the build each run of failures started in") {
+			@Override
+			public void migrate(Connection connection) throws SQLException {
+				migrateFailedSince(connection, TABLE_NAME_JUNIT_TESTS, new String[] {"TEST_ID"}, "(%1$s.STATUS = 1 OR %1$s.STATUS = 2)");
+				migrateFailedSince(connection, TABLE_NAME_JUNIT_PROJECT_SUMMARY, new String[] {"PROJECT_NAME"}, SUMMARY_FAILED_CONDITION);
+				migrateFailedSince(connection, TABLE_NAME_JUNIT_MODULE_SUMMARY, new String[] {"PROJECT_NAME", "MODULE_NAME"}, SUMMARY_FAILED_CONDITION);
+				migrateFailedSince(connection, TABLE_NAME_JUNIT_PACKAGE_SUMMARY, new String[] {"PROJECT_NAME", "MODULE_NAME", "PACKAGE_NAME"}, SUMMARY_FAILED_CONDITION);
+				migrateFailedSince(connection, TABLE_NAME_JUNIT_CLASS_SUMMARY, new String[] {"CLASS_ID"}, SUMMARY_FAILED_CONDITION);
+			}
+		});
+		result.add(new JUnitDBMigration(8, "add the status to the JUNIT_TESTS indexes used by the build pages") {
+			@Override
+			public void migrate(Connection connection) throws SQLException {
+				if(!isIndexColumnPresent(connection, TABLE_NAME_JUNIT_TESTS, "IDX_JUNIT_TESTS_5", "STATUS")) {
+					migrateJUnitTestsStatusIndices(connection);
+				}
+			}
+		});
+		result.add(new JUnitDBMigration(9, "add the build number to the summary indexes used by the history pages") {
+			@Override
+			public void migrate(Connection connection) throws SQLException {
+				if(!isIndexColumnPresent(connection, TABLE_NAME_JUNIT_PACKAGE_SUMMARY, "IDX_JUNIT_PACKAGE_SUMMARY_1", "BUILD_NUMBER")) {
+					migrateSummaryHistoryIndices(connection);
+				}
+			}
+		});
+		result.add(new JUnitDBMigration(10, "record the tests each build regressed or fixed in JUNIT_BUILD_DIFFS") {
+			@Override
+			public void migrate(Connection connection) throws SQLException {
+				migrateJUnitBuildDiffs(connection);
+			}
+		});
+		result.add(new JUnitDBMigration(11, "key JUNIT_TEST_DETAILS by IDs reserved by the writer instead of the generated test IDs") {
+			@Override
+			public void migrate(Connection connection) throws SQLException {
+				migrateJUnitTestDetailIds(connection);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Returns the schema version this code creates and expects, that is the version of the last migration step.
+	 */
+	public int getSchemaVersion() {
+		int result = SCHEMA_VERSION_BASELINE;
+		if(!migrations.isEmpty()) {
+			result = migrations.get(migrations.size() - 1).getVersion();
+		}
+		return result;
+	}
+
+	private void migrateDB(Connection connection) throws SQLException {
+		int schemaVersion = readSchemaVersion(connection);
+		if(schemaVersion > getSchemaVersion()) {
+			LOGGER.warning("Schema version " + schemaVersion + " of " + getDatabasePath() + " is newer than the supported version " + getSchemaVersion());
+		}
+		else {
+			for(JUnitDBMigration migration: migrations) {
+				if(migration.getVersion() > schemaVersion) {
+					LOGGER.info("Upgrading " + getDatabasePath() + " from schema version " + schemaVersion + " to " + migration.getVersion() + ": " +
+							migration.getDescription());
+					long startTime = System.currentTimeMillis();
+
+					migration.migrate(connection);
+
+					schemaVersion = migration.getVersion();
+					writeSchemaVersion(connection, schemaVersion);
+					connection.commit();
+
+					LOGGER.info("Upgraded " + getDatabasePath() + " to schema version " + schemaVersion + " in " + (System.currentTimeMillis() - startTime) +
+							" ms");
+				}
+			}
+		}
+	}
+
+	private int readSchemaVersion(Connection connection) throws SQLException {
+		int result = SCHEMA_VERSION_BASELINE;
+		PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_PROPERTY);
+		try {
+			pS.setString(1, "_defaultSettings_");
+			pS.setString(2, PROPERTY_SCHEMA_VERSION);
+			ResultSet rS = pS.executeQuery();
+			try {
+				if(rS.next()) {
+					String schemaVersionStr = rS.getString(1);
+					try {
+						result = Integer.parseInt(schemaVersionStr);
+					}
+					catch(NumberFormatException nFE) {
+						throw new SQLException("Invalid schema version " + schemaVersionStr + " in " + getDatabasePath());
+					}
+				}
+			}
+			finally {
+				rS.close();
+			}
+		}
+		finally {
+			releaseStatement(pS);
+		}
+		connection.commit();
+		return result;
+	}
+
+	/**
+	 * Records the schema version as part of the current transaction; the caller commits.
+	 */
+	private void writeSchemaVersion(Connection connection, int schemaVersion) throws SQLException {
+		int updateCount = 0;
+		PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_UPDATE_PROPERTY);
+		try {
+			pS.setString(1, Integer.toString(schemaVersion));
+			pS.setString(2, "_defaultSettings_");
+			pS.setString(3, PROPERTY_SCHEMA_VERSION);
+			updateCount = pS.executeUpdate();
+		}
+		finally {
+			releaseStatement(pS);
+		}
+
+		if(updateCount == 0) {
+			pS = prepareStatement(connection, JUNIT_TESTS_INSERT_PROPERTY);
+			try {
+				pS.setString(1, "_defaultSettings_");
+				pS.setString(2, PROPERTY_SCHEMA_VERSION);
+				pS.setString(3, Integer.toString(schemaVersion));
+				pS.executeUpdate();
+			}
+			finally {
+				releaseStatement(pS);
+			}
+		}
+	}
+
+	private void createJUnitTestsTable(Connection connection) throws SQLException {
+		Statement s = connection.createStatement();
+		try {
+			String query = JUNIT_TESTS_TABLE_CREATE_QUERY;
+			s.execute(query);
+
+			query = JUNIT_TEST_IDENTITY_TABLE_CREATE_QUERY;
+			s.execute(query);
+
+			query = JUNIT_TEST_DETAILS_TABLE_CREATE_QUERY;
+			s.execute(query);
+
+			query = String.format(JUNIT_TEST_DETAIL_IDS_SEQUENCE_CREATE_QUERY, DETAIL_ID_START, DETAIL_ID_BLOCK_SIZE);
+			s.execute(query);
+
+			query = JUNIT_PROJECT_SUMMARY_TABLE_CREATE_QUERY;
+			s.execute(query);
+
+			query = JUNIT_MODULE_SUMMARY_TABLE_CREATE_QUERY;
+			s.execute(query);
+
+			query = JUNIT_PACKAGE_SUMMARY_TABLE_CREATE_QUERY;
+			s.execute(query);
+
+			query = JUNIT_CLASS_SUMMARY_TABLE_CREATE_QUERY;
+			s.execute(query);
+
+			query = JUNIT_BUILD_DIFFS_TABLE_CREATE_QUERY;
+			s.execute(query);
+
+			query = JUNIT_PROPERTIES_TABLE_CREATE_QUERY;
+			s.execute(query);
+
+			query = JUNIT_ACTIVE_BUILDS_TABLE_CREATE_QUERY;
+			s.execute(query);
+
+			connection.commit();
+		}
+		finally {
+			connection.rollback();
+			s.close();
+
+		}
+	}
+
+	private void createJUnitTestsTableIndices(Connection connection) throws SQLException {
+		Statement s = connection.createStatement();
+		try {
+			createJUnitTestsIndices(s);
+
+			s.execute(JUNIT_INDEX_TEST_IDENTITY_TABLE_1);
+
+			s.execute(JUNIT_INDEX_UNIQUE_PROJECT_SUMMARY_TABLE_1);
+			s.execute(JUNIT_INDEX_PROJECT_SUMMARY_TABLE_1);
+
+			s.execute(JUNIT_INDEX_UNIQUE_MODULE_SUMMARY_TABLE_1);
+			s.execute(JUNIT_INDEX_MODULE_SUMMARY_TABLE_1);
+
+			s.execute(JUNIT_INDEX_UNIQUE_PACKAGE_SUMMARY_TABLE_1);
+			s.execute(JUNIT_INDEX_PACKAGE_SUMMARY_TABLE_1);
+
+			createJUnitClassSummaryIndices(s);
+
+			s.execute(JUNIT_INDEX_BUILD_DIFFS_TABLE_1);
+
+			s.execute(JUNIT_INDEX_UNIQUE_PROPERTIES_TABLE_1);
+
+			connection.commit();
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+	}
+
+	private void createJUnitClassSummaryIndices(Statement s) throws SQLException {
+		s.execute(JUNIT_INDEX_UNIQUE_CLASS_SUMMARY_TABLE_1);
+		s.execute(JUNIT_INDEX_CLASS_SUMMARY_TABLE_1);
+		s.execute(JUNIT_INDEX_CLASS_SUMMARY_TABLE_2);
+	}
+
+	/**
+	 * Every query against JUNIT_TESTS selects on exactly one of the identifier columns, either for a single build or over a range of builds, so one
+	 * index per identifier with the build number second serves the build pages, the histories and the metrics alike. The status comes third on the
+	 * indexes of the class, package, module and project identifiers so that the failed, skipped and passed test lists of a build read only their
+	 * own tests.
+	 */
+	private void createJUnitTestsIndices(Statement s) throws SQLException {
+		s.execute(JUNIT_TESTS_TABLE_INDEX_1);
+		s.execute(JUNIT_TESTS_TABLE_INDEX_2);
+		s.execute(JUNIT_TESTS_TABLE_INDEX_3);
+		s.execute(JUNIT_TESTS_TABLE_INDEX_4);
+		s.execute(JUNIT_TESTS_TABLE_INDEX_5);
+	}
+
+	/**
+	 * Replaces the twelve overlapping JUNIT_TESTS indexes of earlier schema versions with the set created by
+	 * {@link #createJUnitTestsIndices(Statement)}.
+	 */
+	private void migrateJUnitTestsIndices(Connection connection) throws SQLException {
+		Statement s = connection.createStatement();
+		try {
+			dropLegacyJUnitTestsIndices(s);
+			createJUnitTestsIndices(s);
+			connection.commit();
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+	}
+
+	/**
+	 * Recreates the class, package, module and project indexes of JUNIT_TESTS of schema versions before the status was added to them.
+	 */
+	private void migrateJUnitTestsStatusIndices(Connection connection) throws SQLException {
+		Statement s = connection.createStatement();
+		try {
+			s.execute("DROP INDEX IDX_JUNIT_TESTS_2");
+			s.execute("DROP INDEX IDX_JUNIT_TESTS_3");
+			s.execute("DROP INDEX IDX_JUNIT_TESTS_4");
+			s.execute("DROP INDEX IDX_JUNIT_TESTS_5");
 
-	private void createJUnitTestsTableIndices(Connection connection) throws SQLException {
-		Statement s = connection.createStatement();
-		try {
-			s.execute(JUNIT_TESTS_TABLE_INDEX_1);
 			s.execute(JUNIT_TESTS_TABLE_INDEX_2);
 			s.execute(JUNIT_TESTS_TABLE_INDEX_3);
 			s.execute(JUNIT_TESTS_TABLE_INDEX_4);
 			s.execute(JUNIT_TESTS_TABLE_INDEX_5);
-			s.execute(JUNIT_TESTS_TABLE_INDEX_6);
-			s.execute(JUNIT_TESTS_TABLE_INDEX_7);
-			s.execute(JUNIT_TESTS_TABLE_INDEX_8);
-			s.execute(JUNIT_TESTS_TABLE_INDEX_9);
-			s.execute(JUNIT_TESTS_TABLE_INDEX_10);
-			s.execute(JUNIT_TESTS_TABLE_INDEX_11);
-			s.execute(JUNIT_TESTS_TABLE_INDEX_12);
+			connection.commit();
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+	}
+
+	private void migrateSummaryHistoryIndices(Connection connection) throws SQLException {
+		Statement s = connection.createStatement();
+		try {
+			s.execute("DROP INDEX IDX_JUNIT_PROJECT_SUMMARY_1");
+			s.execute("DROP INDEX IDX_JUNIT_MODULE_SUMMARY_1");
+			s.execute("DROP INDEX IDX_JUNIT_PACKAGE_SUMMARY_1");
+
+			s.execute(JUNIT_INDEX_PROJECT_SUMMARY_TABLE_1);
+			s.execute(JUNIT_INDEX_MODULE_SUMMARY_TABLE_1);
+			s.execute(JUNIT_INDEX_PACKAGE_SUMMARY_TABLE_1);
+			connection.commit();
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+	}
+
+	private void dropLegacyJUnitTestsIndices(Statement s) throws SQLException {
+		for(int i = 1; i <= 12; i++) {
+			s.execute("DROP INDEX IDX_JUNIT_TESTS_" + i);
+		}
+	}
+
+	/**
+	 * Converts a JUNIT_TESTS table that still stores the project, module, package, class and case names on every row to the identifier based
+	 * layout. The identifier columns are added and filled in first, committing every {@link #MIGRATION_CHUNK_SIZE} rows so that an interrupted
+	 * migration resumes where it stopped; the name columns and their indexes are then replaced in a single transaction and the table is compressed
+	 * to hand the space back to the file system.
+	 */
+	private void migrateJUnitTestsToIdentities(Connection connection) throws SQLException {
+		boolean isIdentityTablePresent = isTablePresent(connection, TABLE_NAME_JUNIT_TEST_IDENTITY);
+		boolean isIdentityColumnPresent = isColumnPresent(connection, TABLE_NAME_JUNIT_TESTS, "TEST_ID");
+
+		Statement s = connection.createStatement();
+		try {
+			if(!isIdentityTablePresent) {
+				s.execute(JUNIT_TEST_IDENTITY_TABLE_CREATE_QUERY);
+				s.execute(JUNIT_INDEX_TEST_IDENTITY_TABLE_1);
+			}
+			if(!isIdentityColumnPresent) {
+				s.execute("ALTER TABLE JUNIT_TESTS ADD COLUMN PROJECT_ID BIGINT");
+				s.execute("ALTER TABLE JUNIT_TESTS ADD COLUMN MODULE_ID BIGINT");
+				s.execute("ALTER TABLE JUNIT_TESTS ADD COLUMN PACKAGE_ID BIGINT");
+				s.execute("ALTER TABLE JUNIT_TESTS ADD COLUMN CLASS_ID BIGINT");
+				s.execute("ALTER TABLE JUNIT_TESTS ADD COLUMN TEST_ID BIGINT");
+			}
+			connection.commit();
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+
+		populateJUnitTestIdentities(connection);
+
+		s = connection.createStatement();
+		try {
+			dropLegacyJUnitTestsIndices(s);
+
+			s.execute("ALTER TABLE JUNIT_TESTS DROP COLUMN PROJECT_NAME");
+			s.execute("ALTER TABLE JUNIT_TESTS DROP COLUMN MODULE_NAME");
+			s.execute("ALTER TABLE JUNIT_TESTS DROP COLUMN PACKAGE_NAME");
+			s.execute("ALTER TABLE JUNIT_TESTS DROP COLUMN CLASS_NAME");
+			s.execute("ALTER TABLE JUNIT_TESTS DROP COLUMN CASE_NAME");
+
+			s.execute("ALTER TABLE JUNIT_TESTS ALTER COLUMN PROJECT_ID NOT NULL");
+			s.execute("ALTER TABLE JUNIT_TESTS ALTER COLUMN MODULE_ID NOT NULL");
+			s.execute("ALTER TABLE JUNIT_TESTS ALTER COLUMN PACKAGE_ID NOT NULL");
+			s.execute("ALTER TABLE JUNIT_TESTS ALTER COLUMN CLASS_ID NOT NULL");
+			s.execute("ALTER TABLE JUNIT_TESTS ALTER COLUMN TEST_ID NOT NULL");
+
+			createJUnitTestsIndices(s);
+
+			connection.commit();
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+
+		compressTable(connection, TABLE_NAME_JUNIT_TESTS);
+	}
+
+	/**
+	 * Moves the error message, stack trace, stdout and stderr of the tests that have any into JUNIT_TEST_DETAILS and drops those columns from
+	 * JUNIT_TESTS. The details are copied in ranges of {@link #MIGRATION_CHUNK_SIZE} test IDs, each committed on its own, and an interrupted copy
+	 * resumes after the highest ID already present in JUNIT_TEST_DETAILS.
+	 */
+	private void migrateJUnitTestDetails(Connection connection) throws SQLException {
+		boolean isDetailsTablePresent = isTablePresent(connection, TABLE_NAME_JUNIT_TEST_DETAILS);
+
+		Statement s = connection.createStatement();
+		try {
+			if(!isDetailsTablePresent) {
+				s.execute(JUNIT_TEST_DETAILS_TABLE_CREATE_QUERY);
+				connection.commit();
+			}
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+
+		copyJUnitTestDetails(connection);
+
+		s = connection.createStatement();
+		try {
+			s.execute("ALTER TABLE JUNIT_TESTS DROP COLUMN ERROR_MESSAGE");
+			s.execute("ALTER TABLE JUNIT_TESTS DROP COLUMN ERROR_STACK_TRACE");
+			s.execute("ALTER TABLE JUNIT_TESTS DROP COLUMN STDOUT");
+			s.execute("ALTER TABLE JUNIT_TESTS DROP COLUMN STDERR");
+
+			connection.commit();
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+
+		compressTable(connection, TABLE_NAME_JUNIT_TESTS);
+	}
+
+	/**
+	 * Creates JUNIT_CLASS_SUMMARY if needed and summarizes every build that has tests but no class summaries yet, one build per transaction.
+	 */
+	private void migrateJUnitClassSummary(Connection connection) throws SQLException {
+		boolean isClassSummaryTablePresent = isTablePresent(connection, TABLE_NAME_JUNIT_CLASS_SUMMARY);
+
+		Statement s = connection.createStatement();
+		try {
+			if(!isClassSummaryTablePresent) {
+				s.execute(JUNIT_CLASS_SUMMARY_TABLE_CREATE_QUERY);
+				createJUnitClassSummaryIndices(s);
+				connection.commit();
+			}
+
+			List<long[]> builds = new ArrayList<long[]>();
+			ResultSet rS = s.executeQuery(JUNIT_TESTS_SELECT_UNSUMMARIZED_CLASS_BUILDS_QUERY);
+			try {
+				while(rS.next()) {
+					builds.add(new long[] {rS.getLong(1), rS.getInt(2)});
+				}
+			}
+			finally {
+				rS.close();
+			}
+			connection.commit();
+
+			int count = 0;
+			for(long[] build: builds) {
+				summarizeTestClassesForBuild(connection, (int)build[1], build[0]);
+				connection.commit();
+
+				LOGGER.info("Summarized test classes of " + ++count + " of " + builds.size() + " builds in " + getDatabasePath());
+			}
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+	}
+
+	/**
+	 * Creates JUNIT_BUILD_DIFFS if needed and records the changed tests of every build, one build per transaction. Each build's differences are
+	 * cleared before they are recorded, so an interrupted migration can simply be run again.
+	 */
+	private void migrateJUnitBuildDiffs(Connection connection) throws SQLException {
+		boolean isBuildDiffsTablePresent = isTablePresent(connection, TABLE_NAME_JUNIT_BUILD_DIFFS);
+
+		Statement s = connection.createStatement();
+		try {
+			if(!isBuildDiffsTablePresent) {
+				s.execute(JUNIT_BUILD_DIFFS_TABLE_CREATE_QUERY);
+				s.execute(JUNIT_INDEX_BUILD_DIFFS_TABLE_1);
+				connection.commit();
+			}
+
+			List<long[]> builds = new ArrayList<long[]>();
+			ResultSet rS = s.executeQuery(JUNIT_TESTS_SELECT_BUILDS_QUERY);
+			try {
+				while(rS.next()) {
+					builds.add(new long[] {rS.getLong(1), rS.getInt(2)});
+				}
+			}
+			finally {
+				rS.close();
+			}
+			connection.commit();
+
+			int count = 0;
+			for(long[] build: builds) {
+				diffTestsForBuild(connection, (int)build[1], build[0]);
+				connection.commit();
+
+				LOGGER.info("Compared the tests of " + ++count + " of " + builds.size() + " builds with their previous runs in " + getDatabasePath());
+			}
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+	}
+
+	/**
+	 * Adds the cumulative count columns to a summary table that lacks them and fills them in from the rows still retained, in ranges of
+	 * {@link #MIGRATION_CHUNK_SIZE} row IDs. The key condition correlates the summed rows S with the updated row T.
+	 */
+	private void migrateCumulativeCounts(Connection connection, String tableName, String keyCondition) throws SQLException {
+		boolean isCumulativeColumnPresent = isColumnPresent(connection, tableName, "CUMULATIVE_TOTAL_COUNT");
+
+		Statement s = connection.createStatement();
+		try {
+			if(!isCumulativeColumnPresent) {
+				s.execute("ALTER TABLE " + tableName + " ADD COLUMN CUMULATIVE_TOTAL_COUNT BIGINT DEFAULT 0 NOT NULL");
+				s.execute("ALTER TABLE " + tableName + " ADD COLUMN CUMULATIVE_PASS_COUNT BIGINT DEFAULT 0 NOT NULL");
+				s.execute("ALTER TABLE " + tableName + " ADD COLUMN CUMULATIVE_FAIL_COUNT BIGINT DEFAULT 0 NOT NULL");
+				s.execute("ALTER TABLE " + tableName + " ADD COLUMN CUMULATIVE_ERROR_COUNT BIGINT DEFAULT 0 NOT NULL");
+				s.execute("ALTER TABLE " + tableName + " ADD COLUMN CUMULATIVE_SKIP_COUNT BIGINT DEFAULT 0 NOT NULL");
+				connection.commit();
+			}
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+
+		String runningSum = "FROM " + tableName + " S WHERE " + keyCondition + " AND S.BUILD_NUMBER <= T.BUILD_NUMBER)";
+		String query = "UPDATE " + tableName + " T SET " +
+				"CUMULATIVE_TOTAL_COUNT = (SELECT SUM(S.TOTAL_COUNT) " + runningSum + ", " +
+				"CUMULATIVE_PASS_COUNT = (SELECT SUM(S.PASS_COUNT) " + runningSum + ", " +
+				"CUMULATIVE_FAIL_COUNT = (SELECT SUM(S.FAIL_COUNT) " + runningSum + ", " +
+				"CUMULATIVE_ERROR_COUNT = (SELECT SUM(S.ERROR_COUNT) " + runningSum + ", " +
+				"CUMULATIVE_SKIP_COUNT = (SELECT SUM(S.SKIP_COUNT) " + runningSum + " " +
+				"WHERE T.ID > ? AND T.ID <= ?";
+
+		long fromId = 0;
+		long maxId = queryLong(connection, "SELECT MAX(ID) FROM " + tableName);
+
+		PreparedStatement pS = connection.prepareStatement(query);
+		try {
+			while(fromId < maxId) {
+				long toId = Math.min(fromId + MIGRATION_CHUNK_SIZE, maxId);
+				pS.setLong(1, fromId);
+				pS.setLong(2, toId);
+				pS.executeUpdate();
+				connection.commit();
+
+				LOGGER.info("Computed cumulative counts of " + tableName + " up to ID " + toId + " of " + maxId + " in " + getDatabasePath());
+				fromId = toId;
+			}
+		}
+		finally {
+			connection.rollback();
+			pS.close();
+		}
+	}
+
+	/**
+	 * Adds the FAILED_SINCE column to a table that lacks it and fills it in for every failed row, in ranges of {@link #MIGRATION_CHUNK_SIZE} row IDs.
+	 * A row's run of failures starts with the first row of the same key after the last one that did not fail. The failed condition is a format
+	 * string applied to the alias of the row it tests.
+	 */
+	private void migrateFailedSince(Connection connection, String tableName, String[] keyColumns, String failedCondition) throws SQLException {
+		boolean isFailedSinceColumnPresent = isColumnPresent(connection, tableName, "FAILED_SINCE");
+
+		Statement s = connection.createStatement();
+		try {
+			if(!isFailedSinceColumnPresent) {
+				s.execute("ALTER TABLE " + tableName + " ADD COLUMN FAILED_SINCE INTEGER DEFAULT 0 NOT NULL");
+				connection.commit();
+			}
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+
+		StringBuilder sKeyCondition = new StringBuilder();
+		StringBuilder pKeyCondition = new StringBuilder();
+		for(String keyColumn: keyColumns) {
+			sKeyCondition.append("S.").append(keyColumn).append(" = T.").append(keyColumn).append(" AND ");
+			pKeyCondition.append("P.").append(keyColumn).append(" = T.").append(keyColumn).append(" AND ");
+		}
+
+		String query = "UPDATE " + tableName + " T SET FAILED_SINCE = " +
+				"(SELECT MIN(S.BUILD_NUMBER) FROM " + tableName + " S WHERE " + sKeyCondition + "S.BUILD_NUMBER <= T.BUILD_NUMBER AND " +
+				"S.BUILD_NUMBER > (SELECT COALESCE(MAX(P.BUILD_NUMBER), 0) FROM " + tableName + " P WHERE " + pKeyCondition +
+				"P.BUILD_NUMBER < T.BUILD_NUMBER AND NOT (" + String.format(failedCondition, "P") + "))) " +
+				"WHERE T.ID > ? AND T.ID <= ? AND " + String.format(failedCondition, "T");
+
+		long fromId = 0;
+		long maxId = queryLong(connection, "SELECT MAX(ID) FROM " + tableName);
+
+		PreparedStatement pS = connection.prepareStatement(query);
+		try {
+			while(fromId < maxId) {
+				long toId = Math.min(fromId + MIGRATION_CHUNK_SIZE, maxId);
+				pS.setLong(1, fromId);
+				pS.setLong(2, toId);
+				pS.executeUpdate();
+				connection.commit();
+
+				LOGGER.info("Recorded failure starts of " + tableName + " up to ID " + toId + " of " + maxId + " in " + getDatabasePath());
+				fromId = toId;
+			}
+		}
+		finally {
+			connection.rollback();
+			pS.close();
+		}
+	}
+
+	private void copyJUnitTestDetails(Connection connection) throws SQLException {
+		long fromId = queryLong(connection, JUNIT_TEST_DETAILS_SELECT_MAX_ID_QUERY);
+		long maxId = queryLong(connection, JUNIT_TESTS_SELECT_MAX_ID_QUERY);
+
+		PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_COPY_DETAILS_QUERY);
+		try {
+			while(fromId < maxId) {
+				long toId = Math.min(fromId + MIGRATION_CHUNK_SIZE, maxId);
+				pS.setLong(1, fromId);
+				pS.setLong(2, toId);
+				pS.executeUpdate();
+				connection.commit();
+
+				LOGGER.info("Copied details of tests up to ID " + toId + " of " + maxId + " in " + getDatabasePath());
+				fromId = toId;
+			}
+		}
+		finally {
+			connection.rollback();
+			releaseStatement(pS);
+		}
+	}
+
+	/**
+	 * Adds DETAIL_ID to JUNIT_TESTS, pointing every test that has details at its row in JUNIT_TEST_DETAILS, which is still keyed by the test's own
+	 * ID, and creates the sequence new detail IDs are reserved from, starting after the highest existing one. The tests are updated in ranges of
+	 * {@link #MIGRATION_CHUNK_SIZE} IDs found through a temporary index, each committed on its own, and an interrupted update resumes after the
+	 * highest DETAIL_ID already set.
+	 */
+	private void migrateJUnitTestDetailIds(Connection connection) throws SQLException {
+		boolean isDetailIdPresent = isColumnPresent(connection, TABLE_NAME_JUNIT_TESTS, "DETAIL_ID");
+		boolean isDetailIdsIndexPresent = isIndexPresent(connection, TABLE_NAME_JUNIT_TESTS, "IDX_JUNIT_TESTS_DETAIL_IDS");
+
+		Statement s = connection.createStatement();
+		try {
+			if(!isDetailIdPresent) {
+				s.execute("ALTER TABLE JUNIT_TESTS ADD COLUMN DETAIL_ID BIGINT");
+				connection.commit();
+			}
+			if(!isDetailIdsIndexPresent) {
+				s.execute(JUNIT_TESTS_TABLE_INDEX_DETAIL_IDS);
+				connection.commit();
+			}
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
 
-			s.execute(JUNIT_INDEX_UNIQUE_PROJECT_SUMMARY_TABLE_1);
-			s.execute(JUNIT_INDEX_PROJECT_SUMMARY_TABLE_1);
+		long fromId = queryLong(connection, JUNIT_TESTS_SELECT_MAX_DETAIL_ID_QUERY);
+		long maxId = queryLong(connection, JUNIT_TEST_DETAILS_SELECT_MAX_ID_QUERY);
 
-			s.execute(JUNIT_INDEX_UNIQUE_MODULE_SUMMARY_TABLE_1);
-			s.execute(JUNIT_INDEX_MODULE_SUMMARY_TABLE_1);
+		PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_UPDATE_DETAIL_IDS_QUERY);
+		try {
+			while(fromId < maxId) {
+				long toId = Math.min(fromId + MIGRATION_CHUNK_SIZE, maxId);
+				pS.setLong(1, fromId);
+				pS.setLong(2, toId);
+				pS.executeUpdate();
+				connection.commit();
 
-			s.execute(JUNIT_INDEX_UNIQUE_PACKAGE_SUMMARY_TABLE_1);
-			s.execute(JUNIT_INDEX_PACKAGE_SUMMARY_TABLE_1);
+				LOGGER.info("Linked details of tests up to ID " + toId + " of " + maxId + " in " + getDatabasePath());
+				fromId = toId;
+			}
+		}
+		finally {
+			connection.rollback();
+			releaseStatement(pS);
+		}
 
-			s.execute(JUNIT_INDEX_UNIQUE_PROPERTIES_TABLE_1);
+		boolean isDetailIdsSequencePresent = isSequencePresent(connection, SEQUENCE_NAME_JUNIT_TEST_DETAIL_IDS);
 
+		s = connection.createStatement();
+		try {
+			if(!isDetailIdsSequencePresent) {
+				s.execute(String.format(JUNIT_TEST_DETAIL_IDS_SEQUENCE_CREATE_QUERY, Math.max(maxId + 1, DETAIL_ID_START), DETAIL_ID_BLOCK_SIZE));
+			}
+			s.execute("DROP INDEX IDX_JUNIT_TESTS_DETAIL_IDS");
 			connection.commit();
 		}
 		finally {
@@ -741,12 +1942,171 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		}
 	}
 
+	private long queryLong(Connection connection, String query) throws SQLException {
+		Statement s = connection.createStatement();
+		try {
+			ResultSet rS = s.executeQuery(query);
+			try {
+				if(rS.next()) {
+					return rS.getLong(1);
+				}
+				return 0;
+			}
+			finally {
+				rS.close();
+			}
+		}
+		finally {
+			s.close();
+		}
+	}
+
+	private void compressTable(Connection connection, String tableName) throws SQLException {
+		connection.setAutoCommit(true);
+		CallableStatement cs = connection.prepareCall("CALL SYSCS_UTIL.SYSCS_COMPRESS_TABLE(?, ?, ?)");
+		try {
+			cs.setString(1, "APP");
+			cs.setString(2, tableName);
+			cs.setShort(3, (short)1);
+			cs.execute();
+		}
+		finally {
+			cs.close();
+			connection.setAutoCommit(false);
+		}
+	}
+
+	private void populateJUnitTestIdentities(Connection connection) throws SQLException {
+		long unresolvedCount = queryLong(connection, JUNIT_TESTS_COUNT_UNRESOLVED_IDENTITIES_QUERY);
+
+		Statement s = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE, ResultSet.HOLD_CURSORS_OVER_COMMIT);
+		try {
+			PreparedStatement identityPS = prepareStatement(connection, JUNIT_TEST_IDENTITY_TABLE_INSERT_QUERY);
+			try {
+				ResultSet rS = s.executeQuery(JUNIT_TESTS_SELECT_UNRESOLVED_IDENTITIES_QUERY);
+				try {
+					Set<Long> testIds = new HashSet<Long>();
+					int count = 0;
+					while(rS.next()) {
+						String projectName = rS.getString(1);
+						String moduleName = rS.getString(2);
+						String packageName = rS.getString(3);
+						String className = rS.getString(4);
+						String caseName = rS.getString(5);
+
+						long projectId = JUnitIdentity.projectId(projectName);
+						long moduleId = JUnitIdentity.childId(projectId, moduleName);
+						long packageId = JUnitIdentity.childId(moduleId, packageName);
+						long classId = JUnitIdentity.childId(packageId, className);
+						long testId = JUnitIdentity.childId(classId, caseName);
+
+						if(testIds.add(testId)) {
+							addTestIdentity(identityPS, testId, projectId, projectName, moduleName, packageName, className, caseName);
+						}
+
+						rS.updateLong(6, projectId);
+						rS.updateLong(7, moduleId);
+						rS.updateLong(8, packageId);
+						rS.updateLong(9, classId);
+						rS.updateLong(10, testId);
+						rS.updateRow();
+
+						if(++count % MIGRATION_CHUNK_SIZE == 0) {
+							identityPS.executeBatch();
+							connection.commit();
+							testIds.clear();
+
+							LOGGER.info("Resolved identities of " + count + " of " + unresolvedCount + " tests in " + getDatabasePath());
+						}
+					}
+
+					identityPS.executeBatch();
+					connection.commit();
+				}
+				finally {
+					rS.close();
+				}
+			}
+			finally {
+				releaseStatement(identityPS);
+			}
+		}
+		finally {
+			connection.rollback();
+			s.close();
+		}
+	}
+
+	private boolean isSequencePresent(Connection connection, String sequenceName) throws SQLException {
+		PreparedStatement pS = prepareStatement(connection, SEQUENCE_PRESENT_QUERY);
+		try {
+			pS.setString(1, sequenceName);
+			ResultSet rS = pS.executeQuery();
+			try {
+				return rS.next();
+			}
+			finally {
+				rS.close();
+			}
+		}
+		finally {
+			connection.rollback();
+			releaseStatement(pS);
+		}
+	}
+
+	private boolean isColumnPresent(Connection connection, String tableName, String columnName) throws SQLException {
+		DatabaseMetaData databaseMetaData = connection.getMetaData();
+		ResultSet rS = databaseMetaData.getColumns(null, null, tableName, columnName);
+		try {
+			return rS.next();
+		}
+		finally {
+			connection.rollback();
+			rS.close();
+		}
+	}
+
+	private boolean isIndexPresent(Connection connection, String tableName, String indexName) throws SQLException {
+		DatabaseMetaData databaseMetaData = connection.getMetaData();
+		ResultSet rS = databaseMetaData.getIndexInfo(null, null, tableName, false, true);
+		try {
+			while(rS.next()) {
+				if(indexName.equals(rS.getString(6))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		finally {
+			connection.rollback();
+			rS.close();
+		}
+	}
+
+	private boolean isIndexColumnPresent(Connection connection, String tableName, String indexName, String columnName) throws SQLException {
+		DatabaseMetaData databaseMetaData = connection.getMetaData();
+		ResultSet rS = databaseMetaData.getIndexInfo(null, null, tableName, false, true);
+		try {
+			while(rS.next()) {
+				if(indexName.equals(rS.getString(6)) && columnName.equals(rS.getString(9))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		finally {
+			connection.rollback();
+			rS.close();
+		}
+	}
+
 	private boolean isTablePresent(Connection connection, String tableName) throws SQLException {
 		if(tableName != null) {
 			DatabaseMetaData databaseMetaData = connection.getMetaData();
 			ResultSet rS = null;
 			try {
-				rS = databaseMetaData.getTables(null, null, TABLE_NAME_JUNIT_TESTS, null);
+				rS = databaseMetaData.getTables(null, null, tableName, null);
 				while(rS.next()) {
 					String currentTableName = rS.getString(3);
 					if(tableName.equals(currentTableName)) {
@@ -763,9 +2123,102 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		return false;
 	}
 
-	public JUnitDB(String databaseDir) throws SQLException {
+	private JUnitDB(String databaseDir) {
 		this.databaseDir = databaseDir;
-		initDB();
+		this.connectionPool = new JUnitConnectionPool("jdbc:derby:" + getDatabasePath() + ";create=true;", MAX_CONNECTIONS, MAX_CACHED_STATEMENTS,
+				MAX_CONNECTION_IDLE_TIME, CONNECTION_BORROW_TIMEOUT);
+		this.migrations = createMigrations();
+	}
+
+	/**
+	 * Returns the registered instance for the database stored under the given directory, registering a new one on first use. Nothing is opened
+	 * here, so callers for other databases never wait on this one.
+	 */
+	private static JUnitDB registerInstance(String databaseDir) {
+		String key = new File(databaseDir).getAbsolutePath();
+		JUnitDB result = INSTANCES.get(key);
+		if(result == null) {
+			JUnitDB junitDB = new JUnitDB(key);
+			result = INSTANCES.putIfAbsent(key, junitDB);
+			if(result == null) {
+				result = junitDB;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the shared instance for the database stored under the given directory, creating it (and checking its schema) on first use. If the
+	 * schema is out of date it is upgraded in the background, and a {@link JUnitDBUpgradingException} is thrown until the upgrade has finished.
+	 */
+	public static JUnitDB getInstance(String databaseDir) throws SQLException {
+		JUnitDB result = registerInstance(databaseDir);
+		if(result.initDB() != null) {
+			throw new JUnitDBUpgradingException("The test database " + result.getDatabasePath() + " is being upgraded to schema version " +
+					result.getSchemaVersion());
+		}
+		return result;
+	}
+
+	/**
+	 * Closes the shared instance for the database stored under the given directory, if there is one, and shuts the database down, for use once the
+	 * project owning it has been deleted or moved. Connections still borrowed are closed as they are returned.
+	 */
+	public static void closeInstance(String databaseDir) {
+		JUnitDB junitDB = INSTANCES.remove(new File(databaseDir).getAbsolutePath());
+		if(junitDB != null) {
+			junitDB.close();
+		}
+	}
+
+	private void close() {
+		connectionPool.close();
+		SUMMARY_TREE_CACHE.removeDatabase(databaseDir);
+		try {
+			DriverManager.getConnection("jdbc:derby:" + getDatabasePath() + ";shutdown=true");
+		}
+		catch(SQLException sE) {
+			if(!SQL_STATE_DATABASE_SHUTDOWN.equals(sE.getSQLState())) {
+				LOGGER.log(Level.WARNING, "Could not shut down " + getDatabasePath() + ": " + sE.getMessage(), sE);
+			}
+		}
+	}
+
+	/**
+	 * Returns the shared instance for the database stored under the given directory like {@link #getInstance(String)}, but waits for an upgrade of
+	 * its schema to finish instead of failing.
+	 */
+	public static JUnitDB awaitInstance(String databaseDir) throws SQLException, InterruptedException {
+		JUnitDB result = registerInstance(databaseDir);
+		Future<?> upgrade;
+		while((upgrade = result.initDB()) != null) {
+			try {
+				upgrade.get();
+			}
+			catch(ExecutionException eE) {
+				Throwable cause = eE.getCause();
+				if(cause instanceof SQLException) {
+					throw (SQLException)cause;
+				}
+				throw new SQLException(cause);
+			}
+		}
+		return result;
+	}
+
+	public long getStatementCacheHitCount() {
+		return connectionPool.getStatementCacheHitCount();
+	}
+
+	public long getStatementCacheMissCount() {
+		return connectionPool.getStatementCacheMissCount();
+	}
+
+	/**
+	 * Returns the cache of summary trees shared by all databases, for its statistics.
+	 */
+	public static JUnitSummaryTreeCache getSummaryTreeCache() {
+		return SUMMARY_TREE_CACHE;
 	}
 
 	public void insertTest(JUnitTestInfo test) throws SQLException {
@@ -774,62 +2227,226 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		insertTests(tests);
 	}
 
+	/**
+	 * Inserts the given tests using JDBC batches. A batch is sent once it holds {@link #getInsertBatchSize()} tests or its stdout/stderr content
+	 * reaches {@link #getInsertBatchMaxLength()} characters, and the work is committed every {@link #getInsertCommitSize()} tests. Test cases not
+	 * seen before are added to JUNIT_TEST_IDENTITY first. Each failed test is given the build its current run of failures started in, carried over
+	 * from the test's most recent earlier row. Tests with details are given IDs from blocks reserved from the JUNIT_TEST_DETAIL_IDS sequence, which
+	 * key their rows in JUNIT_TEST_DETAILS, so that both tables are written in batches.
+	 */
 	public void insertTests(List<JUnitTestInfo> tests) throws SQLException {
 		if(tests != null && !tests.isEmpty()) {
 			Connection connection = getConnection();
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_TABLE_INSERT_QUERY);
 			try {
-				for(JUnitTestInfo junitTestInfo: tests) {
-					pS.setString(1, junitTestInfo.getProjectName());
-					pS.setString(2, junitTestInfo.getBuildId());
-					pS.setInt(3, junitTestInfo.getBuildNumber());
-					pS.setString(4, junitTestInfo.getModuleName());
-					pS.setString(5, junitTestInfo.getPackageName());
-					pS.setString(6, junitTestInfo.getClassName());
-					pS.setString(7, junitTestInfo.getCaseName());
-					pS.setInt(8, junitTestInfo.getIndex());
-					pS.setInt(9, junitTestInfo.getStatus());
-					pS.setTimestamp(10, new Timestamp(junitTestInfo.getStartTime()));
-					pS.setLong(11, junitTestInfo.getDuration());
-
-					JUnitTestDetailInfo junitTestDetailInfo = junitTestInfo.getDetail();
-					if(junitTestDetailInfo != null) {
-						pS.setString(12, truncate(junitTestDetailInfo.getErrorMessage(), 1024));
-						pS.setString(13, truncate(junitTestDetailInfo.getErrorStackTrace(), 8192));
-
-						Reader stdoutReader = junitTestDetailInfo.getStdout();
-						if(stdoutReader != null) {
-							pS.setCharacterStream(14, stdoutReader);
-						}
-						else {
-							pS.setNull(14, Types.CLOB);
+				insertTestIdentities(connection, tests);
+
+				PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_TABLE_INSERT_QUERY);
+				try {
+					PreparedStatement detailPS = prepareStatement(connection, JUNIT_TEST_DETAILS_TABLE_INSERT_QUERY);
+					PreparedStatement failedSincePS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_CASE_FAILED_SINCE_QUERY);
+					try {
+						int batchCount = 0;
+						long detailId = 0;
+						long detailIdLimit = 0;
+						int detailBatchCount = 0;
+						long detailBatchLength = 0;
+						int uncommittedCount = 0;
+						for(JUnitTestInfo junitTestInfo: tests) {
+							int failedSince = 0;
+							int status = junitTestInfo.getStatus();
+							if(status == JUnitTestInfo.STATUS_FAIL || status == JUnitTestInfo.STATUS_ERROR) {
+								failedSincePS.setInt(1, junitTestInfo.getBuildNumber() - 1);
+								failedSincePS.setLong(2, JUnitIdentity.testId(junitTestInfo.getProjectName(), junitTestInfo.getModuleName(), junitTestInfo.getPackageName(),
+										junitTestInfo.getClassName(), junitTestInfo.getCaseName()));
+								failedSince = queryFailedSince(failedSincePS, junitTestInfo.getBuildNumber());
+							}
+							junitTestInfo.setFailedSince(failedSince);
+
+							JUnitTestDetailInfo junitTestDetailInfo = junitTestInfo.getDetail();
+							if(hasDetail(junitTestDetailInfo)) {
+								if(detailId == detailIdLimit) {
+									detailId = reserveDetailIds(connection);
+									detailIdLimit = detailId + DETAIL_ID_BLOCK_SIZE;
+								}
+								setTestParameters(pS, junitTestInfo, detailId);
+								detailPS.setLong(1, detailId++);
+								detailPS.setString(2, truncate(junitTestDetailInfo.getErrorMessage(), 1024));
+								detailPS.setString(3, truncate(junitTestDetailInfo.getErrorStackTrace(), 8192));
+								detailBatchLength += setClob(detailPS, 4, junitTestDetailInfo.getStdout(), junitTestDetailInfo.getStdoutLength());
+								detailBatchLength += setClob(detailPS, 5, junitTestDetailInfo.getStderr(), junitTestDetailInfo.getStderrLength());
+								detailPS.addBatch();
+								detailBatchCount++;
+							}
+							else {
+								setTestParameters(pS, junitTestInfo, 0);
+							}
+							pS.addBatch();
+							batchCount++;
+							uncommittedCount++;
+
+							boolean isCommitting = uncommittedCount >= INSERT_COMMIT_SIZE;
+							if(batchCount > 0 && (batchCount >= INSERT_BATCH_SIZE || isCommitting)) {
+								pS.executeBatch();
+								batchCount = 0;
+							}
+							if(detailBatchCount > 0 && (detailBatchCount >= INSERT_BATCH_SIZE || detailBatchLength >= INSERT_BATCH_MAX_LENGTH || isCommitting)) {
+								detailPS.executeBatch();
+								detailBatchCount = 0;
+								detailBatchLength = 0;
+							}
+							if(isCommitting) {
+								connection.commit();
+								uncommittedCount = 0;
+							}
 						}
 
-						Reader stderrReader = junitTestDetailInfo.getStderr();
-						if(stderrReader != null) {
-							pS.setCharacterStream(15, stderrReader);
+						if(batchCount > 0) {
+							pS.executeBatch();
 						}
-						else {
-							pS.setNull(15, Types.CLOB);
+						if(detailBatchCount > 0) {
+							detailPS.executeBatch();
 						}
-
+						connection.commit();
 					}
-					else {
-						pS.setNull(12, Types.VARCHAR);
-						pS.setNull(13, Types.VARCHAR);
-						pS.setNull(14, Types.CLOB);
-						pS.setNull(15, Types.CLOB);
+					finally {
+						releaseStatement(failedSincePS);
+						releaseStatement(detailPS);
 					}
-					pS.executeUpdate();
 				}
-				connection.commit();
+				finally {
+					releaseStatement(pS);
+				}
 			}
 			finally {
-				pS.close();
-				connection.rollback();
-				connection.close();
+				releaseConnection(connection);
+			}
+		}
+	}
+
+	/**
+	 * Reserves a block of {@link #DETAIL_ID_BLOCK_SIZE} detail IDs and returns the first. Sequence values are handed out outside the current
+	 * transaction, so a block is never reserved twice, even if the tests it was reserved for are rolled back.
+	 */
+	private long reserveDetailIds(Connection connection) throws SQLException {
+		PreparedStatement pS = prepareStatement(connection, JUNIT_TEST_DETAIL_IDS_RESERVE_QUERY);
+		try {
+			ResultSet rS = pS.executeQuery();
+			try {
+				rS.next();
+				return rS.getLong(1);
+			}
+			finally {
+				rS.close();
+			}
+		}
+		finally {
+			releaseStatement(pS);
+		}
+	}
+
+	/**
+	 * Sets the columns of a test row, with the given detail ID, or none if it is 0.
+	 */
+	private void setTestParameters(PreparedStatement pS, JUnitTestInfo junitTestInfo, long detailId) throws SQLException {
+		long projectId = JUnitIdentity.projectId(junitTestInfo.getProjectName());
+		long moduleId = JUnitIdentity.childId(projectId, junitTestInfo.getModuleName());
+		long packageId = JUnitIdentity.childId(moduleId, junitTestInfo.getPackageName());
+		long classId = JUnitIdentity.childId(packageId, junitTestInfo.getClassName());
+
+		pS.setLong(1, projectId);
+		pS.setLong(2, moduleId);
+		pS.setLong(3, packageId);
+		pS.setLong(4, classId);
+		pS.setLong(5, JUnitIdentity.childId(classId, junitTestInfo.getCaseName()));
+		pS.setString(6, junitTestInfo.getBuildId());
+		pS.setInt(7, junitTestInfo.getBuildNumber());
+		pS.setInt(8, junitTestInfo.getIndex());
+		pS.setInt(9, junitTestInfo.getStatus());
+		pS.setTimestamp(10, new Timestamp(junitTestInfo.getStartTime()));
+		pS.setLong(11, junitTestInfo.getDuration());
+		pS.setInt(12, junitTestInfo.getFailedSince());
+		if(detailId == 0) {
+			pS.setNull(13, Types.BIGINT);
+		}
+		else {
+			pS.setLong(13, detailId);
+		}
+	}
+
+	private boolean hasDetail(JUnitTestDetailInfo junitTestDetailInfo) {
+		return junitTestDetailInfo != null &&
+				(junitTestDetailInfo.getErrorMessage() != null || junitTestDetailInfo.getErrorStackTrace() != null || junitTestDetailInfo.getStdout() != null || junitTestDetailInfo.getStderr() != null);
+	}
+
+	private void insertTestIdentities(Connection connection, List<JUnitTestInfo> tests) throws SQLException {
+		PreparedStatement pS = prepareStatement(connection, JUNIT_TEST_IDENTITY_TABLE_INSERT_QUERY);
+		try {
+			Set<Long> testIds = new HashSet<Long>();
+			int batchCount = 0;
+			for(JUnitTestInfo junitTestInfo: tests) {
+				String projectName = junitTestInfo.getProjectName();
+				String moduleName = junitTestInfo.getModuleName();
+				String packageName = junitTestInfo.getPackageName();
+				String className = junitTestInfo.getClassName();
+				String caseName = junitTestInfo.getCaseName();
+
+				long testId = JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName);
+				if(testIds.add(testId)) {
+					addTestIdentity(pS, testId, JUnitIdentity.projectId(projectName), projectName, moduleName, packageName, className, caseName);
+					if(++batchCount >= INSERT_BATCH_SIZE) {
+						pS.executeBatch();
+						batchCount = 0;
+					}
+				}
+			}
+
+			if(batchCount > 0) {
+				pS.executeBatch();
 			}
 		}
+		finally {
+			releaseStatement(pS);
+		}
+	}
+
+	private void addTestIdentity(PreparedStatement pS, long testId, long projectId, String projectName, String moduleName, String packageName,
+			String className, String caseName) throws SQLException {
+		pS.setLong(1, testId);
+		pS.setLong(2, projectId);
+		pS.setString(3, projectName);
+		pS.setString(4, moduleName);
+		pS.setString(5, packageName);
+		pS.setString(6, className);
+		pS.setString(7, caseName);
+		pS.setLong(8, testId);
+		pS.addBatch();
+	}
+
+	private long setClob(PreparedStatement pS, int parameterIndex, Reader reader, long length) throws SQLException {
+		long result = 0;
+		if(reader == null) {
+			pS.setNull(parameterIndex, Types.CLOB);
+		}
+		else if(length >= 0 && length <= Integer.MAX_VALUE) {
+			pS.setCharacterStream(parameterIndex, reader, (int)length);
+			result = length;
+		}
+		else {
+			pS.setCharacterStream(parameterIndex, reader);
+		}
+		return result;
+	}
+
+	public int getInsertBatchSize() {
+		return INSERT_BATCH_SIZE;
+	}
+
+	public int getInsertCommitSize() {
+		return INSERT_COMMIT_SIZE;
+	}
+
+	public long getInsertBatchMaxLength() {
+		return INSERT_BATCH_MAX_LENGTH;
 	}
 
 	private String truncate(String str, int limit) {
@@ -843,59 +2460,149 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		List<JUnitTestInfo> result = new ArrayList<JUnitTestInfo>();
 		if(rS != null) {
 			while(rS.next()) {
-				JUnitTestInfo junitTestInfo = new JUnitTestInfo();
-				junitTestInfo.setId(rS.getLong(1));
-				junitTestInfo.setProjectName(rS.getString(2));
-				junitTestInfo.setBuildId(rS.getString(3));
-				junitTestInfo.setBuildNumber(rS.getInt(4));
-				junitTestInfo.setModuleName(rS.getString(5));
-				junitTestInfo.setPackageName(rS.getString(6));
-				junitTestInfo.setClassName(rS.getString(7));
-				junitTestInfo.setCaseName(rS.getString(8));
-				junitTestInfo.setIndex(rS.getInt(9));
-				junitTestInfo.setStatus(rS.getInt(10));
-				junitTestInfo.setStartTime(rS.getTimestamp(11).getTime());
-				junitTestInfo.setDuration(rS.getLong(12));
-				result.add(junitTestInfo);
+				result.add(readTest(rS));
 			}
 		}
 		return result;
 	}
 
+	private static JUnitTestInfo readTest(ResultSet rS) throws SQLException {
+		JUnitTestInfo junitTestInfo = new JUnitTestInfo();
+		junitTestInfo.setId(rS.getLong(1));
+		junitTestInfo.setProjectName(rS.getString(2));
+		junitTestInfo.setBuildId(rS.getString(3));
+		junitTestInfo.setBuildNumber(rS.getInt(4));
+		junitTestInfo.setModuleName(rS.getString(5));
+		junitTestInfo.setPackageName(rS.getString(6));
+		junitTestInfo.setClassName(rS.getString(7));
+		junitTestInfo.setCaseName(rS.getString(8));
+		junitTestInfo.setIndex(rS.getInt(9));
+		junitTestInfo.setStatus(rS.getInt(10));
+		junitTestInfo.setStartTime(rS.getTimestamp(11).getTime());
+		junitTestInfo.setDuration(rS.getLong(12));
+		junitTestInfo.setFailedSince(rS.getInt(13));
+		return junitTestInfo;
+	}
+
 	private List<JUnitSummaryInfo> readSummary(ResultSet rS, int limit) throws SQLException {
 		List<JUnitSummaryInfo> result = new ArrayList<JUnitSummaryInfo>();
 		if(rS != null) {
-			int count = 0;
-			while((limit < 0 || count < limit) && rS.next()) {
-				JUnitSummaryInfo junitSummaryInfo = new JUnitSummaryInfo();
-				junitSummaryInfo.setBuildId(rS.getString(1));
-				junitSummaryInfo.setBuildNumber(rS.getInt(2));
-				junitSummaryInfo.setProjectName(rS.getString(3));
-				junitSummaryInfo.setModuleName(rS.getString(4));
-				junitSummaryInfo.setPackageName(rS.getString(5));
-				junitSummaryInfo.setClassName(rS.getString(6));
-				junitSummaryInfo.setCaseName(rS.getString(7));
-				junitSummaryInfo.setTotalCount(rS.getLong(8));
-				junitSummaryInfo.setPassCount(rS.getLong(9));
-				junitSummaryInfo.setFailCount(rS.getLong(10));
-				junitSummaryInfo.setErrorCount(rS.getLong(11));
-				junitSummaryInfo.setSkipCount(rS.getLong(12));
-				junitSummaryInfo.setStartTime(rS.getTimestamp(13).getTime());
-				junitSummaryInfo.setDuration(rS.getLong(14));
-				result.add(junitSummaryInfo);
-				count++;
+			while((limit < 0 || result.size() < limit) && rS.next()) {
+				result.add(readSummaryInfo(rS, 0));
 			}
 		}
 		return result;
 	}
 
+	/**
+	 * Reads the 15 summary columns that follow the first offset columns of the current row.
+	 */
+	private static JUnitSummaryInfo readSummaryInfo(ResultSet rS, int offset) throws SQLException {
+		JUnitSummaryInfo junitSummaryInfo = new JUnitSummaryInfo();
+		junitSummaryInfo.setBuildId(rS.getString(offset + 1));
+		junitSummaryInfo.setBuildNumber(rS.getInt(offset + 2));
+		junitSummaryInfo.setProjectName(rS.getString(offset + 3));
+		junitSummaryInfo.setModuleName(rS.getString(offset + 4));
+		junitSummaryInfo.setPackageName(rS.getString(offset + 5));
+		junitSummaryInfo.setClassName(rS.getString(offset + 6));
+		junitSummaryInfo.setCaseName(rS.getString(offset + 7));
+		junitSummaryInfo.setTotalCount(rS.getLong(offset + 8));
+		junitSummaryInfo.setPassCount(rS.getLong(offset + 9));
+		junitSummaryInfo.setFailCount(rS.getLong(offset + 10));
+		junitSummaryInfo.setErrorCount(rS.getLong(offset + 11));
+		junitSummaryInfo.setSkipCount(rS.getLong(offset + 12));
+		junitSummaryInfo.setStartTime(rS.getTimestamp(offset + 13).getTime());
+		junitSummaryInfo.setDuration(rS.getLong(offset + 14));
+		junitSummaryInfo.setFailedSince(rS.getInt(offset + 15));
+		return junitSummaryInfo;
+	}
+
+	/**
+	 * Reads a row of one of the children queries: the child's summary, its cumulative counts and the summary of its previous build, whose columns are
+	 * all null if there is none.
+	 */
+	private static JUnitChildSummaryInfo readChildSummaryInfo(ResultSet rS) throws SQLException {
+		JUnitChildSummaryInfo junitChildSummaryInfo = new JUnitChildSummaryInfo();
+		junitChildSummaryInfo.setSummary(readSummaryInfo(rS, 0));
+		junitChildSummaryInfo.setMetrics(readMetricsInfo(rS, 15));
+		if(rS.getString(21) != null) {
+			junitChildSummaryInfo.setPreviousSummary(readSummaryInfo(rS, 20));
+		}
+		return junitChildSummaryInfo;
+	}
+
+	/**
+	 * Runs a query returning JUNIT_TESTS rows and hands back a cursor over them; the cursor owns the connection until it is closed.
+	 */
+	private JUnitCursor<JUnitTestInfo> openTests(String query, Object... parameters) throws SQLException {
+		JUnitCursor<JUnitTestInfo> result = new JUnitCursor<JUnitTestInfo>(connectionPool) {
+			@Override
+			protected JUnitTestInfo read(ResultSet rS) throws SQLException {
+				return readTest(rS);
+			}
+		};
+		result.open(query, parameters);
+		return result;
+	}
+
+	/**
+	 * As {@link #openTests(String, Object...)}, for queries returning summary rows.
+	 */
+	private JUnitCursor<JUnitSummaryInfo> openSummaries(String query, Object... parameters) throws SQLException {
+		JUnitCursor<JUnitSummaryInfo> result = new JUnitCursor<JUnitSummaryInfo>(connectionPool) {
+			@Override
+			protected JUnitSummaryInfo read(ResultSet rS) throws SQLException {
+				return readSummaryInfo(rS, 0);
+			}
+		};
+		result.open(query, parameters);
+		return result;
+	}
+
+	/**
+	 * As {@link #openTests(String, Object...)}, for the children queries.
+	 */
+	private JUnitCursor<JUnitChildSummaryInfo> openChildSummaries(String query, Object... parameters) throws SQLException {
+		JUnitCursor<JUnitChildSummaryInfo> result = new JUnitCursor<JUnitChildSummaryInfo>(connectionPool) {
+			@Override
+			protected JUnitChildSummaryInfo read(ResultSet rS) throws SQLException {
+				return readChildSummaryInfo(rS);
+			}
+		};
+		result.open(query, parameters);
+		return result;
+	}
+
+	private int queryInt(String query, Object... parameters) throws SQLException {
+		List<Integer> result = queryInts(query, parameters);
+		return result.isEmpty() ? 0 : result.get(0);
+	}
+
+	private List<Integer> queryInts(String query, Object... parameters) throws SQLException {
+		JUnitCursor<Integer> cursor = new JUnitCursor<Integer>(connectionPool) {
+			@Override
+			protected Integer read(ResultSet rS) throws SQLException {
+				return rS.getInt(1);
+			}
+		};
+		cursor.open(query, parameters);
+		return cursor.toList(-1);
+	}
+
+	/**
+	 * Derby does not accept a FETCH FIRST row count below one, nor a negative one standing for all rows.
+	 */
+	private static int toFetchSize(int limit) {
+		return limit < 0 ? Integer.MAX_VALUE : Math.max(1, limit);
+	}
+
 	public List<JUnitTestInfo> queryTestsByProject(String projectName, int buildNumber) throws SQLException {
 		List<JUnitTestInfo> result = new ArrayList<JUnitTestInfo>();
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_QUERY);
 			try {
-				pS.setString(1, projectName);
+				pS.setLong(1, JUnitIdentity.projectId(projectName));
 				pS.setInt(2, buildNumber);
 
 				ResultSet rS = pS.executeQuery();
@@ -907,28 +2614,40 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 
 	}
 
+	/**
+	 * Returns the tests of the project in the given build whose status lies between the given {@link JUnitTestInfo} status constants, inclusive.
+	 */
+	public List<JUnitTestInfo> queryTestsByProject(String projectName, int buildNumber, int minStatus, int maxStatus) throws SQLException {
+		return openTestsByProject(projectName, buildNumber, minStatus, maxStatus).toList(-1);
+	}
+
+	/**
+	 * As {@link #queryTestsByProject(String, int, int, int)}, but the tests are read as the returned cursor is walked. The cursor must be closed.
+	 */
+	public JUnitCursor<JUnitTestInfo> openTestsByProject(String projectName, int buildNumber, int minStatus, int maxStatus) throws SQLException {
+		return openTests(JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_STATUS_QUERY, JUnitIdentity.projectId(projectName), buildNumber, minStatus, maxStatus);
+	}
+
 	public List<JUnitTestInfo> queryTestsByModule(String projectName, int buildNumber, String moduleName) throws SQLException {
 
 		List<JUnitTestInfo> result = new ArrayList<JUnitTestInfo>();
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_QUERY);
 			try {
-				pS.setString(1, projectName);
+				pS.setLong(1, JUnitIdentity.moduleId(projectName, moduleName));
 				pS.setInt(2, buildNumber);
-				pS.setString(3, moduleName);
 
 				ResultSet rS = pS.executeQuery();
 				try {
@@ -940,29 +2659,41 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 
 	}
 
+	/**
+	 * As {@link #queryTestsByProject(String, int, int, int)}, for the tests of one module.
+	 */
+	public List<JUnitTestInfo> queryTestsByModule(String projectName, int buildNumber, String moduleName, int minStatus, int maxStatus) throws SQLException {
+		return openTestsByModule(projectName, buildNumber, moduleName, minStatus, maxStatus).toList(-1);
+	}
+
+	/**
+	 * As {@link #openTestsByProject(String, int, int, int)}, for the tests of one module.
+	 */
+	public JUnitCursor<JUnitTestInfo> openTestsByModule(String projectName, int buildNumber, String moduleName, int minStatus, int maxStatus) throws SQLException {
+		return openTests(JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_STATUS_QUERY, JUnitIdentity.moduleId(projectName, moduleName), buildNumber, minStatus,
+				maxStatus);
+	}
+
 	public List<JUnitTestInfo> queryTestsByPackage(String projectName, int buildNumber, String moduleName, String packageName) throws SQLException {
 
 		List<JUnitTestInfo> result = new ArrayList<JUnitTestInfo>();
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_PACKAGE_NAME_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_PACKAGE_NAME_QUERY);
 			try {
-				pS.setString(1, projectName);
+				pS.setLong(1, JUnitIdentity.packageId(projectName, moduleName, packageName));
 				pS.setInt(2, buildNumber);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
 
 				ResultSet rS = pS.executeQuery();
 				try {
@@ -974,30 +2705,43 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 
 	}
 
+	/**
+	 * As {@link #queryTestsByProject(String, int, int, int)}, for the tests of one package.
+	 */
+	public List<JUnitTestInfo> queryTestsByPackage(String projectName, int buildNumber, String moduleName, String packageName, int minStatus, int maxStatus)
+			throws SQLException {
+		return openTestsByPackage(projectName, buildNumber, moduleName, packageName, minStatus, maxStatus).toList(-1);
+	}
+
+	/**
+	 * As {@link #openTestsByProject(String, int, int, int)}, for the tests of one package.
+	 */
+	public JUnitCursor<JUnitTestInfo> openTestsByPackage(String projectName, int buildNumber, String moduleName, String packageName, int minStatus, int maxStatus)
+			throws SQLException {
+		return openTests(JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_PACKAGE_NAME_STATUS_QUERY, JUnitIdentity.packageId(projectName, moduleName, packageName),
+				buildNumber, minStatus, maxStatus);
+	}
+
 	public List<JUnitTestInfo> queryTestsByClass(String projectName, int buildNumber, String moduleName, String packageName, String className) throws SQLException {
 
 		List<JUnitTestInfo> result = new ArrayList<JUnitTestInfo>();
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_PACKAGE_NAME_CLASS_NAME_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_PACKAGE_NAME_CLASS_NAME_QUERY);
 			try {
-				pS.setString(1, projectName);
+				pS.setLong(1, JUnitIdentity.classId(projectName, moduleName, packageName, className));
 				pS.setInt(2, buildNumber);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-				pS.setString(5, className);
 
 				ResultSet rS = pS.executeQuery();
 				try {
@@ -1009,31 +2753,43 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 
 	}
 
+	/**
+	 * As {@link #queryTestsByProject(String, int, int, int)}, for the tests of one class.
+	 */
+	public List<JUnitTestInfo> queryTestsByClass(String projectName, int buildNumber, String moduleName, String packageName, String className, int minStatus,
+			int maxStatus) throws SQLException {
+		return openTestsByClass(projectName, buildNumber, moduleName, packageName, className, minStatus, maxStatus).toList(-1);
+	}
+
+	/**
+	 * As {@link #openTestsByProject(String, int, int, int)}, for the tests of one class.
+	 */
+	public JUnitCursor<JUnitTestInfo> openTestsByClass(String projectName, int buildNumber, String moduleName, String packageName, String className, int minStatus,
+			int maxStatus) throws SQLException {
+		return openTests(JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_PACKAGE_NAME_CLASS_NAME_STATUS_QUERY,
+				JUnitIdentity.classId(projectName, moduleName, packageName, className), buildNumber, minStatus, maxStatus);
+	}
+
 	public JUnitTestInfo queryTestCase(String projectName, int buildNumber, String moduleName, String packageName, String className, String caseName) throws SQLException {
 
 		JUnitTestInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_CLASS_NAME_CASE_NAME_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SELECT_BY_PROJECT_NAME_BUILD_NUMBER_MODULE_NAME_CLASS_NAME_CASE_NAME_QUERY);
 			try {
-				pS.setString(1, projectName);
+				pS.setLong(1, JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName));
 				pS.setInt(2, buildNumber);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-				pS.setString(5, className);
-				pS.setString(6, caseName);
 
 				ResultSet rS = pS.executeQuery();
 				try {
@@ -1047,13 +2803,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 
@@ -1065,14 +2820,10 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitTestInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SELECT_BY_PROJECT_NAME_PRIOR_BUILD_NUMBER_MODULE_NAME_CLASS_NAME_CASE_NAME_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SELECT_BY_PROJECT_NAME_PRIOR_BUILD_NUMBER_MODULE_NAME_CLASS_NAME_CASE_NAME_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-				pS.setString(5, className);
-				pS.setString(6, caseName);
+				pS.setLong(2, JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName));
 
 				ResultSet rS = pS.executeQuery();
 				try {
@@ -1086,85 +2837,69 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 
 	}
 
 	public List<JUnitTestInfo> getTestCaseHistory(String projectName, String moduleName, String packageName, String className, String caseName) throws SQLException {
+		return openTestCaseHistory(projectName, moduleName, packageName, className, caseName).toList(-1);
+	}
 
-		List<JUnitTestInfo> result = new ArrayList<JUnitTestInfo>();
-		Connection connection = getConnection();
-		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_TEST_CASE_HISTORY_QUERY);
-			try {
-				pS.setString(1, projectName);
-				pS.setString(2, moduleName);
-				pS.setString(3, packageName);
-				pS.setString(4, className);
-				pS.setString(5, caseName);
-
-				ResultSet rS = pS.executeQuery();
-				try {
-					result = readTests(rS);
-				}
-				finally {
-					rS.close();
-				}
-			}
-			finally {
-				pS.close();
-			}
-			connection.commit();
-		}
-		finally {
-			connection.rollback();
-			connection.close();
-		}
-		return result;
-
+	/**
+	 * Returns a cursor over every recorded run of the test case, newest first. The cursor must be closed.
+	 */
+	public JUnitCursor<JUnitTestInfo> openTestCaseHistory(String projectName, String moduleName, String packageName, String className, String caseName)
+			throws SQLException {
+		return openTests(JUNIT_TESTS_TEST_CASE_HISTORY_QUERY, JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName));
 	}
 
 	public List<JUnitSummaryInfo> summarizeTestCaseHistory(String projectName, String moduleName, String packageName, String className,
 			String caseName, int limit) throws SQLException {
+		return summarizeTestCaseHistory(projectName, moduleName, packageName, className, caseName, Integer.MAX_VALUE, limit);
+	}
 
-		List<JUnitSummaryInfo> result = new ArrayList<JUnitSummaryInfo>();
-		Connection connection = getConnection();
-		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SUMMARIZE_TEST_CASE_HISTORY_QUERY);
-			try {
-				pS.setString(1, projectName);
-				pS.setString(2, moduleName);
-				pS.setString(3, packageName);
-				pS.setString(4, className);
-				pS.setString(5, caseName);
+	/**
+	 * Returns one page of the history of the test case: at most limit builds numbered below beforeBuildNumber, newest first. The next page starts
+	 * before the last build returned.
+	 */
+	public List<JUnitSummaryInfo> summarizeTestCaseHistory(String projectName, String moduleName, String packageName, String className,
+			String caseName, int beforeBuildNumber, int limit) throws SQLException {
+		return openSummaries(JUNIT_TESTS_SUMMARIZE_TEST_CASE_HISTORY_QUERY, JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName),
+				beforeBuildNumber, toFetchSize(limit)).toList(limit);
+	}
 
-				ResultSet rS = pS.executeQuery();
-				try {
-					result = readSummary(rS, limit);
-				}
-				finally {
-					rS.close();
-				}
-			}
-			finally {
-				pS.close();
-			}
-			connection.commit();
-		}
-		finally {
-			connection.rollback();
-			connection.close();
-		}
-		return result;
+	/**
+	 * As {@link #summarizeTestCaseHistory(String, String, String, String, String, int)}, but the builds are read as the returned cursor is walked. The
+	 * cursor must be closed.
+	 */
+	public JUnitCursor<JUnitSummaryInfo> openTestCaseSummaryHistory(String projectName, String moduleName, String packageName, String className,
+			String caseName) throws SQLException {
+		return openSummaries(JUNIT_TESTS_SUMMARIZE_TEST_CASE_HISTORY_QUERY, JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName),
+				Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the number of builds the test case was run in.
+	 */
+	public int countTestCaseHistory(String projectName, String moduleName, String packageName, String className, String caseName) throws SQLException {
+		return queryInt(JUNIT_TESTS_COUNT_TEST_CASE_HISTORY_QUERY, JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName));
+	}
 
+	/**
+	 * Returns the numbers of at most limit builds the test case was run in, starting at fromBuildNumber and oldest first. Used to find the start of
+	 * the history page preceding a given one.
+	 */
+	public List<Integer> fetchTestCaseBuildNumbers(String projectName, String moduleName, String packageName, String className, String caseName,
+			int fromBuildNumber, int limit) throws SQLException {
+		return queryInts(JUNIT_TESTS_FETCH_TEST_CASE_BUILD_NUMBERS_QUERY, JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName),
+				fromBuildNumber, toFetchSize(limit));
 	}
 
 	public JUnitSummaryInfo summarizeTestCaseForBuild(int buildNumber, String projectName, String moduleName, String packageName, String className,
@@ -1173,14 +2908,10 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitSummaryInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SUMMARIZE_TEST_CASE_FOR_BUILD_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SUMMARIZE_TEST_CASE_FOR_BUILD_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-				pS.setString(5, className);
-				pS.setString(6, caseName);
+				pS.setLong(2, JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName));
 
 				ResultSet rS = pS.executeQuery();
 				try {
@@ -1194,13 +2925,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -1211,14 +2941,10 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitSummaryInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SUMMARIZE_TEST_CASE_FOR_BUILD_PRIOR_TO_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SUMMARIZE_TEST_CASE_FOR_BUILD_PRIOR_TO_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-				pS.setString(5, className);
-				pS.setString(6, caseName);
+				pS.setLong(2, JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName));
 
 				ResultSet rS = pS.executeQuery();
 				try {
@@ -1232,46 +2958,45 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
 
 	public List<JUnitSummaryInfo> summarizeTestClassHistory(String projectName, String moduleName, String packageName, String className, int limit) throws SQLException {
-		List<JUnitSummaryInfo> result = new ArrayList<JUnitSummaryInfo>();
-		Connection connection = getConnection();
-		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SUMMARIZE_TEST_CLASS_HISTORY_QUERY);
-			try {
-				pS.setString(1, projectName);
-				pS.setString(2, moduleName);
-				pS.setString(3, packageName);
-				pS.setString(4, className);
+		return summarizeTestClassHistory(projectName, moduleName, packageName, className, Integer.MAX_VALUE, limit);
+	}
 
-				ResultSet rS = pS.executeQuery();
-				try {
-					result = readSummary(rS, limit);
-				}
-				finally {
-					rS.close();
-				}
-			}
-			finally {
-				pS.close();
-			}
-			connection.commit();
-		}
-		finally {
-			connection.rollback();
-			connection.close();
-		}
-		return result;
+	/**
+	 * As {@link #summarizeTestCaseHistory(String, String, String, String, String, int, int)}, for a test class.
+	 */
+	public List<JUnitSummaryInfo> summarizeTestClassHistory(String projectName, String moduleName, String packageName, String className, int beforeBuildNumber,
+			int limit) throws SQLException {
+		return openSummaries(JUNIT_TESTS_SUMMARIZE_TEST_CLASS_HISTORY_QUERY, JUnitIdentity.classId(projectName, moduleName, packageName, className), beforeBuildNumber,
+				toFetchSize(limit)).toList(limit);
+	}
+
+	/**
+	 * As {@link #openTestCaseSummaryHistory(String, String, String, String, String)}, for a test class.
+	 */
+	public JUnitCursor<JUnitSummaryInfo> openTestClassSummaryHistory(String projectName, String moduleName, String packageName, String className) throws SQLException {
+		return openSummaries(JUNIT_TESTS_SUMMARIZE_TEST_CLASS_HISTORY_QUERY, JUnitIdentity.classId(projectName, moduleName, packageName, className), Integer.MAX_VALUE,
+				Integer.MAX_VALUE);
+	}
+
+	public int countTestClassHistory(String projectName, String moduleName, String packageName, String className) throws SQLException {
+		return queryInt(JUNIT_TESTS_COUNT_TEST_CLASS_HISTORY_QUERY, JUnitIdentity.classId(projectName, moduleName, packageName, className));
+	}
+
+	public List<Integer> fetchTestClassBuildNumbers(String projectName, String moduleName, String packageName, String className, int fromBuildNumber, int limit)
+			throws SQLException {
+		return queryInts(JUNIT_TESTS_FETCH_TEST_CLASS_BUILD_NUMBERS_QUERY, JUnitIdentity.classId(projectName, moduleName, packageName, className), fromBuildNumber,
+				toFetchSize(limit));
 	}
 
 	public List<JUnitTestInfo> fetchTestClassChildrenForBuild(int buildNumber, String projectName, String moduleName, String packageName,
@@ -1279,13 +3004,10 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		List<JUnitTestInfo> result = new ArrayList<JUnitTestInfo>();
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_CLASS_CHILDREN_FOR_BUILD_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_CLASS_CHILDREN_FOR_BUILD_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-				pS.setString(5, className);
+				pS.setLong(2, JUnitIdentity.classId(projectName, moduleName, packageName, className));
 
 				ResultSet rS = pS.executeQuery();
 				try {
@@ -1296,13 +3018,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -1311,13 +3032,10 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitSummaryInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SUMMARIZE_TEST_CLASS_FOR_BUILD_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SUMMARIZE_TEST_CLASS_FOR_BUILD_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-				pS.setString(5, className);
+				pS.setLong(2, JUnitIdentity.classId(projectName, moduleName, packageName, className));
 
 				ResultSet rS = pS.executeQuery();
 				try {
@@ -1331,13 +3049,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -1347,13 +3064,10 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitSummaryInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SUMMARIZE_TEST_CLASS_FOR_BUILD_PRIOR_TO_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SUMMARIZE_TEST_CLASS_FOR_BUILD_PRIOR_TO_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-				pS.setString(5, className);
+				pS.setLong(2, JUnitIdentity.classId(projectName, moduleName, packageName, className));
 
 				ResultSet rS = pS.executeQuery();
 				try {
@@ -1367,254 +3081,445 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
 
 	public List<JUnitSummaryInfo> summarizeTestPackageHistory(String projectName, String moduleName, String packageName, int limit) throws SQLException {
-		List<JUnitSummaryInfo> result = new ArrayList<JUnitSummaryInfo>();
-		Connection connection = getConnection();
-		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SUMMARIZE_TEST_PACKAGE_HISTORY_QUERY);
+		return summarizeTestPackageHistory(projectName, moduleName, packageName, Integer.MAX_VALUE, limit);
+	}
+
+	/**
+	 * As {@link #summarizeTestCaseHistory(String, String, String, String, String, int, int)}, for a package.
+	 */
+	public List<JUnitSummaryInfo> summarizeTestPackageHistory(String projectName, String moduleName, String packageName, int beforeBuildNumber, int limit)
+			throws SQLException {
+		return openSummaries(JUNIT_TESTS_SUMMARIZE_TEST_PACKAGE_HISTORY_QUERY, projectName, moduleName, packageName, beforeBuildNumber, toFetchSize(limit)).toList(limit);
+	}
+
+	/**
+	 * As {@link #openTestCaseSummaryHistory(String, String, String, String, String)}, for a package.
+	 */
+	public JUnitCursor<JUnitSummaryInfo> openTestPackageSummaryHistory(String projectName, String moduleName, String packageName) throws SQLException {
+		return openSummaries(JUNIT_TESTS_SUMMARIZE_TEST_PACKAGE_HISTORY_QUERY, projectName, moduleName, packageName, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	public int countTestPackageHistory(String projectName, String moduleName, String packageName) throws SQLException {
+		return queryInt(JUNIT_TESTS_COUNT_TEST_PACKAGE_HISTORY_QUERY, projectName, moduleName, packageName);
+	}
+
+	public List<Integer> fetchTestPackageBuildNumbers(String projectName, String moduleName, String packageName, int fromBuildNumber, int limit) throws SQLException {
+		return queryInts(JUNIT_TESTS_FETCH_TEST_PACKAGE_BUILD_NUMBERS_QUERY, projectName, moduleName, packageName, fromBuildNumber, toFetchSize(limit));
+	}
+
+	/**
+	 * Fetches the summaries of the classes of a package in the given build, each with its previous build's summary and its cumulative counts, in a single query.
+	 */
+	public List<JUnitChildSummaryInfo> fetchTestPackageChildrenForBuild(int buildNumber, String projectName, String moduleName, String packageName) throws SQLException {
+		return openChildSummaries(JUNIT_TESTS_FETCH_TEST_PACKAGE_CHILDREN_FOR_BUILD_QUERY, buildNumber, JUnitIdentity.packageId(projectName, moduleName, packageName)).toList(-1);
+	}
+
+	/**
+	 * Writes the summaries collected while parsing a build in a single transaction: the project summary, the summary of every class and the module
+	 * and package summaries of the given modules.
+	 */
+	public void insertSummaries(JUnitSummaryCollector summaryCollector, Collection<String> moduleNames) throws SQLException {
+		JUnitSummaryInfo projectSummary = summaryCollector.getProjectSummary();
+		if(projectSummary != null) {
+			Connection connection = getConnection();
 			try {
-				pS.setString(1, projectName);
-				pS.setString(2, moduleName);
-				pS.setString(3, packageName);
+				JUnitMetricsInfo previousMetrics = null;
+				PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_PROJECT_METRICS_FOR_BUILD_QUERY);
+				try {
+					pS.setInt(1, projectSummary.getBuildNumber() - 1);
+					pS.setString(2, projectSummary.getProjectName());
+					previousMetrics = queryMetrics(pS);
+				}
+				finally {
+					releaseStatement(pS);
+				}
 
-				ResultSet rS = pS.executeQuery();
+				int failedSince = 0;
+				if(projectSummary.getFailCount() + projectSummary.getErrorCount() > 0) {
+					pS = prepareStatement(connection, JUNIT_FETCH_TEST_PROJECT_FAILED_SINCE_QUERY);
+					try {
+						pS.setInt(1, projectSummary.getBuildNumber() - 1);
+						pS.setString(2, projectSummary.getProjectName());
+						failedSince = queryFailedSince(pS, projectSummary.getBuildNumber());
+					}
+					finally {
+						releaseStatement(pS);
+					}
+				}
+				projectSummary.setFailedSince(failedSince);
+
+				pS = prepareStatement(connection, JUNIT_PROJECT_SUMMARY_TABLE_INSERT_QUERY);
 				try {
-					result = readSummary(rS, limit);
+					pS.setString(1, projectSummary.getBuildId());
+					pS.setInt(2, projectSummary.getBuildNumber());
+					pS.setString(3, projectSummary.getProjectName());
+					setSummaryParameters(pS, 4, projectSummary, previousMetrics);
+					pS.executeUpdate();
 				}
 				finally {
-					rS.close();
+					releaseStatement(pS);
 				}
-			}
-			finally {
-				pS.close();
-			}
-			connection.commit();
-		}
-		finally {
-			connection.rollback();
-			connection.close();
-		}
-		return result;
-	}
 
-	public List<JUnitSummaryInfo> fetchTestPackageChildrenForBuild(int buildNumber, String projectName, String moduleName, String packageName) throws SQLException {
-		List<JUnitSummaryInfo> result = new ArrayList<JUnitSummaryInfo>();
-		Connection connection = getConnection();
-		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_PACKAGE_CHILDREN_FOR_BUILD_QUERY);
-			try {
-				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
+				pS = prepareStatement(connection, JUNIT_MODULE_SUMMARY_TABLE_INSERT_QUERY);
+				try {
+					PreparedStatement metricsPS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_MODULE_METRICS_FOR_BUILD_QUERY);
+					PreparedStatement failedSincePS = prepareStatement(connection, JUNIT_FETCH_TEST_MODULE_FAILED_SINCE_QUERY);
+					try {
+						for(JUnitSummaryInfo moduleSummary: summaryCollector.getModuleSummaries()) {
+							if(moduleNames.contains(moduleSummary.getModuleName())) {
+								metricsPS.setInt(1, moduleSummary.getBuildNumber() - 1);
+								metricsPS.setString(2, moduleSummary.getProjectName());
+								metricsPS.setString(3, moduleSummary.getModuleName());
+
+								failedSince = 0;
+								if(moduleSummary.getFailCount() + moduleSummary.getErrorCount() > 0) {
+									failedSincePS.setInt(1, moduleSummary.getBuildNumber() - 1);
+									failedSincePS.setString(2, moduleSummary.getProjectName());
+									failedSincePS.setString(3, moduleSummary.getModuleName());
+									failedSince = queryFailedSince(failedSincePS, moduleSummary.getBuildNumber());
+								}
+								moduleSummary.setFailedSince(failedSince);
+
+								pS.setString(1, moduleSummary.getBuildId());
+								pS.setInt(2, moduleSummary.getBuildNumber());
+								pS.setString(3, moduleSummary.getProjectName());
+								pS.setString(4, moduleSummary.getModuleName());
+								setSummaryParameters(pS, 5, moduleSummary, queryMetrics(metricsPS));
+								pS.addBatch();
+							}
+						}
+						pS.executeBatch();
+					}
+					finally {
+						releaseStatement(failedSincePS);
+						releaseStatement(metricsPS);
+					}
+				}
+				finally {
+					releaseStatement(pS);
+				}
 
-				ResultSet rS = pS.executeQuery();
+				pS = prepareStatement(connection, JUNIT_PACKAGE_SUMMARY_TABLE_INSERT_QUERY);
 				try {
-					result = readSummary(rS, -1);
+					PreparedStatement metricsPS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_PACKAGE_METRICS_FOR_BUILD_QUERY);
+					PreparedStatement failedSincePS = prepareStatement(connection, JUNIT_FETCH_TEST_PACKAGE_FAILED_SINCE_QUERY);
+					try {
+						int batchCount = 0;
+						for(JUnitSummaryInfo packageSummary: summaryCollector.getPackageSummaries()) {
+							if(moduleNames.contains(packageSummary.getModuleName())) {
+								metricsPS.setInt(1, packageSummary.getBuildNumber() - 1);
+								metricsPS.setString(2, packageSummary.getProjectName());
+								metricsPS.setString(3, packageSummary.getModuleName());
+								metricsPS.setString(4, packageSummary.getPackageName());
+
+								failedSince = 0;
+								if(packageSummary.getFailCount() + packageSummary.getErrorCount() > 0) {
+									failedSincePS.setInt(1, packageSummary.getBuildNumber() - 1);
+									failedSincePS.setString(2, packageSummary.getProjectName());
+									failedSincePS.setString(3, packageSummary.getModuleName());
+									failedSincePS.setString(4, packageSummary.getPackageName());
+									failedSince = queryFailedSince(failedSincePS, packageSummary.getBuildNumber());
+								}
+								packageSummary.setFailedSince(failedSince);
+
+								pS.setString(1, packageSummary.getBuildId());
+								pS.setInt(2, packageSummary.getBuildNumber());
+								pS.setString(3, packageSummary.getProjectName());
+								pS.setString(4, packageSummary.getModuleName());
+								pS.setString(5, packageSummary.getPackageName());
+								setSummaryParameters(pS, 6, packageSummary, queryMetrics(metricsPS));
+								pS.addBatch();
+
+								if(++batchCount % INSERT_BATCH_SIZE == 0) {
+									pS.executeBatch();
+								}
+							}
+						}
+						pS.executeBatch();
+					}
+					finally {
+						releaseStatement(failedSincePS);
+						releaseStatement(metricsPS);
+					}
 				}
 				finally {
-					rS.close();
+					releaseStatement(pS);
+				}
+
+				pS = prepareStatement(connection, JUNIT_CLASS_SUMMARY_TABLE_INSERT_QUERY);
+				try {
+					PreparedStatement metricsPS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_CLASS_METRICS_FOR_BUILD_QUERY);
+					PreparedStatement failedSincePS = prepareStatement(connection, JUNIT_FETCH_TEST_CLASS_FAILED_SINCE_QUERY);
+					try {
+						int batchCount = 0;
+						for(JUnitSummaryInfo classSummary: summaryCollector.getClassSummaries()) {
+							long projectId = JUnitIdentity.projectId(classSummary.getProjectName());
+							long packageId = JUnitIdentity.childId(JUnitIdentity.childId(projectId, classSummary.getModuleName()), classSummary.getPackageName());
+							long classId = JUnitIdentity.childId(packageId, classSummary.getClassName());
+
+							metricsPS.setInt(1, classSummary.getBuildNumber() - 1);
+							metricsPS.setLong(2, classId);
+
+							failedSince = 0;
+							if(classSummary.getFailCount() + classSummary.getErrorCount() > 0) {
+								failedSincePS.setInt(1, classSummary.getBuildNumber() - 1);
+								failedSincePS.setLong(2, classId);
+								failedSince = queryFailedSince(failedSincePS, classSummary.getBuildNumber());
+							}
+							classSummary.setFailedSince(failedSince);
+
+							pS.setLong(1, projectId);
+							pS.setLong(2, packageId);
+							pS.setLong(3, classId);
+							pS.setString(4, classSummary.getBuildId());
+							pS.setInt(5, classSummary.getBuildNumber());
+							pS.setString(6, classSummary.getProjectName());
+							pS.setString(7, classSummary.getModuleName());
+							pS.setString(8, classSummary.getPackageName());
+							pS.setString(9, classSummary.getClassName());
+							setSummaryParameters(pS, 10, classSummary, queryMetrics(metricsPS));
+							pS.addBatch();
+
+							if(++batchCount % INSERT_BATCH_SIZE == 0) {
+								pS.executeBatch();
+							}
+						}
+						pS.executeBatch();
+					}
+					finally {
+						releaseStatement(failedSincePS);
+						releaseStatement(metricsPS);
+					}
+				}
+				finally {
+					releaseStatement(pS);
 				}
+
+				diffTestsForBuild(connection, projectSummary.getBuildNumber(), JUnitIdentity.projectId(projectSummary.getProjectName()));
+
+				connection.commit();
 			}
 			finally {
-				pS.close();
+				releaseConnection(connection);
 			}
-			connection.commit();
+			SUMMARY_TREE_CACHE.remove(databaseDir, projectSummary.getProjectName(), projectSummary.getBuildNumber());
 		}
-		finally {
-			connection.rollback();
-			connection.close();
+	}
+
+	/**
+	 * Sets the counts, start time and duration of the summary followed by its cumulative counts, which are those of the most recent earlier summary
+	 * of the same project, module, package or class plus the summary's own, and the build its failures started in.
+	 */
+	private void setSummaryParameters(PreparedStatement pS, int index, JUnitSummaryInfo summary, JUnitMetricsInfo previousMetrics) throws SQLException {
+		pS.setLong(index, summary.getTotalCount());
+		pS.setLong(index + 1, summary.getPassCount());
+		pS.setLong(index + 2, summary.getFailCount());
+		pS.setLong(index + 3, summary.getErrorCount());
+		pS.setLong(index + 4, summary.getSkipCount());
+		pS.setTimestamp(index + 5, new Timestamp(summary.getStartTime()));
+		pS.setLong(index + 6, summary.getDuration());
+
+		long cumulativeTotalCount = summary.getTotalCount();
+		long cumulativePassCount = summary.getPassCount();
+		long cumulativeFailCount = summary.getFailCount();
+		long cumulativeErrorCount = summary.getErrorCount();
+		long cumulativeSkipCount = summary.getSkipCount();
+		if(previousMetrics != null) {
+			cumulativeTotalCount += previousMetrics.getTotalCount();
+			cumulativePassCount += previousMetrics.getSuccessCount();
+			cumulativeFailCount += previousMetrics.getFailCount();
+			cumulativeErrorCount += previousMetrics.getErrorCount();
+			cumulativeSkipCount += previousMetrics.getSkipCount();
 		}
-		return result;
+		pS.setLong(index + 7, cumulativeTotalCount);
+		pS.setLong(index + 8, cumulativePassCount);
+		pS.setLong(index + 9, cumulativeFailCount);
+		pS.setLong(index + 10, cumulativeErrorCount);
+		pS.setLong(index + 11, cumulativeSkipCount);
+		pS.setInt(index + 12, summary.getFailedSince());
 	}
 
-	public void summarizeTestPackagesForBuild(int buildNumber, String projectName, String moduleName) throws SQLException {
-		Connection connection = getConnection();
+	/**
+	 * Runs a query for whether the most recent earlier row of a failing test or summary failed and since when, and returns the build the current
+	 * run of failures started in: that of the earlier row if it failed too, otherwise the given build.
+	 */
+	private int queryFailedSince(PreparedStatement pS, int buildNumber) throws SQLException {
+		int result = buildNumber;
+		ResultSet rS = pS.executeQuery();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SUMMARIZE_TEST_PACKAGES_FOR_BUILD_QUERY);
-			try {
-				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.executeUpdate();
+			if(rS.next() && rS.getLong(1) > 0 && rS.getInt(2) > 0) {
+				result = rS.getInt(2);
 			}
-			finally {
-				pS.close();
-			}
-			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			rS.close();
 		}
+		return result;
 	}
 
-	public JUnitSummaryInfo fetchTestPackageSummaryForBuild(int buildNumber, String projectName, String moduleName, String packageName) throws SQLException {
-		JUnitSummaryInfo result = null;
-		Connection connection = getConnection();
+	private JUnitMetricsInfo queryMetrics(PreparedStatement pS) throws SQLException {
+		ResultSet rS = pS.executeQuery();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_PACKAGE_SUMMARY_FOR_BUILD_QUERY);
-			try {
-				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-
-				ResultSet rS = pS.executeQuery();
-				try {
-					List<JUnitSummaryInfo> junitSummaryInfoList = readSummary(rS, 1);
-					if(!junitSummaryInfoList.isEmpty()) {
-						result = junitSummaryInfoList.get(0);
-					}
-				}
-				finally {
-					rS.close();
-				}
-			}
-			finally {
-				pS.close();
-			}
-			connection.commit();
+			return readMetrics(rS);
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			rS.close();
 		}
-		return result;
 	}
 
-	public JUnitSummaryInfo fetchTestPackageSummaryForBuildPriorTo(int buildNumber, String projectName, String moduleName, String packageName) throws SQLException {
-		JUnitSummaryInfo result = null;
-		Connection connection = getConnection();
+	private void summarizeTestClassesForBuild(Connection connection, int buildNumber, long projectId) throws SQLException {
+		PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SUMMARIZE_TEST_CLASSES_FOR_BUILD_QUERY);
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_PACKAGE_SUMMARY_FOR_BUILD_PRIOR_TO_QUERY);
-			try {
-				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-
-				ResultSet rS = pS.executeQuery();
-				try {
-					List<JUnitSummaryInfo> junitSummaryInfoList = readSummary(rS, 1);
-					if(!junitSummaryInfoList.isEmpty()) {
-						result = junitSummaryInfoList.get(0);
-					}
-				}
-				finally {
-					rS.close();
-				}
-			}
-			finally {
-				pS.close();
-			}
-			connection.commit();
+			pS.setInt(1, buildNumber);
+			pS.setLong(2, projectId);
+			pS.executeUpdate();
+		}
+		finally {
+			releaseStatement(pS);
+		}
+	}
+
+	/**
+	 * Records in JUNIT_BUILD_DIFFS the tests of the build that regressed or were fixed, that is whose outcome differs from their most recent earlier
+	 * run: failed after passing, or passed after failing or being skipped. Tests whose outcome did not change, which are most of them, get no row.
+	 */
+	private void diffTestsForBuild(Connection connection, int buildNumber, long projectId) throws SQLException {
+		PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_CLEAR_DIFFS_FOR_BUILD_QUERY);
+		try {
+			pS.setInt(1, buildNumber);
+			pS.setLong(2, projectId);
+			pS.executeUpdate();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseStatement(pS);
+		}
+
+		pS = prepareStatement(connection, JUNIT_TESTS_DIFF_TESTS_FOR_BUILD_QUERY);
+		try {
+			pS.setInt(1, buildNumber);
+			pS.setLong(2, projectId);
+			pS.executeUpdate();
+		}
+		finally {
+			releaseStatement(pS);
 		}
-		return result;
 	}
 
-	public List<JUnitSummaryInfo> fetchTestModuleSummaryHistory(String projectName, String moduleName, int limit) throws SQLException {
-		List<JUnitSummaryInfo> result = new ArrayList<JUnitSummaryInfo>();
+	public JUnitSummaryInfo fetchTestPackageSummaryForBuild(int buildNumber, String projectName, String moduleName, String packageName) throws SQLException {
+		JUnitSummaryInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_FETCH_TEST_MODULE_SUMMARY_HISTORY_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_PACKAGE_SUMMARY_FOR_BUILD_QUERY);
 			try {
-				pS.setString(1, projectName);
-				pS.setString(2, moduleName);
+				pS.setInt(1, buildNumber);
+				pS.setString(2, projectName);
+				pS.setString(3, moduleName);
+				pS.setString(4, packageName);
 
 				ResultSet rS = pS.executeQuery();
 				try {
-					result = readSummary(rS, limit);
+					List<JUnitSummaryInfo> junitSummaryInfoList = readSummary(rS, 1);
+					if(!junitSummaryInfoList.isEmpty()) {
+						result = junitSummaryInfoList.get(0);
+					}
 				}
 				finally {
 					rS.close();
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
 
-	public List<JUnitSummaryInfo> fetchTestModuleChildrenForBuild(int buildNumber, String projectName, String moduleName) throws SQLException {
-		List<JUnitSummaryInfo> result = new ArrayList<JUnitSummaryInfo>();
+	public JUnitSummaryInfo fetchTestPackageSummaryForBuildPriorTo(int buildNumber, String projectName, String moduleName, String packageName) throws SQLException {
+		JUnitSummaryInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_MODULE_CHILDREN_FOR_BUILD_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_PACKAGE_SUMMARY_FOR_BUILD_PRIOR_TO_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
 				pS.setString(2, projectName);
 				pS.setString(3, moduleName);
+				pS.setString(4, packageName);
 
 				ResultSet rS = pS.executeQuery();
 				try {
-					result = readSummary(rS, -1);
+					List<JUnitSummaryInfo> junitSummaryInfoList = readSummary(rS, 1);
+					if(!junitSummaryInfoList.isEmpty()) {
+						result = junitSummaryInfoList.get(0);
+					}
 				}
 				finally {
 					rS.close();
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
 
-	public void summarizeTestModuleForBuild(int buildNumber, String projectName, String moduleName) throws SQLException {
-		Connection connection = getConnection();
-		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SUMMARIZE_TEST_MODULE_FOR_BUILD_QUERY);
-			try {
-				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
+	public List<JUnitSummaryInfo> fetchTestModuleSummaryHistory(String projectName, String moduleName, int limit) throws SQLException {
+		return fetchTestModuleSummaryHistory(projectName, moduleName, Integer.MAX_VALUE, limit);
+	}
 
-				pS.executeUpdate();
+	/**
+	 * As {@link #summarizeTestCaseHistory(String, String, String, String, String, int, int)}, for a module.
+	 */
+	public List<JUnitSummaryInfo> fetchTestModuleSummaryHistory(String projectName, String moduleName, int beforeBuildNumber, int limit) throws SQLException {
+		return openSummaries(JUNIT_FETCH_TEST_MODULE_SUMMARY_HISTORY_QUERY, projectName, moduleName, beforeBuildNumber, toFetchSize(limit)).toList(limit);
+	}
 
-			}
-			finally {
-				pS.close();
-			}
-			connection.commit();
-		}
-		finally {
-			connection.rollback();
-			connection.close();
-		}
+	/**
+	 * As {@link #openTestCaseSummaryHistory(String, String, String, String, String)}, for a module.
+	 */
+	public JUnitCursor<JUnitSummaryInfo> openTestModuleSummaryHistory(String projectName, String moduleName) throws SQLException {
+		return openSummaries(JUNIT_FETCH_TEST_MODULE_SUMMARY_HISTORY_QUERY, projectName, moduleName, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	public int countTestModuleHistory(String projectName, String moduleName) throws SQLException {
+		return queryInt(JUNIT_COUNT_TEST_MODULE_HISTORY_QUERY, projectName, moduleName);
+	}
+
+	public List<Integer> fetchTestModuleBuildNumbers(String projectName, String moduleName, int fromBuildNumber, int limit) throws SQLException {
+		return queryInts(JUNIT_FETCH_TEST_MODULE_BUILD_NUMBERS_QUERY, projectName, moduleName, fromBuildNumber, toFetchSize(limit));
+	}
+
+	/**
+	 * Fetches the summaries of the packages of a module in the given build, each with its previous build's summary and its cumulative counts, in a single query.
+	 */
+	public List<JUnitChildSummaryInfo> fetchTestModuleChildrenForBuild(int buildNumber, String projectName, String moduleName) throws SQLException {
+		return openChildSummaries(JUNIT_TESTS_FETCH_TEST_MODULE_CHILDREN_FOR_BUILD_QUERY, buildNumber, projectName, moduleName).toList(-1);
 	}
 
 	public JUnitSummaryInfo fetchTestModuleSummaryForBuildPriorTo(int buildNumber, String projectName, String moduleName) throws SQLException {
 		JUnitSummaryInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_FETCH_TEST_MODULE_SUMMARY_FOR_BUILD_PRIOR_TO_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_FETCH_TEST_MODULE_SUMMARY_FOR_BUILD_PRIOR_TO_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
 				pS.setString(2, projectName);
@@ -1632,13 +3537,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -1647,7 +3551,7 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitSummaryInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_FETCH_TEST_MODULE_SUMMARY_FOR_BUILD_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_FETCH_TEST_MODULE_SUMMARY_FOR_BUILD_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
 				pS.setString(2, projectName);
@@ -1665,13 +3569,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -1680,7 +3583,7 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitSummaryInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_MODULE_SUMMARY_FOR_BUILD_NO_LATER_THAN_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_MODULE_SUMMARY_FOR_BUILD_NO_LATER_THAN_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
 				pS.setString(2, projectName);
@@ -1698,99 +3601,152 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
 
 	public List<JUnitSummaryInfo> summarizeTestProjectHistory(String projectName, int limit) throws SQLException {
-		List<JUnitSummaryInfo> result = new ArrayList<JUnitSummaryInfo>();
-		Connection connection = getConnection();
-		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SUMMARIZE_TEST_PROJECT_HISTORY_QUERY);
-			try {
-				pS.setString(1, projectName);
+		return summarizeTestProjectHistory(projectName, Integer.MAX_VALUE, limit);
+	}
 
-				ResultSet rS = pS.executeQuery();
+	/**
+	 * As {@link #summarizeTestCaseHistory(String, String, String, String, String, int, int)}, for a whole project.
+	 */
+	public List<JUnitSummaryInfo> summarizeTestProjectHistory(String projectName, int beforeBuildNumber, int limit) throws SQLException {
+		return openSummaries(JUNIT_TESTS_SUMMARIZE_TEST_PROJECT_HISTORY_QUERY, projectName, beforeBuildNumber, toFetchSize(limit)).toList(limit);
+	}
+
+	/**
+	 * As {@link #openTestCaseSummaryHistory(String, String, String, String, String)}, for a whole project.
+	 */
+	public JUnitCursor<JUnitSummaryInfo> openTestProjectSummaryHistory(String projectName) throws SQLException {
+		return openSummaries(JUNIT_TESTS_SUMMARIZE_TEST_PROJECT_HISTORY_QUERY, projectName, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	public int countTestProjectHistory(String projectName) throws SQLException {
+		return queryInt(JUNIT_TESTS_COUNT_TEST_PROJECT_HISTORY_QUERY, projectName);
+	}
+
+	public List<Integer> fetchTestProjectBuildNumbers(String projectName, int fromBuildNumber, int limit) throws SQLException {
+		return queryInts(JUNIT_TESTS_FETCH_TEST_PROJECT_BUILD_NUMBERS_QUERY, projectName, fromBuildNumber, toFetchSize(limit));
+	}
+
+	/**
+	 * Fetches the summaries of the modules of a project in the given build, each with its previous build's summary and its cumulative counts, in a single query.
+	 */
+	public List<JUnitChildSummaryInfo> fetchTestProjectChildrenForBuild(int buildNumber, String projectName) throws SQLException {
+		return openChildSummaries(JUNIT_TESTS_FETCH_TEST_PROJECT_CHILDREN_FOR_BUILD_QUERY, buildNumber, projectName).toList(-1);
+	}
+
+	/**
+	 * Returns the module, package and class summaries of the given build, together with the IDs of the tests that regressed or were fixed in it, from
+	 * the summary tree cache if they were read before. A tree is only cached once the build's summaries have been written, which is when its project
+	 * summary exists, since all of them are written in the same transaction. The project summary is looked for first, so that summaries committed
+	 * while the tree is read cannot be mistaken for a complete tree.
+	 */
+	public JUnitSummaryTree fetchSummaryTreeForBuild(int buildNumber, String projectName) throws SQLException {
+		JUnitSummaryTree result = SUMMARY_TREE_CACHE.get(databaseDir, projectName, buildNumber);
+		if(result == null) {
+			List<JUnitChildSummaryInfo> modules = new ArrayList<JUnitChildSummaryInfo>();
+			List<JUnitChildSummaryInfo> packages = new ArrayList<JUnitChildSummaryInfo>();
+			List<JUnitChildSummaryInfo> classes = new ArrayList<JUnitChildSummaryInfo>();
+			Set<Long> changedTestIds = new HashSet<Long>();
+			boolean isComplete = false;
+			Connection connection = getConnection();
+			try {
+				PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_PROJECT_SUMMARY_PRESENT_FOR_BUILD_QUERY);
 				try {
-					result = readSummary(rS, limit);
+					pS.setInt(1, buildNumber);
+					pS.setString(2, projectName);
+
+					ResultSet rS = pS.executeQuery();
+					try {
+						isComplete = rS.next();
+					}
+					finally {
+						rS.close();
+					}
 				}
 				finally {
-					rS.close();
+					releaseStatement(pS);
 				}
-			}
-			finally {
-				pS.close();
-			}
-			connection.commit();
-		}
-		finally {
-			connection.rollback();
-			connection.close();
-		}
-		return result;
-	}
 
-	public List<JUnitSummaryInfo> fetchTestProjectChildrenForBuild(int buildNumber, String projectName) throws SQLException {
-		List<JUnitSummaryInfo> result = new ArrayList<JUnitSummaryInfo>();
-		Connection connection = getConnection();
-		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_PROJECT_CHILDREN_FOR_BUILD_QUERY);
-			try {
-				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
+				pS = prepareStatement(connection, JUNIT_TESTS_FETCH_SUMMARY_TREE_FOR_BUILD_QUERY);
+				try {
+					pS.setInt(1, buildNumber);
+					pS.setString(2, projectName);
+					pS.setInt(3, buildNumber);
+					pS.setString(4, projectName);
+					pS.setInt(5, buildNumber);
+					pS.setLong(6, JUnitIdentity.projectId(projectName));
 
-				ResultSet rS = pS.executeQuery();
+					ResultSet rS = pS.executeQuery();
+					try {
+						while(rS.next()) {
+							JUnitChildSummaryInfo junitChildSummaryInfo = readChildSummaryInfo(rS);
+							switch(rS.getInt(36)) {
+								case SUMMARY_LEVEL_MODULE:
+									modules.add(junitChildSummaryInfo);
+									break;
+								case SUMMARY_LEVEL_PACKAGE:
+									packages.add(junitChildSummaryInfo);
+									break;
+								default:
+									classes.add(junitChildSummaryInfo);
+									break;
+							}
+						}
+					}
+					finally {
+						rS.close();
+					}
+				}
+				finally {
+					releaseStatement(pS);
+				}
+
+				pS = prepareStatement(connection, JUNIT_TESTS_FETCH_DIFFS_FOR_BUILD_QUERY);
 				try {
-					result = readSummary(rS, -1);
+					pS.setInt(1, buildNumber);
+					pS.setLong(2, JUnitIdentity.projectId(projectName));
+
+					ResultSet rS = pS.executeQuery();
+					try {
+						while(rS.next()) {
+							changedTestIds.add(rS.getLong(1));
+						}
+					}
+					finally {
+						rS.close();
+					}
 				}
 				finally {
-					rS.close();
+					releaseStatement(pS);
 				}
+				connection.commit();
 			}
 			finally {
-				pS.close();
-			}
-			connection.commit();
-		}
-		finally {
-			connection.rollback();
-			connection.close();
-		}
-		return result;
-	}
-
-	public void summarizeTestProjectForBuild(int buildNumber, String projectName) throws SQLException {
-		Connection connection = getConnection();
-		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SUMMARIZE_TEST_PROJECT_FOR_BUILD_QUERY);
-			try {
-				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.executeUpdate();
+				releaseConnection(connection);
 			}
-			finally {
-				pS.close();
+			result = new JUnitSummaryTree(projectName, buildNumber, isComplete, modules, packages, classes, changedTestIds);
+			if(result.isComplete()) {
+				SUMMARY_TREE_CACHE.put(databaseDir, result);
 			}
-			connection.commit();
-		}
-		finally {
-			connection.rollback();
-			connection.close();
 		}
+		return result;
 	}
 
 	public JUnitSummaryInfo fetchTestProjectSummaryForBuild(int buildNumber, String projectName) throws SQLException {
 		JUnitSummaryInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_PROJECT_SUMMARY_FOR_BUILD_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_PROJECT_SUMMARY_FOR_BUILD_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
 				pS.setString(2, projectName);
@@ -1807,13 +3763,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -1822,7 +3777,7 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitSummaryInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_PROJECT_SUMMARY_FOR_BUILD_PRIOR_TO_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_PROJECT_SUMMARY_FOR_BUILD_PRIOR_TO_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
 				pS.setString(2, projectName);
@@ -1839,13 +3794,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -1854,7 +3808,7 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitSummaryInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_PROJECT_SUMMARY_FOR_BUILD_NO_LATER_THAN_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_PROJECT_SUMMARY_FOR_BUILD_NO_LATER_THAN_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
 				pS.setString(2, projectName);
@@ -1871,13 +3825,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -1901,14 +3854,10 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitTestDetailInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_SELECT_TESTCASE_DETAIL_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SELECT_TESTCASE_DETAIL_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-				pS.setString(5, className);
-				pS.setString(6, caseName);
+				pS.setLong(2, JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName));
 				ResultSet rS = pS.executeQuery();
 				try {
 					if(rS.next()) {
@@ -1938,30 +3887,83 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
 
+	/**
+	 * Writes the stdout and stderr of a test case to the given writers, either of which may be null. Some tools only record the output of a whole
+	 * suite, which is kept on the module's &lt;init&gt; row and written instead when the case has none of its own. Both rows are read by one query
+	 * and each output is copied once, straight from its CLOB to the writer.
+	 */
+	public void readTestStdio(int buildNumber, String projectName, String moduleName, String packageName, String className, String caseName,
+			Writer stdoutWriter, Writer stderrWriter) throws IOException, SQLException {
+		long testId = JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName);
+
+		Connection connection = getConnection();
+		try {
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_SELECT_TESTCASE_STDIO_QUERY);
+			try {
+				pS.setInt(1, buildNumber);
+				pS.setLong(2, testId);
+				pS.setLong(3, JUnitIdentity.testId(projectName, moduleName, "<init>", "<init>", "<init>"));
+				ResultSet rS = pS.executeQuery();
+				try {
+					Clob caseStdoutClob = null;
+					Clob caseStderrClob = null;
+					Clob suiteStdoutClob = null;
+					Clob suiteStderrClob = null;
+					while(rS.next()) {
+						if(rS.getLong(1) == testId) {
+							caseStdoutClob = rS.getClob(2);
+							caseStderrClob = rS.getClob(3);
+						}
+						else {
+							suiteStdoutClob = rS.getClob(2);
+							suiteStderrClob = rS.getClob(3);
+						}
+					}
+
+					if(stdoutWriter != null) {
+						writeClobTo(isEmpty(caseStdoutClob) ? suiteStdoutClob : caseStdoutClob, stdoutWriter);
+					}
+					if(stderrWriter != null) {
+						writeClobTo(isEmpty(caseStderrClob) ? suiteStderrClob : caseStderrClob, stderrWriter);
+					}
+				}
+				finally {
+					rS.close();
+				}
+			}
+			finally {
+				releaseStatement(pS);
+			}
+			connection.commit();
+		}
+		finally {
+			releaseConnection(connection);
+		}
+	}
+
+	private boolean isEmpty(Clob clob) throws SQLException {
+		return clob == null || clob.length() == 0;
+	}
+
 	public JUnitMetricsInfo fetchTestCaseMetrics(int buildNumber, String projectName, String moduleName, String packageName, String className,
 			String caseName) throws SQLException {
 		JUnitMetricsInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_CASE_METRICS_FOR_BUILD_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_CASE_METRICS_FOR_BUILD_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-				pS.setString(5, className);
-				pS.setString(6, caseName);
+				pS.setLong(2, JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName));
 
 				ResultSet rS = pS.executeQuery();
 				try {
@@ -1972,13 +3974,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -1987,13 +3988,10 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitMetricsInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_CLASS_METRICS_FOR_BUILD_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_CLASS_METRICS_FOR_BUILD_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
-				pS.setString(2, projectName);
-				pS.setString(3, moduleName);
-				pS.setString(4, packageName);
-				pS.setString(5, className);
+				pS.setLong(2, JUnitIdentity.classId(projectName, moduleName, packageName, className));
 
 				ResultSet rS = pS.executeQuery();
 				try {
@@ -2004,13 +4002,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -2019,7 +4016,7 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitMetricsInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_PACKAGE_METRICS_FOR_BUILD_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_PACKAGE_METRICS_FOR_BUILD_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
 				pS.setString(2, projectName);
@@ -2035,13 +4032,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -2050,7 +4046,7 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitMetricsInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_MODULE_METRICS_FOR_BUILD_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_MODULE_METRICS_FOR_BUILD_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
 				pS.setString(2, projectName);
@@ -2065,13 +4061,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -2080,7 +4075,7 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		JUnitMetricsInfo result = null;
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_TEST_PROJECT_METRICS_FOR_BUILD_QUERY);
+			PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_TEST_PROJECT_METRICS_FOR_BUILD_QUERY);
 			try {
 				pS.setInt(1, buildNumber);
 				pS.setString(2, projectName);
@@ -2094,13 +4089,12 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				}
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 		return result;
 	}
@@ -2110,23 +4104,27 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		if(projectName != null && propertyName != null) {
 			Connection connection = getConnection();
 			try {
-				PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_PROPERTY);
+				PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_PROPERTY);
 				try {
 					pS.setString(1, projectName);
 					pS.setString(2, propertyName);
 					ResultSet rS = pS.executeQuery();
-					if(rS.next()) {
-						result = rS.getString(1);
+					try {
+						if(rS.next()) {
+							result = rS.getString(1);
+						}
+					}
+					finally {
+						rS.close();
 					}
 				}
 				finally {
-					pS.close();
+					releaseStatement(pS);
 				}
 				connection.commit();
 			}
 			finally {
-				connection.rollback();
-				connection.close();
+				releaseConnection(connection);
 			}
 		}
 		return result;
@@ -2137,23 +4135,27 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 		if(projectName != null && propertyName != null) {
 			Connection connection = getConnection();
 			try {
-				PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_FETCH_PROPERTY);
+				PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_FETCH_PROPERTY);
 				try {
 					pS.setString(1, projectName);
 					pS.setString(2, propertyName);
 					ResultSet rS = pS.executeQuery();
-					if(rS.next()) {
-						result = true;
+					try {
+						if(rS.next()) {
+							result = true;
+						}
+					}
+					finally {
+						rS.close();
 					}
 				}
 				finally {
-					pS.close();
+					releaseStatement(pS);
 				}
 				connection.commit();
 			}
 			finally {
-				connection.rollback();
-				connection.close();
+				releaseConnection(connection);
 			}
 		}
 		return result;
@@ -2164,7 +4166,7 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 			Connection connection = getConnection();
 			try {
 				if(!hasProperty(projectName, propertyName)) {
-					PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_INSERT_PROPERTY);
+					PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_INSERT_PROPERTY);
 					try {
 						pS.setString(1, projectName);
 						pS.setString(2, propertyName);
@@ -2172,11 +4174,11 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 						pS.executeUpdate();
 					}
 					finally {
-						pS.close();
+						releaseStatement(pS);
 					}
 				}
 				else {
-					PreparedStatement pS = connection.prepareStatement(JUNIT_TESTS_UPDATE_PROPERTY);
+					PreparedStatement pS = prepareStatement(connection, JUNIT_TESTS_UPDATE_PROPERTY);
 					try {
 						pS.setString(1, value);
 						pS.setString(2, projectName);
@@ -2184,14 +4186,13 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 						pS.executeUpdate();
 					}
 					finally {
-						pS.close();
+						releaseStatement(pS);
 					}
 				}
 				connection.commit();
 			}
 			finally {
-				connection.rollback();
-				connection.close();
+				releaseConnection(connection);
 			}
 		}
 	}
@@ -2199,21 +4200,22 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 	public void compactDB(String projectName, List<String> activeBuildIds) throws SQLException {
 		boolean isCompacting = false;
 		long dbSizeThreshold = 0;
+		int deletedSummaryCount = 0;
 
 		Connection connection = getConnection();
 		try {
-			PreparedStatement pS = connection.prepareStatement(CLEAR_JUNIT_ACTIVE_BUILDS_QUERY);
+			PreparedStatement pS = prepareStatement(connection, CLEAR_JUNIT_ACTIVE_BUILDS_QUERY);
 			try {
 				pS.setString(1, projectName);
 				pS.executeUpdate();
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 
 			if(activeBuildIds != null) {
-				pS = connection.prepareStatement(JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY);
+				pS = prepareStatement(connection, JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY);
 				try {
 					pS.setString(1, projectName);
 
@@ -2223,52 +4225,99 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 					}
 				}
 				finally {
-					pS.close();
+					releaseStatement(pS);
 				}
 			}
 			connection.commit();
 
-			pS = connection.prepareStatement(COMPACT_JUNIT_PROJECT_SUMMARY_QUERY);
+			pS = prepareStatement(connection, COMPACT_JUNIT_PROJECT_SUMMARY_QUERY);
 			try {
 				pS.setString(1, projectName);
 				pS.setString(2, projectName);
-				pS.executeUpdate();
+				deletedSummaryCount += pS.executeUpdate();
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 
-			pS = connection.prepareStatement(COMPACT_JUNIT_MODULE_SUMMARY_QUERY);
+			pS = prepareStatement(connection, COMPACT_JUNIT_MODULE_SUMMARY_QUERY);
 			try {
 				pS.setString(1, projectName);
 				pS.setString(2, projectName);
-				pS.executeUpdate();
+				deletedSummaryCount += pS.executeUpdate();
+			}
+			finally {
+				releaseStatement(pS);
+			}
+			connection.commit();
+
+			pS = prepareStatement(connection, COMPACT_JUNIT_CLASS_SUMMARY_QUERY);
+			try {
+				pS.setLong(1, JUnitIdentity.projectId(projectName));
+				pS.setString(2, projectName);
+				deletedSummaryCount += pS.executeUpdate();
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 
-			pS = connection.prepareStatement(COMPACT_JUNIT_PACKAGE_SUMMARY_QUERY);
+			pS = prepareStatement(connection, COMPACT_JUNIT_PACKAGE_SUMMARY_QUERY);
 			try {
 				pS.setString(1, projectName);
 				pS.setString(2, projectName);
+				deletedSummaryCount += pS.executeUpdate();
+			}
+			finally {
+				releaseStatement(pS);
+			}
+			connection.commit();
+
+			if(deletedSummaryCount > 0) {
+				SUMMARY_TREE_CACHE.removeProject(databaseDir, projectName);
+			}
+
+			pS = prepareStatement(connection, COMPACT_JUNIT_BUILD_DIFFS_QUERY);
+			try {
+				pS.setLong(1, JUnitIdentity.projectId(projectName));
+				pS.setString(2, projectName);
 				pS.executeUpdate();
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
 			}
 			connection.commit();
 
-			pS = connection.prepareStatement(COMPACT_JUNIT_TESTS_QUERY);
+			pS = prepareStatement(connection, COMPACT_JUNIT_TEST_DETAILS_QUERY);
 			try {
-				pS.setString(1, projectName);
+				pS.setLong(1, JUnitIdentity.projectId(projectName));
 				pS.setString(2, projectName);
 				pS.executeUpdate();
 			}
 			finally {
-				pS.close();
+				releaseStatement(pS);
+			}
+			connection.commit();
+
+			pS = prepareStatement(connection, COMPACT_JUNIT_TESTS_QUERY);
+			try {
+				pS.setLong(1, JUnitIdentity.projectId(projectName));
+				pS.setString(2, projectName);
+				pS.executeUpdate();
+			}
+			finally {
+				releaseStatement(pS);
+			}
+			connection.commit();
+
+			pS = prepareStatement(connection, COMPACT_JUNIT_TEST_IDENTITY_QUERY);
+			try {
+				pS.setLong(1, JUnitIdentity.projectId(projectName));
+				pS.executeUpdate();
+			}
+			finally {
+				releaseStatement(pS);
 			}
 			connection.commit();
 
@@ -2294,6 +4343,21 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 				cs.setShort(3, (short)1);
 				cs.execute();
 
+				cs.setString(1, "APP");
+				cs.setString(2, "JUNIT_TEST_DETAILS");
+				cs.setShort(3, (short)1);
+				cs.execute();
+
+				cs.setString(1, "APP");
+				cs.setString(2, "JUNIT_TEST_IDENTITY");
+				cs.setShort(3, (short)1);
+				cs.execute();
+
+				cs.setString(1, "APP");
+				cs.setString(2, "JUNIT_CLASS_SUMMARY");
+				cs.setShort(3, (short)1);
+				cs.execute();
+
 				cs.setString(1, "APP");
 				cs.setString(2, "JUNIT_PACKAGE_SUMMARY");
 				cs.setShort(3, (short)1);
@@ -2313,8 +4377,7 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 
 		}
 		finally {
-			connection.rollback();
-			connection.close();
+			releaseConnection(connection);
 		}
 
 		if(isCompacting) {
@@ -2327,24 +4390,31 @@ private static final String JUNIT_ACTIVE_BUILDS_TABLE_INSERT_QUERY = "INSERT INT
 	private JUnitMetricsInfo readMetrics(ResultSet rS) throws SQLException {
 		JUnitMetricsInfo result = null;
 		if(rS.next()) {
-			result = new JUnitMetricsInfo();
-			result.setTotalCount(rS.getLong(1));
-			result.setSuccessCount(rS.getLong(2));
-			result.setFailCount(rS.getLong(3));
-			result.setErrorCount(rS.getLong(4));
-			result.setSkipCount(rS.getLong(5));
+			result = readMetricsInfo(rS, 0);
 		}
 		return result;
 	}
 
+	private static JUnitMetricsInfo readMetricsInfo(ResultSet rS, int offset) throws SQLException {
+		JUnitMetricsInfo result = new JUnitMetricsInfo();
+		result.setTotalCount(rS.getLong(offset + 1));
+		result.setSuccessCount(rS.getLong(offset + 2));
+		result.setFailCount(rS.getLong(offset + 3));
+		result.setErrorCount(rS.getLong(offset + 4));
+		result.setSkipCount(rS.getLong(offset + 5));
+		return result;
+	}
+
 	private void writeClobTo(Clob clob, Writer writer) throws SQLException, IOException {
-		Reader reader = clob.getCharacterStream();
-		char[] buffer = new char[1024];
-		int charsRead = 0;
-		while((charsRead = reader.read(buffer)) > 0) {
-			writer.write(buffer, 0, charsRead);
+		if(clob != null) {
+			Reader reader = clob.getCharacterStream();
+			char[] buffer = new char[8192];
+			int charsRead = 0;
+			while((charsRead = reader.read(buffer)) > 0) {
+				writer.write(buffer, 0, charsRead);
+			}
+			writer.flush();
 		}
-		writer.flush();
 	}
 
 	static {
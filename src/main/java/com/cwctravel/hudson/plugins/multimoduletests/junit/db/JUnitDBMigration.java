@@ -0,0 +1,29 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A single step in the evolution of the JUnitDB schema. Steps are applied in version order to every database whose recorded schema version is
+ * lower than theirs, and the recorded version is advanced as soon as a step completes. A step may commit as often as it likes, but it must cope with
+ * being run again on a database it already partly or fully migrated, as happens when the upgrade is interrupted before the version is recorded.
+ */
+public abstract class JUnitDBMigration {
+	private final int version;
+	private final String description;
+
+	public JUnitDBMigration(int version, String description) {
+		this.version = version;
+		this.description = description;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public abstract void migrate(Connection connection) throws SQLException;
+}
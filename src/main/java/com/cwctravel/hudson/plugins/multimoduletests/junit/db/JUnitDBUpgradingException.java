@@ -0,0 +1,15 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit.db;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a {@link JUnitDB} is asked for while its schema is being upgraded in the background. The database can be used again once the upgrade
+ * has finished, and {@link JUnitDB#awaitInstance(String)} waits for that.
+ */
+public class JUnitDBUpgradingException extends SQLException {
+	private static final long serialVersionUID = 6118406285316227254L;
+
+	public JUnitDBUpgradingException(String reason) {
+		super(reason);
+	}
+}
@@ -0,0 +1,63 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit.db;
+
+/**
+ * Derives the stable 64 bit identifiers stored in place of names in JUNIT_TESTS. Every level is hashed from the identifier of its parent and its own
+ * name, so an identifier pins down the complete path above it and a single ID column is enough to select a project, module, package, class or test
+ * case. The names themselves are kept once per test case in JUNIT_TEST_IDENTITY.
+ */
+public final class JUnitIdentity {
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private JUnitIdentity() {}
+
+	public static long projectId(String projectName) {
+		return childId(0, projectName);
+	}
+
+	public static long moduleId(String projectName, String moduleName) {
+		return childId(projectId(projectName), moduleName);
+	}
+
+	public static long packageId(String projectName, String moduleName, String packageName) {
+		return childId(moduleId(projectName, moduleName), packageName);
+	}
+
+	public static long classId(String projectName, String moduleName, String packageName, String className) {
+		return childId(packageId(projectName, moduleName, packageName), className);
+	}
+
+	public static long testId(String projectName, String moduleName, String packageName, String className, String caseName) {
+		return childId(classId(projectName, moduleName, packageName, className), caseName);
+	}
+
+	/**
+	 * Returns the identifier of the named child of the given parent. This is FNV-1a over the parent identifier and the UTF-16 code units of the
+	 * name, followed by a 64 bit finalizer so that names differing only in their last characters still spread over the whole key space.
+	 */
+	public static long childId(long parentId, String name) {
+		long result = FNV_OFFSET_BASIS;
+		for(int i = 0; i < 8; i++) {
+			result ^= (parentId >>> (i * 8)) & 0xff;
+			result *= FNV_PRIME;
+		}
+
+		if(name != null) {
+			int length = name.length();
+			for(int i = 0; i < length; i++) {
+				char c = name.charAt(i);
+				result ^= c & 0xff;
+				result *= FNV_PRIME;
+				result ^= c >>> 8;
+				result *= FNV_PRIME;
+			}
+		}
+
+		result ^= result >>> 33;
+		result *= 0xff51afd7ed558ccdL;
+		result ^= result >>> 33;
+		result *= 0xc4ceb9fe1a85ec53L;
+		result ^= result >>> 33;
+		return result;
+	}
+}
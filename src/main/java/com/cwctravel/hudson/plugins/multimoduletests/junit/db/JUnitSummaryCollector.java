@@ -0,0 +1,167 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit.db;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Accumulates the project, module, package and class summaries of a build from its test cases as they are parsed, so that the summary tables can be
+ * written without reading the tests back from JUNIT_TESTS. Collectors filled from different reports of the same build can be merged.
+ */
+public class JUnitSummaryCollector {
+	private JUnitSummaryInfo projectSummary;
+
+	private final Map<Long, JUnitSummaryInfo> moduleSummaries;
+	private final Map<Long, JUnitSummaryInfo> packageSummaries;
+	private final Map<Long, JUnitSummaryInfo> classSummaries;
+
+	public JUnitSummaryCollector() {
+		this.moduleSummaries = new LinkedHashMap<Long, JUnitSummaryInfo>();
+		this.packageSummaries = new LinkedHashMap<Long, JUnitSummaryInfo>();
+		this.classSummaries = new LinkedHashMap<Long, JUnitSummaryInfo>();
+	}
+
+	public void add(JUnitTestInfo junitTestInfo) {
+		long projectId = JUnitIdentity.projectId(junitTestInfo.getProjectName());
+		long moduleId = JUnitIdentity.childId(projectId, junitTestInfo.getModuleName());
+		long packageId = JUnitIdentity.childId(moduleId, junitTestInfo.getPackageName());
+		long classId = JUnitIdentity.childId(packageId, junitTestInfo.getClassName());
+
+		if(projectSummary == null) {
+			projectSummary = createSummary(junitTestInfo, "", "", "");
+		}
+		addTest(projectSummary, junitTestInfo);
+
+		JUnitSummaryInfo moduleSummary = moduleSummaries.get(moduleId);
+		if(moduleSummary == null) {
+			moduleSummary = createSummary(junitTestInfo, junitTestInfo.getModuleName(), "", "");
+			moduleSummaries.put(moduleId, moduleSummary);
+		}
+		addTest(moduleSummary, junitTestInfo);
+
+		JUnitSummaryInfo packageSummary = packageSummaries.get(packageId);
+		if(packageSummary == null) {
+			packageSummary = createSummary(junitTestInfo, junitTestInfo.getModuleName(), junitTestInfo.getPackageName(), "");
+			packageSummaries.put(packageId, packageSummary);
+		}
+		addTest(packageSummary, junitTestInfo);
+
+		JUnitSummaryInfo classSummary = classSummaries.get(classId);
+		if(classSummary == null) {
+			classSummary = createSummary(junitTestInfo, junitTestInfo.getModuleName(), junitTestInfo.getPackageName(), junitTestInfo.getClassName());
+			classSummaries.put(classId, classSummary);
+		}
+		addTest(classSummary, junitTestInfo);
+	}
+
+	/**
+	 * Adds the counts of another collector of the same build to this one. The other collector is left unchanged.
+	 */
+	public void merge(JUnitSummaryCollector other) {
+		if(other.projectSummary != null) {
+			if(projectSummary == null) {
+				projectSummary = copySummary(other.projectSummary);
+			}
+			else {
+				addSummary(projectSummary, other.projectSummary);
+			}
+		}
+		mergeSummaries(moduleSummaries, other.moduleSummaries);
+		mergeSummaries(packageSummaries, other.packageSummaries);
+		mergeSummaries(classSummaries, other.classSummaries);
+	}
+
+	public void clear() {
+		projectSummary = null;
+		moduleSummaries.clear();
+		packageSummaries.clear();
+		classSummaries.clear();
+	}
+
+	/**
+	 * Returns the summary of all tests collected so far, or null if there are none.
+	 */
+	public JUnitSummaryInfo getProjectSummary() {
+		return projectSummary;
+	}
+
+	public Collection<JUnitSummaryInfo> getModuleSummaries() {
+		return moduleSummaries.values();
+	}
+
+	public Collection<JUnitSummaryInfo> getPackageSummaries() {
+		return packageSummaries.values();
+	}
+
+	public Collection<JUnitSummaryInfo> getClassSummaries() {
+		return classSummaries.values();
+	}
+
+	private static void mergeSummaries(Map<Long, JUnitSummaryInfo> summaries, Map<Long, JUnitSummaryInfo> otherSummaries) {
+		for(Map.Entry<Long, JUnitSummaryInfo> entry: otherSummaries.entrySet()) {
+			JUnitSummaryInfo summary = summaries.get(entry.getKey());
+			if(summary == null) {
+				summaries.put(entry.getKey(), copySummary(entry.getValue()));
+			}
+			else {
+				addSummary(summary, entry.getValue());
+			}
+		}
+	}
+
+	private static JUnitSummaryInfo createSummary(JUnitTestInfo junitTestInfo, String moduleName, String packageName, String className) {
+		JUnitSummaryInfo result = new JUnitSummaryInfo();
+		result.setBuildId(junitTestInfo.getBuildId());
+		result.setBuildNumber(junitTestInfo.getBuildNumber());
+		result.setProjectName(junitTestInfo.getProjectName());
+		result.setModuleName(moduleName);
+		result.setPackageName(packageName);
+		result.setClassName(className);
+		result.setCaseName("");
+		result.setStartTime(junitTestInfo.getStartTime());
+		return result;
+	}
+
+	private static JUnitSummaryInfo copySummary(JUnitSummaryInfo summary) {
+		JUnitSummaryInfo result = new JUnitSummaryInfo();
+		result.setBuildId(summary.getBuildId());
+		result.setBuildNumber(summary.getBuildNumber());
+		result.setProjectName(summary.getProjectName());
+		result.setModuleName(summary.getModuleName());
+		result.setPackageName(summary.getPackageName());
+		result.setClassName(summary.getClassName());
+		result.setCaseName(summary.getCaseName());
+		result.setStartTime(summary.getStartTime());
+		addSummary(result, summary);
+		return result;
+	}
+
+	private static void addTest(JUnitSummaryInfo summary, JUnitTestInfo junitTestInfo) {
+		summary.setTotalCount(summary.getTotalCount() + 1);
+		int status = junitTestInfo.getStatus();
+		if(status == JUnitTestInfo.STATUS_SUCCESS) {
+			summary.setPassCount(summary.getPassCount() + 1);
+		}
+		else if(status == JUnitTestInfo.STATUS_FAIL) {
+			summary.setFailCount(summary.getFailCount() + 1);
+		}
+		else if(status == JUnitTestInfo.STATUS_ERROR) {
+			summary.setErrorCount(summary.getErrorCount() + 1);
+		}
+		else if(status == JUnitTestInfo.STATUS_SKIP) {
+			summary.setSkipCount(summary.getSkipCount() + 1);
+		}
+		summary.setStartTime(Math.min(summary.getStartTime(), junitTestInfo.getStartTime()));
+		summary.setDuration(summary.getDuration() + junitTestInfo.getDuration());
+	}
+
+	private static void addSummary(JUnitSummaryInfo summary, JUnitSummaryInfo other) {
+		summary.setTotalCount(summary.getTotalCount() + other.getTotalCount());
+		summary.setPassCount(summary.getPassCount() + other.getPassCount());
+		summary.setFailCount(summary.getFailCount() + other.getFailCount());
+		summary.setErrorCount(summary.getErrorCount() + other.getErrorCount());
+		summary.setSkipCount(summary.getSkipCount() + other.getSkipCount());
+		summary.setStartTime(Math.min(summary.getStartTime(), other.getStartTime()));
+		summary.setDuration(summary.getDuration() + other.getDuration());
+	}
+}
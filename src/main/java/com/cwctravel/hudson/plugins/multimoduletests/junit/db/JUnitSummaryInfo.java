@@ -5,6 +5,7 @@ import hudson.Util;
 public class JUnitSummaryInfo {
 	private String buildId;
 	private int buildNumber;
+	private int failedSince;
 
 	private String projectName;
 	private String moduleName;
@@ -133,6 +134,17 @@ public class JUnitSummaryInfo {
 		this.totalCount = totalCount;
 	}
 
+	/**
+	 * Returns the number of the build since which this project, module, package or class has had failures in every build, or 0 if it had none.
+	 */
+	public int getFailedSince() {
+		return failedSince;
+	}
+
+	public void setFailedSince(int failedSince) {
+		this.failedSince = failedSince;
+	}
+
 	@Override
 	public String toString() {
 		return "JUnitSummaryInfo [buildId=" + buildId + ", buildNumber=" + buildNumber + ", projectName=" + projectName + ", moduleName=" + moduleName + ", packageName=" + packageName + ", className=" + className + ", duration=" + duration + ", startTime=" + startTime + ", passCount=" + passCount + ", failCount=" + failCount + ", errorCount=" + errorCount + ", skipCount=" + skipCount + ", totalCount=" + totalCount + "]";
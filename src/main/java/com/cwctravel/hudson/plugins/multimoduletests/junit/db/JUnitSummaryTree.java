@@ -0,0 +1,162 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The module, package and class summaries of one build of a project, each with its previous summary and its metrics, as read by a single query when
+ * the build's results are first viewed, and the IDs of the tests whose outcome changed since their previous run. The summaries of a completed build
+ * never change, so trees are shared through the {@link JUnitDB}'s summary tree cache; neither the tree nor the summaries it hands out may be
+ * modified.
+ */
+public final class JUnitSummaryTree {
+	private static final int OBJECT_WEIGHT = 16;
+	private static final int REFERENCE_WEIGHT = 8;
+	private static final int CHILD_SUMMARY_WEIGHT = OBJECT_WEIGHT + 3 * REFERENCE_WEIGHT;
+	private static final int SUMMARY_WEIGHT = OBJECT_WEIGHT + 3 * 4 + 7 * 8 + 6 * REFERENCE_WEIGHT;
+	private static final int METRICS_WEIGHT = OBJECT_WEIGHT + 5 * 8;
+	private static final int STRING_WEIGHT = OBJECT_WEIGHT + 4 + REFERENCE_WEIGHT + OBJECT_WEIGHT + 4;
+	private static final int ENTRY_WEIGHT = OBJECT_WEIGHT + 4 * REFERENCE_WEIGHT + OBJECT_WEIGHT + 8 + OBJECT_WEIGHT + 4 * REFERENCE_WEIGHT;
+
+	private final String projectName;
+	private final int buildNumber;
+	private final boolean isComplete;
+
+	private final List<JUnitChildSummaryInfo> modules;
+	private final Map<Long, JUnitChildSummaryInfo> modulesById;
+	private final Map<Long, JUnitChildSummaryInfo> packagesById;
+	private final Map<Long, List<JUnitChildSummaryInfo>> packagesByModuleId;
+	private final Map<Long, List<JUnitChildSummaryInfo>> classesByPackageId;
+	private final Set<Long> changedTestIds;
+
+	private final long weight;
+
+	JUnitSummaryTree(String projectName, int buildNumber, boolean isComplete, List<JUnitChildSummaryInfo> modules,
+			List<JUnitChildSummaryInfo> packages, List<JUnitChildSummaryInfo> classes, Collection<Long> changedTestIds) {
+		this.projectName = projectName;
+		this.buildNumber = buildNumber;
+		this.isComplete = isComplete;
+		this.modules = Collections.unmodifiableList(new ArrayList<JUnitChildSummaryInfo>(modules));
+		this.modulesById = new HashMap<Long, JUnitChildSummaryInfo>();
+		this.packagesById = new HashMap<Long, JUnitChildSummaryInfo>();
+		this.packagesByModuleId = new HashMap<Long, List<JUnitChildSummaryInfo>>();
+		this.classesByPackageId = new HashMap<Long, List<JUnitChildSummaryInfo>>();
+		this.changedTestIds = new HashSet<Long>(changedTestIds);
+
+		long weight = OBJECT_WEIGHT;
+		for(JUnitChildSummaryInfo module: modules) {
+			JUnitSummaryInfo summary = module.getSummary();
+			modulesById.put(JUnitIdentity.moduleId(projectName, summary.getModuleName()), module);
+			weight += weigh(module) + ENTRY_WEIGHT;
+		}
+		for(JUnitChildSummaryInfo junitPackage: packages) {
+			JUnitSummaryInfo summary = junitPackage.getSummary();
+			packagesById.put(JUnitIdentity.packageId(projectName, summary.getModuleName(), summary.getPackageName()), junitPackage);
+			addChild(packagesByModuleId, JUnitIdentity.moduleId(projectName, summary.getModuleName()), junitPackage);
+			weight += weigh(junitPackage) + ENTRY_WEIGHT + REFERENCE_WEIGHT;
+		}
+		for(JUnitChildSummaryInfo junitClass: classes) {
+			JUnitSummaryInfo summary = junitClass.getSummary();
+			addChild(classesByPackageId, JUnitIdentity.packageId(projectName, summary.getModuleName(), summary.getPackageName()), junitClass);
+			weight += weigh(junitClass) + REFERENCE_WEIGHT;
+		}
+		weight += (packagesByModuleId.size() + classesByPackageId.size()) * (ENTRY_WEIGHT + OBJECT_WEIGHT + REFERENCE_WEIGHT);
+		weight += this.changedTestIds.size() * ENTRY_WEIGHT;
+		this.weight = weight;
+	}
+
+	public String getProjectName() {
+		return projectName;
+	}
+
+	public int getBuildNumber() {
+		return buildNumber;
+	}
+
+	/**
+	 * Returns true if the build's summaries and the tests that changed in it have been recorded, which is not yet the case while it is still being
+	 * published. A complete tree may still have no modules, if none of the build's modules were configured to be summarized.
+	 */
+	public boolean isComplete() {
+		return isComplete;
+	}
+
+	/**
+	 * The approximate number of bytes of heap held by this tree.
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	public List<JUnitChildSummaryInfo> getModules() {
+		return modules;
+	}
+
+	public JUnitChildSummaryInfo getModule(String moduleName) {
+		return modulesById.get(JUnitIdentity.moduleId(projectName, moduleName));
+	}
+
+	public JUnitChildSummaryInfo getPackage(String moduleName, String packageName) {
+		return packagesById.get(JUnitIdentity.packageId(projectName, moduleName, packageName));
+	}
+
+	public List<JUnitChildSummaryInfo> getPackages(String moduleName) {
+		return getChildren(packagesByModuleId, JUnitIdentity.moduleId(projectName, moduleName));
+	}
+
+	public List<JUnitChildSummaryInfo> getClasses(String moduleName, String packageName) {
+		return getChildren(classesByPackageId, JUnitIdentity.packageId(projectName, moduleName, packageName));
+	}
+
+	/**
+	 * Returns true if the test regressed or was fixed in the build, that is if it failed after passing in its previous run or passed after failing or
+	 * being skipped.
+	 */
+	public boolean isTestChanged(String moduleName, String packageName, String className, String caseName) {
+		return changedTestIds.contains(JUnitIdentity.testId(projectName, moduleName, packageName, className, caseName));
+	}
+
+	private static void addChild(Map<Long, List<JUnitChildSummaryInfo>> childrenByParentId, long parentId, JUnitChildSummaryInfo child) {
+		List<JUnitChildSummaryInfo> children = childrenByParentId.get(parentId);
+		if(children == null) {
+			children = new ArrayList<JUnitChildSummaryInfo>();
+			childrenByParentId.put(parentId, children);
+		}
+		children.add(child);
+	}
+
+	private static List<JUnitChildSummaryInfo> getChildren(Map<Long, List<JUnitChildSummaryInfo>> childrenByParentId, long parentId) {
+		List<JUnitChildSummaryInfo> children = childrenByParentId.get(parentId);
+		if(children == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(children);
+	}
+
+	private static long weigh(JUnitChildSummaryInfo child) {
+		long result = CHILD_SUMMARY_WEIGHT + weigh(child.getSummary()) + weigh(child.getPreviousSummary());
+		if(child.getMetrics() != null) {
+			result += METRICS_WEIGHT;
+		}
+		return result;
+	}
+
+	private static long weigh(JUnitSummaryInfo summary) {
+		long result = 0;
+		if(summary != null) {
+			result = SUMMARY_WEIGHT + weigh(summary.getBuildId()) + weigh(summary.getProjectName()) + weigh(summary.getModuleName())
+					+ weigh(summary.getPackageName()) + weigh(summary.getClassName()) + weigh(summary.getCaseName());
+		}
+		return result;
+	}
+
+	private static long weigh(String value) {
+		return value == null ? 0 : STRING_WEIGHT + 2 * value.length();
+	}
+}
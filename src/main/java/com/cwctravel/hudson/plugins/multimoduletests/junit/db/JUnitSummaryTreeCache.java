@@ -0,0 +1,164 @@
+package com.cwctravel.hudson.plugins.multimoduletests.junit.db;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A least recently used cache of {@link JUnitSummaryTree}s shared by all {@link JUnitDB}s, bounded by the total estimated weight of the trees it holds
+ * rather than by their number, since a build of a large project can weigh as much as hundreds of builds of a small one. Trees heavier than the bound
+ * are never cached.
+ */
+public final class JUnitSummaryTreeCache {
+	private static final Logger LOGGER = Logger.getLogger(JUnitSummaryTreeCache.class.getName());
+
+	private final long maxWeight;
+
+	private final LinkedHashMap<Key, JUnitSummaryTree> trees;
+
+	private long weight;
+
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	JUnitSummaryTreeCache(long maxWeight) {
+		this.maxWeight = maxWeight;
+		this.trees = new LinkedHashMap<Key, JUnitSummaryTree>(16, 0.75f, true);
+	}
+
+	synchronized JUnitSummaryTree get(String databaseDir, String projectName, int buildNumber) {
+		JUnitSummaryTree result = trees.get(new Key(databaseDir, projectName, buildNumber));
+		if(result != null) {
+			hitCount++;
+		}
+		else {
+			missCount++;
+		}
+		return result;
+	}
+
+	synchronized void put(String databaseDir, JUnitSummaryTree tree) {
+		if(tree.getWeight() <= maxWeight) {
+			JUnitSummaryTree previousTree = trees.put(new Key(databaseDir, tree.getProjectName(), tree.getBuildNumber()), tree);
+			if(previousTree != null) {
+				weight -= previousTree.getWeight();
+			}
+			weight += tree.getWeight();
+
+			Iterator<JUnitSummaryTree> iterator = trees.values().iterator();
+			while(weight > maxWeight && iterator.hasNext()) {
+				JUnitSummaryTree evictedTree = iterator.next();
+				iterator.remove();
+				weight -= evictedTree.getWeight();
+				evictionCount++;
+				if(LOGGER.isLoggable(Level.FINE)) {
+					LOGGER.fine("Evicted summary tree of " + evictedTree.getProjectName() + " #" + evictedTree.getBuildNumber() + ": " + this);
+				}
+			}
+		}
+	}
+
+	synchronized void remove(String databaseDir, String projectName, int buildNumber) {
+		JUnitSummaryTree tree = trees.remove(new Key(databaseDir, projectName, buildNumber));
+		if(tree != null) {
+			weight -= tree.getWeight();
+		}
+	}
+
+	/**
+	 * Drops every tree read from the given database, for use once it has been closed.
+	 */
+	synchronized void removeDatabase(String databaseDir) {
+		Iterator<Map.Entry<Key, JUnitSummaryTree>> iterator = trees.entrySet().iterator();
+		while(iterator.hasNext()) {
+			Map.Entry<Key, JUnitSummaryTree> entry = iterator.next();
+			if(entry.getKey().databaseDir.equals(databaseDir)) {
+				iterator.remove();
+				weight -= entry.getValue().getWeight();
+			}
+		}
+	}
+
+	/**
+	 * Drops every tree of the given project, for use once some of its builds have been deleted and the previous summaries held by the trees of the
+	 * remaining builds may be out of date.
+	 */
+	synchronized void removeProject(String databaseDir, String projectName) {
+		Iterator<Map.Entry<Key, JUnitSummaryTree>> iterator = trees.entrySet().iterator();
+		while(iterator.hasNext()) {
+			Map.Entry<Key, JUnitSummaryTree> entry = iterator.next();
+			Key key = entry.getKey();
+			if(key.databaseDir.equals(databaseDir) && key.projectName.equals(projectName)) {
+				iterator.remove();
+				weight -= entry.getValue().getWeight();
+			}
+		}
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public synchronized int getSize() {
+		return trees.size();
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	public synchronized double getHitRate() {
+		long requestCount = hitCount + missCount;
+		return requestCount == 0 ? 0 : (double)hitCount / requestCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "trees=" + trees.size() + " weight=" + weight + "/" + maxWeight + " hits=" + hitCount + " misses=" + missCount + " evictions="
+				+ evictionCount;
+	}
+
+	private static final class Key {
+		private final String databaseDir;
+		private final String projectName;
+		private final int buildNumber;
+
+		private Key(String databaseDir, String projectName, int buildNumber) {
+			this.databaseDir = databaseDir;
+			this.projectName = projectName;
+			this.buildNumber = buildNumber;
+		}
+
+		@Override
+		public int hashCode() {
+			return (databaseDir.hashCode() * 31 + projectName.hashCode()) * 31 + buildNumber;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) {
+				return true;
+			}
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key that = (Key)obj;
+			return buildNumber == that.buildNumber && projectName.equals(that.projectName) && databaseDir.equals(that.databaseDir);
+		}
+	}
+}
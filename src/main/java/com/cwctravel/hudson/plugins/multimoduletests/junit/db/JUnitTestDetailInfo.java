@@ -7,6 +7,8 @@ public class JUnitTestDetailInfo {
 	private String errorStackTrace;
 	private Reader stdout;
 	private Reader stderr;
+	private long stdoutLength = -1;
+	private long stderrLength = -1;
 
 	public String getErrorStackTrace() {
 		return errorStackTrace;
@@ -39,4 +41,20 @@ public class JUnitTestDetailInfo {
 	public void setErrorMessage(String errorMessage) {
 		this.errorMessage = errorMessage;
 	}
+
+	public long getStdoutLength() {
+		return stdoutLength;
+	}
+
+	public void setStdoutLength(long stdoutLength) {
+		this.stdoutLength = stdoutLength;
+	}
+
+	public long getStderrLength() {
+		return stderrLength;
+	}
+
+	public void setStderrLength(long stderrLength) {
+		this.stderrLength = stderrLength;
+	}
 }
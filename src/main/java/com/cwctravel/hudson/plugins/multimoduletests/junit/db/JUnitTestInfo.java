@@ -9,6 +9,7 @@ public class JUnitTestInfo {
 	private int status;
 	private int index;
 	private int buildNumber;
+	private int failedSince;
 
 	private long id;
 	private long startTime;
@@ -112,6 +113,17 @@ public class JUnitTestInfo {
 		this.duration = duration;
 	}
 
+	/**
+	 * Returns the number of the build in which this test's current run of failures started, or 0 if the test did not fail.
+	 */
+	public int getFailedSince() {
+		return failedSince;
+	}
+
+	public void setFailedSince(int failedSince) {
+		this.failedSince = failedSince;
+	}
+
 	public int getIndex() {
 		return index;
 	}
@@ -11,4 +11,9 @@ public interface ReaderWriter {
 
 	public void release() throws IOException;
 
+	/**
+	 * Number of characters written so far.
+	 */
+	public long getLength() throws IOException;
+
 }
@@ -13,9 +13,8 @@ public class StringReaderWriter implements ReaderWriter {
 	}
 
 	public StringReaderWriter(char[] data, int offset, int length) throws IOException {
-		char[] charArray = new char[length - offset];
-		System.arraycopy(data, offset, charArray, 0, length);
-		this.data = new StringBuilder(new String(charArray));
+		this.data = new StringBuilder(length);
+		this.data.append(data, offset, length);
 	}
 
 	public Reader getReader() throws IOException {
@@ -49,4 +48,8 @@ public class StringReaderWriter implements ReaderWriter {
 		data = null;
 	}
 
+	public long getLength() throws IOException {
+		return data == null ? 0 : data.length();
+	}
+
 }
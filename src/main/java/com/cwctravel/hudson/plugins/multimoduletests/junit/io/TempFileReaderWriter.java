@@ -7,31 +7,86 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TempFileReaderWriter implements ReaderWriter {
 	private final File tempFile;
+	private final List<Reader> readers;
+
+	private BufferedWriter bW;
+	private long length;
 
 	public TempFileReaderWriter(char[] data, int offset, int length) throws IOException {
 		tempFile = File.createTempFile("junit_", ".dat");
-		BufferedWriter bW = new BufferedWriter(new FileWriter(tempFile));
-		try {
-			bW.write(data, offset, length);
-		}
-		finally {
-			bW.close();
-		}
+		readers = new ArrayList<Reader>();
+		bW = new BufferedWriter(new FileWriter(tempFile));
+		bW.write(data, offset, length);
+		this.length = length;
 	}
 
 	public Reader getReader() throws IOException {
-		return new FileReader(tempFile);
+		closeWriter();
+		Reader reader = new FileReader(tempFile);
+		readers.add(reader);
+		return reader;
 	}
 
 	public Writer getWriter() throws IOException {
-		return new FileWriter(tempFile);
+		return new Writer() {
+
+			@Override
+			public void write(char[] data, int offset, int length) throws IOException {
+				openWriter().write(data, offset, length);
+				TempFileReaderWriter.this.length += length;
+			}
+
+			@Override
+			public void flush() throws IOException {
+				openWriter().flush();
+			}
+
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+
+		};
+	}
+
+	public long getLength() {
+		return length;
 	}
 
-	public void release() {
-		tempFile.delete();
+	public void release() throws IOException {
+		try {
+			closeWriter();
+			for(Reader reader: readers) {
+				reader.close();
+			}
+		}
+		finally {
+			readers.clear();
+			tempFile.delete();
+		}
+	}
+
+	private BufferedWriter openWriter() throws IOException {
+		if(bW == null) {
+			bW = new BufferedWriter(new FileWriter(tempFile, true));
+		}
+		return bW;
+	}
+
+	private void closeWriter() throws IOException {
+		if(bW != null) {
+			try {
+				bW.close();
+			}
+			finally {
+				bW = null;
+			}
+		}
 	}
 
 }